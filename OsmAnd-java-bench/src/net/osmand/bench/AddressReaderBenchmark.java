@@ -0,0 +1,67 @@
+package net.osmand.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.binary.BinaryMapAddressReaderAdapter;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.City;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading of cities and their streets from address section of synthetic file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressReaderBenchmark {
+
+	@Param({ "9" })
+	public int regionZoom;
+
+	private BinaryMapIndexReader reader;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		reader = BenchmarkData.openReader(BenchmarkData.getObf(regionZoom));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+	}
+
+	@Benchmark
+	public List<City> getCities() throws IOException {
+		return reader.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+	}
+
+	@Benchmark
+	public int preloadStreets() throws IOException {
+		// new city objects every time, so streets are really read
+		List<City> cities = reader.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+		int streets = 0;
+		for (City c : cities) {
+			reader.preloadStreets(c, null);
+			streets += c.getStreets().size();
+		}
+		return streets;
+	}
+}
@@ -0,0 +1,114 @@
+package net.osmand.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.Amenity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Searches of map, poi and routing sections of synthetic file in bbox of {@link #tiles} x {@link #tiles} tiles
+ * of {@link #zoom} in the center of region.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryMapReaderBenchmark {
+
+	@Param({ "11", "14", "17" })
+	public int zoom;
+
+	@Param({ "1", "4" })
+	public int tiles;
+
+	// region is a tile of this zoom
+	@Param({ "9" })
+	public int regionZoom;
+
+	@Param({ "false", "true" })
+	public boolean memoryMapped;
+
+	private BinaryMapIndexReader reader;
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BinaryMapIndexReader.MEMORY_MAPPED_FILES = memoryMapped;
+		reader = BenchmarkData.openReader(BenchmarkData.getObf(regionZoom));
+		SyntheticObfGenerator gen = BenchmarkData.createGenerator(regionZoom);
+		int half = Math.min(tiles << (31 - zoom), gen.getSize31()) >> 1;
+		int cx = gen.getLeft31() + (gen.getSize31() >> 1);
+		int cy = gen.getTop31() + (gen.getSize31() >> 1);
+		left = cx - half;
+		right = cx + half - 1;
+		top = cy - half;
+		bottom = cy + half - 1;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+		BinaryMapIndexReader.MEMORY_MAPPED_FILES = false;
+	}
+
+	@Benchmark
+	public List<BinaryMapDataObject> searchMapIndex() throws IOException {
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(left, right, top, bottom, zoom,
+				null);
+		req.log = false;
+		return reader.searchMapIndex(req);
+	}
+
+	@Benchmark
+	public List<Amenity> searchPoi() throws IOException {
+		return reader.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(left, right, top, bottom, zoom, null, null));
+	}
+
+	/**
+	 * Reads route boxes (from copies of root boxes, so tree is not cached between invocations)
+	 * and loads all found subregions as router does.
+	 */
+	@Benchmark
+	public int loadRouteSubregions(Blackhole bh) throws IOException {
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(left, right, top, bottom, null);
+		List<RouteSubregion> roots = new ArrayList<RouteSubregion>();
+		for (RouteSubregion rs : reader.getRoutingIndexes().get(0).getSubregions()) {
+			roots.add(new RouteSubregion(rs));
+		}
+		List<RouteSubregion> found = reader.searchRouteIndexTree(req, roots);
+		int cnt = 0;
+		for (RouteSubregion rs : found) {
+			List<RouteDataObject> objects = reader.loadRouteIndexData(rs);
+			cnt += objects.size();
+			bh.consume(objects);
+		}
+		return cnt;
+	}
+}
@@ -0,0 +1,195 @@
+package net.osmand.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteSegmentResult;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingContext;
+import net.osmand.router.RoutingTileCache;
+import net.osmand.util.MapUtils;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Route calculation (java BinaryRoutePlanner through RoutePlannerFrontEnd) on synthetic road network between points
+ * {@link #distance} km apart on diagonal through the center of region. Every invocation uses new routing context,
+ * so tiles are read again unless {@link #sharedTiles} are enabled.
+ * Average visited segments, loaded tiles and allocated bytes per route are reported as secondary results
+ * ({@link RouteCounters}), allocation rate is also reported by -prof gc.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+	@Param({ "grid", "hierarchical" })
+	public String network;
+
+	// km
+	@Param({ "5", "15", "30" })
+	public int distance;
+
+	@Param({ "NORMAL", "COMPLEX", "BASE" })
+	public RouteCalculationMode mode;
+
+	// shared cache of decoded tiles (RoutingTileCache)
+	@Param({ "false" })
+	public boolean sharedTiles;
+
+	@Param({ "9" })
+	public int regionZoom;
+
+	private BinaryMapIndexReader reader;
+	private RoutingConfiguration config;
+	private RoutePlannerFrontEnd frontEnd;
+	private LatLon start;
+	private LatLon end;
+	// previous route and position off the route for recalculation
+	private List<RouteSegmentResult> previousRoute;
+	private LatLon recalculationStart;
+
+	/**
+	 * Counters of routes calculated by benchmark thread during iteration, reported per route
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class RouteCounters {
+		private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		private int routes;
+		private long visitedSegments;
+		private long loadedTiles;
+		private long allocatedBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			routes = 0;
+			visitedSegments = 0;
+			loadedTiles = 0;
+			allocatedBytes = 0;
+		}
+
+		public long visitedSegments() {
+			return routes == 0 ? 0 : visitedSegments / routes;
+		}
+
+		public long loadedTiles() {
+			return routes == 0 ? 0 : loadedTiles / routes;
+		}
+
+		public long allocatedBytes() {
+			return routes == 0 ? 0 : allocatedBytes / routes;
+		}
+
+		private long threadAllocatedBytes() {
+			if (threads instanceof com.sun.management.ThreadMXBean) {
+				return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+			}
+			return 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, InterruptedException {
+		reader = BenchmarkData.openReader(BenchmarkData.getObf(regionZoom, "hierarchical".equals(network)));
+		RoutingTileCache.getDefault().setMemoryLimit(sharedTiles ? RoutingTileCache.DEFAULT_MEMORY_LIMIT : 0);
+		RoutingTileCache.getDefault().clear();
+		config = BenchmarkData.getRoutingConfig().build("car", 256);
+		// previous route is reused after 2/5 of its length, so recalculation is possible at all distances
+		config.recalculateDistance = distance * 1000 * 0.4f;
+		frontEnd = new RoutePlannerFrontEnd(false);
+
+		SyntheticObfGenerator gen = BenchmarkData.createGenerator(regionZoom);
+		int cx = gen.getLeft31() + (gen.getSize31() >> 1);
+		int cy = gen.getTop31() + (gen.getSize31() >> 1);
+		LatLon center = new LatLon(MapUtils.get31LatitudeY(cy), MapUtils.get31LongitudeX(cx));
+		start = moveDiagonal(center, -distance * 500);
+		end = moveDiagonal(center, distance * 500);
+
+		RoutingContext ctx = frontEnd.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader },
+				RouteCalculationMode.NORMAL);
+		previousRoute = frontEnd.searchRoute(ctx, start, end, null);
+		if (previousRoute == null || previousRoute.isEmpty()) {
+			throw new IllegalStateException("Route is not found");
+		}
+		float total = 0;
+		for (RouteSegmentResult r : previousRoute) {
+			total += r.getDistance();
+		}
+		// driver left the route after 1/5 of it
+		float passed = 0;
+		for (RouteSegmentResult r : previousRoute) {
+			passed += r.getDistance();
+			if (passed > total / 5) {
+				LatLon l = r.getPoint(r.getEndPointIndex());
+				recalculationStart = new LatLon(l.getLatitude() + 0.0005, l.getLongitude() + 0.0005);
+				break;
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+		RoutingTileCache.getDefault().clear();
+		RoutingTileCache.getDefault().setMemoryLimit(RoutingTileCache.DEFAULT_MEMORY_LIMIT);
+	}
+
+	@Benchmark
+	public List<RouteSegmentResult> route(RouteCounters counters) throws IOException, InterruptedException {
+		RoutingContext ctx = frontEnd.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader }, mode);
+		return calculate(ctx, start, counters);
+	}
+
+	/**
+	 * Route from position off the previously calculated route, which end part is reused
+	 */
+	@Benchmark
+	public List<RouteSegmentResult> recalculate(RouteCounters counters) throws IOException, InterruptedException {
+		RoutingContext ctx = frontEnd.buildRoutingContext(config, null, new BinaryMapIndexReader[] { reader }, mode);
+		ctx.previouslyCalculatedRoute = previousRoute;
+		return calculate(ctx, recalculationStart, counters);
+	}
+
+	private List<RouteSegmentResult> calculate(RoutingContext ctx, LatLon from, RouteCounters counters)
+			throws IOException, InterruptedException {
+		long allocated = counters.threadAllocatedBytes();
+		List<RouteSegmentResult> res = frontEnd.searchRoute(ctx, from, end, null);
+		counters.allocatedBytes += counters.threadAllocatedBytes() - allocated;
+		counters.visitedSegments += ctx.visitedSegments;
+		counters.loadedTiles += ctx.loadedTiles;
+		counters.routes++;
+		return res;
+	}
+
+	private static LatLon moveDiagonal(LatLon l, double meters) {
+		double d = meters / Math.sqrt(2);
+		double lat = l.getLatitude() + d / 111320;
+		double lon = l.getLongitude() + d / (111320 * Math.cos(Math.toRadians(l.getLatitude())));
+		return new LatLon(lat, lon);
+	}
+}
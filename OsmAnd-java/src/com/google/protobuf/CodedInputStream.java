@@ -33,6 +33,8 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -76,6 +78,38 @@ public final class CodedInputStream {
   public static CodedInputStream newInstance(RandomAccessFile raf) {
     return new CodedInputStream(raf);
   }
+
+  /**
+   * Create a new CodedInputStream reading from memory mapped windows of a file
+   * (see {@link #mapReadOnly(FileChannel)}). Windows are duplicated so the same
+   * mapping could be shared by many streams, every stream keeps its own cursor.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] mappedWindows, long length) {
+    return new CodedInputStream(mappedWindows, length);
+  }
+
+  /**
+   * Create a new CodedInputStream reading with positional reads from the channel.
+   * Stream doesn't change channel position, so many streams could read the same channel
+   * concurrently.
+   */
+  public static CodedInputStream newInstance(FileChannel channel, long length) {
+    return new CodedInputStream(channel, length);
+  }
+
+  /**
+   * Maps whole file in read only mode, one buffer per {@link #MAPPED_WINDOW_SIZE} bytes.
+   */
+  public static ByteBuffer[] mapReadOnly(FileChannel channel) throws IOException {
+    long length = channel.size();
+    int windows = (int) ((length + MAPPED_WINDOW_SIZE - 1) / MAPPED_WINDOW_SIZE);
+    ByteBuffer[] mapped = new ByteBuffer[windows];
+    for (int i = 0; i < windows; i++) {
+      long start = i * MAPPED_WINDOW_SIZE;
+      mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAPPED_WINDOW_SIZE, length - start));
+    }
+    return mapped;
+  }
   // end osmand change
 
 
@@ -485,6 +519,11 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change : memory mapped & positional read modes
+  private ByteBuffer[] mappedWindows;
+  private FileChannel channel;
+  private long sharedLength;
+  private long sharedPointer;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -513,6 +552,7 @@ public final class CodedInputStream {
   private static final int DEFAULT_RECURSION_LIMIT = 64;
   private static final int DEFAULT_SIZE_LIMIT = 64 << 20;  // 64MB
   private static final int BUFFER_SIZE = 5 * 1024;
+  public static final long MAPPED_WINDOW_SIZE = Integer.MAX_VALUE;
 
 
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
@@ -540,6 +580,65 @@ public final class CodedInputStream {
 	 input = null;
   }
 
+  private CodedInputStream(final ByteBuffer[] mappedWindows, final long length) {
+	 buffer = new byte[BUFFER_SIZE];
+	 this.bufferSize = 0;
+	 bufferPos = 0;
+	 totalBytesRetired = 0;
+	 this.mappedWindows = new ByteBuffer[mappedWindows.length];
+	 for (int i = 0; i < mappedWindows.length; i++) {
+		 this.mappedWindows[i] = mappedWindows[i].duplicate();
+	 }
+	 this.sharedLength = length;
+	 this.sharedPointer = 0;
+	 input = null;
+  }
+
+  private CodedInputStream(final FileChannel channel, final long length) {
+	 buffer = new byte[BUFFER_SIZE];
+	 this.bufferSize = 0;
+	 bufferPos = 0;
+	 totalBytesRetired = 0;
+	 this.channel = channel;
+	 this.sharedLength = length;
+	 this.sharedPointer = 0;
+	 input = null;
+  }
+
+  // osmand change
+  private boolean isShared() {
+	  return mappedWindows != null || channel != null;
+  }
+
+  // osmand change
+  private int readShared(byte[] dst, int off, int len) throws IOException {
+	  if (sharedPointer >= sharedLength) {
+		  return -1;
+	  }
+	  int read = 0;
+	  if (channel != null) {
+		  ByteBuffer bb = ByteBuffer.wrap(dst, off, (int) Math.min(len, sharedLength - sharedPointer));
+		  while (bb.hasRemaining()) {
+			  int n = channel.read(bb, sharedPointer);
+			  if (n < 0) {
+				  break;
+			  }
+			  read += n;
+			  sharedPointer += n;
+		  }
+		  return read;
+	  }
+	  while (read < len && sharedPointer < sharedLength) {
+		  ByteBuffer window = mappedWindows[(int) (sharedPointer / MAPPED_WINDOW_SIZE)];
+		  window.position((int) (sharedPointer % MAPPED_WINDOW_SIZE));
+		  int n = Math.min(len - read, window.remaining());
+		  window.get(dst, off + read, n);
+		  read += n;
+		  sharedPointer += n;
+	  }
+	  return read;
+  }
+
   /**
    * Set the maximum message recursion depth.  In order to prevent malicious
    * messages from causing stack overflows, {@code CodedInputStream} limits
@@ -697,7 +796,10 @@ public final class CodedInputStream {
     totalBytesRetired += bufferSize;
 
     bufferPos = 0;
-    if (raf != null) {
+    if (isShared()) {
+    	// osmand change : copy from mapping without system call or positional read
+    	bufferSize = readShared(buffer, 0, buffer.length);
+    } else if (raf != null) {
         // osmand change
     	long remain = raf.length() - raf.getFilePointer();
     	bufferSize = (int) Math.min(remain, buffer.length);
@@ -825,7 +927,9 @@ public final class CodedInputStream {
         	
           final int n;
           // osmand change
-          if(raf != null) {
+          if(isShared()) {
+        	  n = readShared(chunk, pos, chunk.length - pos);
+          } else if(raf != null) {
         	  raf.readFully(chunk, pos, chunk.length - pos);
         	  n = chunk.length - pos;
           } else {
@@ -891,7 +995,10 @@ public final class CodedInputStream {
       while (pos < size) {
     	// osmand change
     	final int n ;
-    	if(raf != null) {
+    	if(isShared()) {
+    	 n = (int) Math.min(size - pos, sharedLength - sharedPointer);
+    	 sharedPointer += n;
+    	} else if(raf != null) {
     	 n = raf.skipBytes(size - pos);
     	} else {
     	 n = (input == null) ? -1 : (int) input.skip(size - pos);
@@ -916,7 +1023,11 @@ public final class CodedInputStream {
 		} else {
 			totalBytesRetired = (int) pointer;
 			bufferSizeAfterLimit = 0;
-			raf.seek(pointer);
+			if (isShared()) {
+				sharedPointer = pointer;
+			} else {
+				raf.seek(pointer);
+			}
 			bufferPos = 0;
 			bufferSize = 0;
 		}
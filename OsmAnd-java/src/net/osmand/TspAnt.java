@@ -110,14 +110,26 @@ public class TspAnt {
     	l.add(start);
     	l.addAll(intermediates);
     	l.add(end);
-        n = l.size() ;
+    	double[][] distances = new double[l.size()][l.size()];
+		for (int i = 0; i < l.size(); i++) {
+			for (int j = 1; j < l.size(); j++) {
+				distances[i][j] = Math.rint(MapUtils.getDistance(l.get(i), l.get(j)));
+			}
+		}
+		return readGraph(distances);
+    }
+
+    // Distances from i to j where 0 is start and n - 1 is end, f.e. route times of RouteTimeMatrix.
+    // Negative distance means there is no way.
+    public TspAnt readGraph(double[][] distances) {
+        n = distances.length;
 //        System.out.println("Cost");
         graph = new double[n][n];
         double maxSum = 0;
 		for (int i = 0; i < n ; i++) {
 			double maxIWeight = 0;
 			for (int j = 1; j < n ; j++) {
-				double d = Math.rint(MapUtils.getDistance(l.get(i), l.get(j))) + 0.1;
+				double d = distances[i][j] + 0.1;
 				maxIWeight = Math.max(d, maxIWeight);
 				graph[i][j] = d;
 			}
@@ -125,6 +137,11 @@ public class TspAnt {
 		}
 		maxSum = Math.rint(maxSum) + 1;
 		for (int i = 0; i < n; i++) {
+			for (int j = 1; j < n; j++) {
+				if (distances[i][j] < 0) {
+					graph[i][j] = maxSum;
+				}
+			}
 			if (i == n - 1) {
 				graph[i][0] = 0.1;
 			} else {
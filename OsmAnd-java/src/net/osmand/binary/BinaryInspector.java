@@ -31,6 +31,7 @@ import java.util.Set;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.CitiesBlock;
+import net.osmand.binary.BinaryMapIndexReader.MapDataObjectVisitor;
 import net.osmand.binary.BinaryMapIndexReader.MapIndex;
 import net.osmand.binary.BinaryMapIndexReader.MapObjectStat;
 import net.osmand.binary.BinaryMapIndexReader.MapRoot;
@@ -659,9 +660,10 @@ public class BinaryInspector {
 		
 		public void processKey(String simpleString, MapObjectStat st, TIntObjectHashMap<String> objectNames,
 				int coordinates, boolean names ) {
-			TIntObjectIterator<String> it = objectNames.iterator();
 			int nameLen = 0;
-			while(it.hasNext()) {
+			// names are resolved only at the end of block
+			TIntObjectIterator<String> it = objectNames == null ? null : objectNames.iterator();
+			while(it != null && it.hasNext()) {
 				it.advance();
 				nameLen ++;
 				nameLen += it.value().length();
@@ -785,6 +787,34 @@ public class BinaryInspector {
 		if(vInfo.isVStats()) {
 			BinaryMapIndexReader.READ_STATS = true;
 		}
+		final ResultMatcher<BinaryMapDataObject> matcher = new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject obj) {
+				mapObjectsCounter.value++;
+				if(vInfo.isVStats()) {
+					mapObjectStats.process(obj);
+				} else if (vInfo.vmapObjects) {
+					b.setLength(0);
+					if (vInfo.osm) {
+						printOsmMapDetails(obj, b);
+						try {
+							printToFile(b.toString());
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+//					} else if(obj.getId() >> 1 == 205743436l) {
+					} else {
+						printMapDetails(obj, b, vInfo.vmapCoordinates);
+						println(b.toString());
+					}
+				}
+				return false;
+			}
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
 		final SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(
 				MapUtils.get31TileNumberX(vInfo.lonleft),
 				MapUtils.get31TileNumberX(vInfo.lonright),
@@ -797,38 +827,22 @@ public class BinaryInspector {
 						return true;
 					}
 				},
-				new ResultMatcher<BinaryMapDataObject>() {
-					@Override
-					public boolean publish(BinaryMapDataObject obj) {
-						mapObjectsCounter.value++;
-						if(vInfo.isVStats()) {
-							mapObjectStats.process(obj);
-						} else if (vInfo.vmapObjects) {
-							b.setLength(0);
-							if (vInfo.osm) {
-								printOsmMapDetails(obj, b);
-								try {
-									printToFile(b.toString());
-								} catch (IOException e) {
-									throw new RuntimeException(e);
-								}
-//							} else if(obj.getId() >> 1 == 205743436l) {
-							} else {
-								printMapDetails(obj, b, vInfo.vmapCoordinates);
-								println(b.toString());
-							}
-						}
-						return false;
-					}
-					@Override
-					public boolean isCancelled() {
-						return false;
-					}
-				});
+				matcher);
 		if(vInfo.vstats) {
 			mapObjectStats.setReq(req);
 		}
-		index.searchMapIndex(req, mapIndex);
+		if (vInfo.isVStats()) {
+			index.searchMapIndex(req, mapIndex);
+		} else {
+			// print objects one by one without keeping them in memory
+			index.visitMapIndex(req, mapIndex, new MapDataObjectVisitor() {
+				@Override
+				public boolean visit(BinaryMapDataObject object) {
+					matcher.publish(object);
+					return true;
+				}
+			});
+		}
 		if(vInfo.osm){
 			printToFile("</osm >\n");
 		} 
@@ -18,6 +18,9 @@ public class BinaryMapDataObject {
 	protected long id = 0;
 	
 	protected MapIndex mapIndex = null;
+	// names are resolved on demand : string table of the block and string indexes in order of namesOrder
+	MapStringTable namesTable = null;
+	volatile int[] namesIndexes = null;
 	
 	
 	public BinaryMapDataObject(){
@@ -36,7 +39,35 @@ public class BinaryMapDataObject {
 	}
 	
 	
+	private void resolveNames() {
+		// string table is not read yet (objects published before the end of block)
+		if (namesIndexes == null || namesTable == null) {
+			return;
+		}
+		// objects of cached blocks are shared between threads
+		synchronized (this) {
+			int[] indexes = namesIndexes;
+			if (indexes == null) {
+				return;
+			}
+			TIntObjectHashMap<String> names = new TIntObjectHashMap<String>();
+			for (int i = 0; i < indexes.length && i < namesOrder.size(); i++) {
+				String s = namesTable.get(indexes[i]);
+				if (s != null) {
+					names.put(namesOrder.get(i), s);
+				}
+			}
+			if (objectNames != null) {
+				// names put before string table was attached
+				names.putAll(objectNames);
+			}
+			objectNames = names;
+			namesIndexes = null;
+		}
+	}
+	
 	public String getName(){
+		resolveNames();
 		if(objectNames == null){
 			return "";
 		}
@@ -49,16 +80,23 @@ public class BinaryMapDataObject {
 	
 	
 	public TIntObjectHashMap<String> getObjectNames() {
+		resolveNames();
 		return objectNames;
 	}
 	
 	public void putObjectName(int type, String name){
-		if(objectNames == null){
-			objectNames = new TIntObjectHashMap<String>();
-			namesOrder = new TIntArrayList();
+		resolveNames();
+		// pending names indexes keep their order, new name is appended after them
+		synchronized (this) {
+			if (objectNames == null) {
+				objectNames = new TIntObjectHashMap<String>();
+			}
+			if (namesOrder == null) {
+				namesOrder = new TIntArrayList();
+			}
+			objectNames.put(type, name);
+			namesOrder.add(type);
 		}
-		objectNames.put(type, name);
-		namesOrder.add(type);
 	}
 	
 	public int[][] getPolygonInnerCoordinates() {
@@ -92,6 +130,7 @@ public class BinaryMapDataObject {
 	}
 	
 	public String getNameByType(int type) {
+		resolveNames();
 		if(type != -1 && objectNames != null) {
 			return objectNames.get(type);
 		}
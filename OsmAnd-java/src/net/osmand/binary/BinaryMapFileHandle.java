@@ -0,0 +1,102 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.osmand.PlatformUtil;
+
+import org.apache.commons.logging.Log;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * One open descriptor of obf file shared by many {@link BinaryMapIndexReader}.
+ * Handle doesn't keep any cursor : it reads with positional reads (or from memory mapping)
+ * so it could be used by any number of threads at the same time.
+ * Every reader created by {@link #createReader(BinaryMapIndexReader)} is a lightweight view with its own cursor
+ * and it should be used by one thread only, create a view per thread to search concurrently.
+ */
+public class BinaryMapFileHandle {
+	private final static Log log = PlatformUtil.getLog(BinaryMapFileHandle.class);
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final long length;
+	private ByteBuffer[] mappedWindows;
+	private int references = 0;
+	private boolean closed = false;
+
+	public BinaryMapFileHandle(File file) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.length = channel.size();
+		if (BinaryMapIndexReader.MEMORY_MAPPED_FILES) {
+			try {
+				mappedWindows = CodedInputStream.mapReadOnly(channel);
+			} catch (IOException e) {
+				log.warn("File " + file.getName() + " could not be memory mapped", e);
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	RandomAccessFile getRaf() {
+		return raf;
+	}
+
+	ByteBuffer[] getMappedWindows() {
+		return mappedWindows;
+	}
+
+	public boolean isMemoryMapped() {
+		return mappedWindows != null;
+	}
+
+	CodedInputStream newCodedInputStream() {
+		CodedInputStream cis;
+		if (mappedWindows != null) {
+			cis = CodedInputStream.newInstance(mappedWindows, length);
+		} else {
+			cis = CodedInputStream.newInstance(channel, length);
+		}
+		cis.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		return cis;
+	}
+
+	/**
+	 * Creates new reader over this handle with already read indexes of referenceToSameFile.
+	 * Reader should be closed, descriptor is closed with the last reader.
+	 */
+	public BinaryMapIndexReader createReader(BinaryMapIndexReader referenceToSameFile) throws IOException {
+		acquire();
+		return new BinaryMapIndexReader(this, referenceToSameFile);
+	}
+
+	private synchronized void acquire() throws IOException {
+		if (closed) {
+			throw new IOException("File " + file.getName() + " is already closed");
+		}
+		references++;
+	}
+
+	synchronized void release() throws IOException {
+		references--;
+		if (references <= 0 && !closed) {
+			closed = true;
+			mappedWindows = null;
+			raf.close();
+		}
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+}
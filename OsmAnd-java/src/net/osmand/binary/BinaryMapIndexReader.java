@@ -8,6 +8,7 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -16,6 +17,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -44,6 +46,7 @@ import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
 import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.binary.MapDataBlockCache.CachedBlock;
 import net.osmand.binary.OsmandOdb.MapDataBlock;
 import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
 import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapEncodingRule;
@@ -69,6 +72,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.WireFormat;
@@ -79,8 +83,15 @@ public class BinaryMapIndexReader {
 	public static final int SHIFT_COORDINATES = 5;
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	public static boolean READ_STATS = false;
+	// map whole file into memory instead of seeking & reading through RandomAccessFile
+	public static boolean MEMORY_MAPPED_FILES = false;
+	// max size of packed boxes of one map level stored in the index cache
+	public static int MAX_CACHED_TREES_SIZE = 128 << 10;
 	
 	private final RandomAccessFile raf;
+	private ByteBuffer[] mappedWindows;
+	// not null if descriptor is shared with other readers 
+	private final BinaryMapFileHandle fileHandle;
 	protected final File file;
 	/*private*/ int version;
 	/*private */long dateCreated;
@@ -94,6 +105,8 @@ public class BinaryMapIndexReader {
 	/*private */List<BinaryIndexPart> indexes = new ArrayList<BinaryIndexPart>();
 	
 	protected CodedInputStream codedIS;
+	// decodes objects of cached map data blocks (without bbox and type filtering)
+	private SearchRequest<BinaryMapDataObject> cachedBlockRequest;
 	
 	private final BinaryMapTransportReaderAdapter transportAdapter;
 	private final BinaryMapPoiReaderAdapter poiAdapter;
@@ -106,8 +119,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.fileHandle = null;
+		codedIS = createCodedInputStream(null);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -118,8 +131,8 @@ public class BinaryMapIndexReader {
 	/*private */BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.fileHandle = null;
+		codedIS = createCodedInputStream(null);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -132,8 +145,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.fileHandle = null;
+		codedIS = createCodedInputStream(referenceToSameFile.mappedWindows);
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
@@ -150,6 +163,51 @@ public class BinaryMapIndexReader {
 	}
 	
 	
+	/*private */BinaryMapIndexReader(BinaryMapFileHandle fileHandle, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this.raf = fileHandle.getRaf();
+		this.file = fileHandle.getFile();
+		this.fileHandle = fileHandle;
+		this.mappedWindows = fileHandle.getMappedWindows();
+		codedIS = fileHandle.newCodedInputStream();
+		version = referenceToSameFile.version;
+		dateCreated = referenceToSameFile.dateCreated;
+		transportAdapter = new BinaryMapTransportReaderAdapter(this);
+		addressAdapter = new BinaryMapAddressReaderAdapter(this);
+		poiAdapter = new BinaryMapPoiReaderAdapter(this);
+		routeAdapter = new BinaryMapRouteReaderAdapter(this);
+		mapIndexes = new ArrayList<BinaryMapIndexReader.MapIndex>(referenceToSameFile.mapIndexes);
+		poiIndexes = new ArrayList<PoiRegion>(referenceToSameFile.poiIndexes);
+		addressIndexes = new ArrayList<AddressRegion>(referenceToSameFile.addressIndexes);
+		transportIndexes = new ArrayList<TransportIndex>(referenceToSameFile.transportIndexes);
+		routingIndexes = new ArrayList<RouteRegion>(referenceToSameFile.routingIndexes);
+		indexes = new ArrayList<BinaryIndexPart>(referenceToSameFile.indexes);
+		basemap = referenceToSameFile.basemap;
+	}
+	
+	private CodedInputStream createCodedInputStream(ByteBuffer[] sameFileWindows) throws IOException {
+		CodedInputStream cis = null;
+		if (sameFileWindows != null) {
+			mappedWindows = sameFileWindows;
+		} else if (MEMORY_MAPPED_FILES) {
+			try {
+				mappedWindows = CodedInputStream.mapReadOnly(raf.getChannel());
+			} catch (IOException e) {
+				log.warn("File " + file.getName() + " could not be memory mapped", e);
+			}
+		}
+		if (mappedWindows != null) {
+			cis = CodedInputStream.newInstance(mappedWindows, raf.length());
+		} else {
+			cis = CodedInputStream.newInstance(raf);
+		}
+		cis.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		return cis;
+	}
+	
+	public boolean isMemoryMapped() {
+		return mappedWindows != null;
+	}
+	
 	public long getDateCreated() {
 		return dateCreated;
 	}
@@ -366,6 +424,10 @@ public class BinaryMapIndexReader {
 		return raf;
 	}
 	
+	public BinaryMapFileHandle getFileHandle() {
+		return fileHandle;
+	}
+	
 	public File getFile() {
 		return file;
 	}
@@ -795,6 +857,187 @@ public class BinaryMapIndexReader {
 	
 	
 	
+	/**
+	 * Reads the whole hierarchy of boxes of map level (without map data) and packs it 
+	 * to be stored in the index cache (see {@link CachedOsmandIndexes}). 
+	 * Box is packed as : left, right, top, bottom (sint32 deltas to parent box), own ocean flag (0 - not set, 1 - land, 2 - ocean),
+	 * absolute offset of map data block (0 - no data), number of child boxes and child boxes.
+	 * @return null if packed hierarchy is bigger than {@link #MAX_CACHED_TREES_SIZE}
+	 */
+	ByteString readMapLevelTreesToCache(MapIndex mapIndex, MapRoot level) throws IOException {
+		List<MapTree> trees = new ArrayList<MapTree>();
+		synchronized (mapIndex) {
+			codedIS.seek(level.filePointer);
+			int oldLimit = codedIS.pushLimit(level.length);
+			readMapLevelHierarchy(level, trees);
+			codedIS.popLimit(oldLimit);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+		cos.writeUInt32NoTag(trees.size());
+		for (MapTree tree : trees) {
+			writeMapTreeHierarchy(cos, tree, level);
+			cos.flush();
+			if (bos.size() > MAX_CACHED_TREES_SIZE) {
+				return null;
+			}
+		}
+		cos.flush();
+		return ByteString.copyFrom(bos.toByteArray());
+	}
+	
+	private void readMapLevelHierarchy(MapRoot root, List<MapTree> trees) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case MapRootLevel.BOXES_FIELD_NUMBER:
+				MapTree r = new MapTree();
+				r.length = readInt();
+				r.filePointer = codedIS.getTotalBytesRead();
+				int oldLimit = codedIS.pushLimit(r.length);
+				readMapTreeHierarchy(r, root);
+				trees.add(r);
+				codedIS.popLimit(oldLimit);
+				codedIS.seek(r.filePointer + r.length);
+				break;
+			case MapRootLevel.BLOCKS_FIELD_NUMBER:
+				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	private void readMapTreeHierarchy(MapTree current, MapTree parent) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case MapDataBox.BOTTOM_FIELD_NUMBER:
+				current.bottom = codedIS.readSInt32() + parent.bottom;
+				break;
+			case MapDataBox.LEFT_FIELD_NUMBER:
+				current.left = codedIS.readSInt32() + parent.left;
+				break;
+			case MapDataBox.RIGHT_FIELD_NUMBER:
+				current.right = codedIS.readSInt32() + parent.right;
+				break;
+			case MapDataBox.TOP_FIELD_NUMBER:
+				current.top = codedIS.readSInt32() + parent.top;
+				break;
+			case MapDataBox.OCEAN_FIELD_NUMBER:
+				current.ocean = codedIS.readBool() ? Boolean.TRUE : Boolean.FALSE;
+				break;
+			case MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER:
+				current.mapDataBlock = readInt() + current.filePointer;
+				break;
+			case MapDataBox.BOXES_FIELD_NUMBER:
+				// left, ... already initialized
+				MapTree child = new MapTree();
+				child.length = readInt();
+				child.filePointer = codedIS.getTotalBytesRead();
+				int oldLimit = codedIS.pushLimit(child.length);
+				readMapTreeHierarchy(child, current);
+				codedIS.popLimit(oldLimit);
+				codedIS.seek(child.filePointer + child.length);
+				if (current.subtrees == null) {
+					current.subtrees = new ArrayList<MapTree>();
+				}
+				current.subtrees.add(child);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	private void writeMapTreeHierarchy(CodedOutputStream cos, MapTree tree, MapTree parent) throws IOException {
+		cos.writeSInt32NoTag(tree.left - parent.left);
+		cos.writeSInt32NoTag(tree.right - parent.right);
+		cos.writeSInt32NoTag(tree.top - parent.top);
+		cos.writeSInt32NoTag(tree.bottom - parent.bottom);
+		cos.writeUInt32NoTag(tree.ocean == null ? 0 : (tree.ocean.booleanValue() ? 2 : 1));
+		cos.writeUInt64NoTag(tree.mapDataBlock);
+		int size = tree.subtrees == null ? 0 : tree.subtrees.size();
+		cos.writeUInt32NoTag(size);
+		for (int i = 0; i < size; i++) {
+			writeMapTreeHierarchy(cos, tree.subtrees.get(i), tree);
+		}
+	}
+	
+	private static List<MapTree> decodeMapLevelTrees(ByteString cachedTrees, MapRoot level) throws IOException {
+		CodedInputStream cis = cachedTrees.newCodedInput();
+		int size = cis.readRawVarint32();
+		List<MapTree> trees = new ArrayList<MapTree>(size);
+		for (int i = 0; i < size; i++) {
+			trees.add(decodeMapTreeHierarchy(cis, level));
+		}
+		return trees;
+	}
+	
+	private static MapTree decodeMapTreeHierarchy(CodedInputStream cis, MapTree parent) throws IOException {
+		MapTree tree = new MapTree();
+		tree.left = cis.readSInt32() + parent.left;
+		tree.right = cis.readSInt32() + parent.right;
+		tree.top = cis.readSInt32() + parent.top;
+		tree.bottom = cis.readSInt32() + parent.bottom;
+		int ocean = cis.readRawVarint32();
+		if (ocean != 0) {
+			tree.ocean = ocean == 2 ? Boolean.TRUE : Boolean.FALSE;
+		}
+		tree.mapDataBlock = cis.readRawVarint64();
+		int size = cis.readRawVarint32();
+		if (size > 0) {
+			tree.subtrees = new ArrayList<MapTree>(size);
+			for (int i = 0; i < size; i++) {
+				tree.subtrees.add(decodeMapTreeHierarchy(cis, tree));
+			}
+		}
+		return tree;
+	}
+	
+	// map index could be shared by readers of the same file (see BinaryMapFileHandle)
+	private void initMapEncodingRules(MapIndex mapIndex) throws IOException {
+		synchronized (mapIndex) {
+			if (mapIndex.encodingRules.isEmpty()) {
+				codedIS.seek(mapIndex.filePointer);
+				int oldLimit = codedIS.pushLimit(mapIndex.length);
+				readMapIndex(mapIndex, true);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+	}
+	
+	private List<MapTree> initMapLevelTrees(MapIndex mapIndex, MapRoot level) throws IOException {
+		synchronized (mapIndex) {
+			if (level.trees == null && level.cachedTrees != null) {
+				try {
+					level.trees = decodeMapLevelTrees(level.cachedTrees, level);
+					level.treesInMemory = true;
+				} catch (IOException e) {
+					log.warn("Cached boxes of map level are broken " + file.getName(), e);
+				}
+				level.cachedTrees = null;
+			}
+			if (level.trees == null) {
+				level.trees = new ArrayList<MapTree>();
+				codedIS.seek(level.filePointer);
+				int oldLimit = codedIS.pushLimit(level.length);
+				readMapLevel(level);
+				codedIS.popLimit(oldLimit);
+			}
+			return level.trees;
+		}
+	}
+	
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
@@ -803,12 +1046,7 @@ public class BinaryMapIndexReader {
 		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
 		for (MapIndex mapIndex : mapIndexes) {
 			// lazy initializing rules
-			if(mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				int oldLimit = codedIS.pushLimit(mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
-			}
+			initMapEncodingRules(mapIndex);
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
 					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
@@ -816,18 +1054,16 @@ public class BinaryMapIndexReader {
 					}
 					
 					// lazy initializing trees
-					if(index.trees == null){
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						int oldLimit = codedIS.pushLimit(index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
-					}
+					List<MapTree> trees = initMapLevelTrees(mapIndex, index);
 					
-					for (MapTree tree : index.trees) {
+					for (MapTree tree : trees) {
 						if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
 							continue;
 						}
+						if (index.treesInMemory) {
+							searchMapTreeBoundsInMemory(tree, req, foundSubtrees);
+							continue;
+						}
 						codedIS.seek(tree.filePointer);
 						int oldLimit = codedIS.pushLimit(tree.length);
 						searchMapTreeBounds(tree, index, req, foundSubtrees);
@@ -842,11 +1078,7 @@ public class BinaryMapIndexReader {
 					});
 					for(MapTree tree : foundSubtrees) {
 						if(!req.isCancelled()){
-							codedIS.seek(tree.mapDataBlock);
-							int length = codedIS.readRawVarint32();
-							int oldLimit = codedIS.pushLimit(length);
-							readMapDataBlocks(req, tree, mapIndex);
-							codedIS.popLimit(oldLimit);
+							readMapDataBlock(req, tree, mapIndex);
 						}
 					}
 					foundSubtrees.clear();
@@ -869,12 +1101,7 @@ public class BinaryMapIndexReader {
 		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
 		
 		// lazy initializing rules
-		if(mapIndex.encodingRules.isEmpty()) {
-			codedIS.seek(mapIndex.filePointer);
-			int oldLimit = codedIS.pushLimit(mapIndex.length);
-			readMapIndex(mapIndex, true);
-			codedIS.popLimit(oldLimit);
-		}
+		initMapEncodingRules(mapIndex);
 		
 		for (MapRoot level : mapIndex.getRoots()) {
 			if ((level.minZoom <= req.zoom && level.maxZoom >= req.zoom) || req.zoom == -1) {
@@ -883,18 +1110,16 @@ public class BinaryMapIndexReader {
 				}
 				
 				// lazy initializing trees
-				if(level.trees == null){
-					level.trees = new ArrayList<MapTree>();
-					codedIS.seek(level.filePointer);
-					int oldLimit = codedIS.pushLimit(level.length);
-					readMapLevel(level);
-					codedIS.popLimit(oldLimit);
-				}
+				List<MapTree> trees = initMapLevelTrees(mapIndex, level);
 				
-				for (MapTree tree : level.trees) {
+				for (MapTree tree : trees) {
 					if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
 						continue;
 					}
+					if (level.treesInMemory) {
+						searchMapTreeBoundsInMemory(tree, req, foundSubtrees);
+						continue;
+					}
 					codedIS.seek(tree.filePointer);
 					int oldLimit = codedIS.pushLimit(tree.length);
 					searchMapTreeBounds(tree, level, req, foundSubtrees);
@@ -909,11 +1134,7 @@ public class BinaryMapIndexReader {
 				});
 				for(MapTree tree : foundSubtrees) {
 					if(!req.isCancelled()){
-						codedIS.seek(tree.mapDataBlock);
-						int length = codedIS.readRawVarint32();
-						int oldLimit = codedIS.pushLimit(length);
-						readMapDataBlocks(req, tree, mapIndex);
-						codedIS.popLimit(oldLimit);
+						readMapDataBlock(req, tree, mapIndex);
 					}
 				}
 				foundSubtrees.clear();
@@ -929,8 +1150,186 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 	
+	/**
+	 * Passes found map objects to the visitor as soon as they are decoded instead of collecting search results,
+	 * so the whole file could be processed in constant memory. Block cache of the request is not used.
+	 */
+	public void visitMapIndex(SearchRequest<BinaryMapDataObject> req, MapDataObjectVisitor visitor) throws IOException {
+		req.visitor = visitor;
+		try {
+			searchMapIndex(req);
+		} finally {
+			req.visitor = null;
+		}
+	}
+	
+	public void visitMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex mapIndex, MapDataObjectVisitor visitor)
+			throws IOException {
+		req.visitor = visitor;
+		try {
+			searchMapIndex(req, mapIndex);
+		} finally {
+			req.visitor = null;
+		}
+	}
+	
+	private void readMapDataBlock(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex mapIndex) throws IOException {
+		MapDataBlockCache cache = req.blockCache;
+		if (cache == null || READ_STATS || req.visitor != null) {
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			int oldLimit = codedIS.pushLimit(length);
+			readMapDataBlocks(req, tree, mapIndex);
+			codedIS.popLimit(oldLimit);
+			return;
+		}
+		CachedBlock block = cache.get(mapIndex, tree.mapDataBlock);
+		if (block == null) {
+			// bounds & types of all objects, so block could be reused by any request
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			int oldLimit = codedIS.pushLimit(length);
+			block = scanMapDataBlock(tree);
+			codedIS.popLimit(oldLimit);
+			cache.put(mapIndex, tree.mapDataBlock, block);
+		}
+		for (int i = 0; i < block.getObjectsCount(); i++) {
+			if (req.isCancelled()) {
+				return;
+			}
+			req.numberOfVisitedObjects++;
+			if (!block.intersects(i, req.left, req.top, req.right, req.bottom)) {
+				continue;
+			}
+			if (req.searchFilter != null) {
+				req.cacheTypes.resetQuick();
+				int from = block.typesOffsets[i];
+				req.cacheTypes.add(block.types, from, block.typesOffsets[i + 1] - from);
+				if (!req.searchFilter.accept(req.cacheTypes, mapIndex)) {
+					continue;
+				}
+			}
+			req.numberOfAcceptedObjects++;
+			req.publish(getCachedObject(cache, block, i, tree, mapIndex));
+		}
+	}
+	
+	private BinaryMapDataObject getCachedObject(MapDataBlockCache cache, CachedBlock block, int i, MapTree tree,
+			MapIndex mapIndex) throws IOException {
+		BinaryMapDataObject obj;
+		synchronized (block) {
+			obj = block.objects[i];
+			if (obj != null) {
+				return obj;
+			}
+			if (cachedBlockRequest == null) {
+				cachedBlockRequest = buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 0, null);
+			}
+			codedIS.seek(block.positions[2 * i]);
+			int oldLimit = codedIS.pushLimit(block.positions[2 * i + 1]);
+			obj = readMapDataObject(tree, cachedBlockRequest, mapIndex);
+			codedIS.popLimit(oldLimit);
+			obj.setId(obj.getId() + block.baseId);
+			if (obj.namesIndexes != null) {
+				obj.namesTable = block.stringTable;
+			}
+			block.objects[i] = obj;
+		}
+		cache.objectDecoded(block, obj);
+		return obj;
+	}
+	
+	private CachedBlock scanMapDataBlock(MapTree tree) throws IOException {
+		long baseId = 0;
+		MapStringTable stringTable = null;
+		TIntArrayList positions = new TIntArrayList();
+		TIntArrayList bounds = new TIntArrayList();
+		TIntArrayList types = new TIntArrayList();
+		TIntArrayList typesOffsets = new TIntArrayList();
+		typesOffsets.add(0);
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return new CachedBlock(baseId, stringTable, positions.toArray(), bounds.toArray(), types.toArray(),
+						typesOffsets.toArray());
+			case MapDataBlock.BASEID_FIELD_NUMBER:
+				baseId = codedIS.readUInt64();
+				break;
+			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
+				int length = codedIS.readRawVarint32();
+				positions.add(codedIS.getTotalBytesRead());
+				positions.add(length);
+				int oldLimit = codedIS.pushLimit(length);
+				scanMapDataObject(tree, bounds, types);
+				codedIS.popLimit(oldLimit);
+				typesOffsets.add(types.size());
+				break;
+			case MapDataBlock.STRINGTABLE_FIELD_NUMBER:
+				stringTable = new MapStringTable(codedIS.readRawBytes(codedIS.readRawVarint32()));
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Reads bounds and types of map object without decoding it
+	 */
+	private void scanMapDataObject(MapTree tree, TIntArrayList bounds, TIntArrayList types) throws IOException {
+		int tag = WireFormat.getTagFieldNumber(codedIS.readTag());
+		if (OsmandOdb.MapData.AREACOORDINATES_FIELD_NUMBER != tag && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
+			throw new IllegalArgumentException();
+		}
+		int old = codedIS.pushLimit(codedIS.readRawVarint32());
+		int px = tree.left & MASK_TO_READ;
+		int py = tree.top & MASK_TO_READ;
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		while (codedIS.getBytesUntilLimit() > 0) {
+			int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
+			int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
+			left = Math.min(left, x);
+			right = Math.max(right, x);
+			top = Math.min(top, y);
+			bottom = Math.max(bottom, y);
+			px = x;
+			py = y;
+		}
+		codedIS.popLimit(old);
+		bounds.add(left);
+		bounds.add(top);
+		bounds.add(right);
+		bounds.add(bottom);
+		while (true) {
+			int t = codedIS.readTag();
+			tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				return;
+			} else if (tag == OsmandOdb.MapData.TYPES_FIELD_NUMBER) {
+				old = codedIS.pushLimit(codedIS.readRawVarint32());
+				while (codedIS.getBytesUntilLimit() > 0) {
+					types.add(codedIS.readRawVarint32());
+				}
+				codedIS.popLimit(old);
+			} else {
+				skipUnknownField(t);
+			}
+		}
+	}
+	
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
-		List<BinaryMapDataObject> tempResults = null;
+		if (req.visitor != null && !READ_STATS) {
+			visitMapDataBlocks(req, tree, root);
+			return;
+		}
+		List<BinaryMapDataObject> tempResults = req.cacheBlockObjects;
+		tempResults.clear();
 		long baseId  = 0;
 		while (true) {
 			if (req.isCancelled()) {
@@ -940,11 +1339,10 @@ public class BinaryMapIndexReader {
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				if(tempResults != null) {
-					for(BinaryMapDataObject obj : tempResults) {
-						req.publish(obj);
-					}
+				for (int i = 0; i < tempResults.size(); i++) {
+					req.publish(tempResults.get(i));
 				}
+				tempResults.clear();
 				return;
 			case MapDataBlock.BASEID_FIELD_NUMBER:
 				baseId = codedIS.readUInt64();
@@ -965,9 +1363,6 @@ public class BinaryMapIndexReader {
 					if (READ_STATS) {
 						req.publish(mapObject);
 					} 
-					if (tempResults == null) {
-						tempResults = new ArrayList<BinaryMapDataObject>();
-					}
 					tempResults.add(mapObject);
 				}
 				codedIS.popLimit(oldLimit);
@@ -979,15 +1374,12 @@ public class BinaryMapIndexReader {
 					req.stat.addBlockHeader(MapDataBlock.STRINGTABLE_FIELD_NUMBER, length);
 					req.stat.lastBlockStringTableSize += length;
 				}
-				if (tempResults != null) {
-					List<String> stringTable = readStringTable();
+				if (!tempResults.isEmpty()) {
+					MapStringTable stringTable = new MapStringTable(codedIS.readRawBytes(length));
 					for (int i = 0; i < tempResults.size(); i++) {
 						BinaryMapDataObject rs = tempResults.get(i);
-						if (rs.objectNames != null) {
-							int[] keys = rs.objectNames.keys();
-							for (int j = 0; j < keys.length; j++) {
-								rs.objectNames.put(keys[j], stringTable.get(rs.objectNames.get(keys[j]).charAt(0)));
-							}
+						if (rs.namesIndexes != null) {
+							rs.namesTable = stringTable;
 						}
 					}
 				} else {
@@ -1003,6 +1395,70 @@ public class BinaryMapIndexReader {
 
 	}
 	
+	// string table is at the end of block, so it is read first and then objects are decoded & passed one by one
+	private void visitMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
+		int start = codedIS.getTotalBytesRead();
+		long baseId = 0;
+		MapStringTable stringTable = null;
+		boolean hasObjects = false;
+		boolean loop = true;
+		while (loop) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				loop = false;
+				break;
+			case MapDataBlock.BASEID_FIELD_NUMBER:
+				baseId = codedIS.readUInt64();
+				break;
+			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
+				hasObjects = true;
+				codedIS.skipRawBytes(codedIS.readRawVarint32());
+				break;
+			case MapDataBlock.STRINGTABLE_FIELD_NUMBER:
+				stringTable = new MapStringTable(codedIS.readRawBytes(codedIS.readRawVarint32()));
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+		if (!hasObjects) {
+			return;
+		}
+		codedIS.seek(start);
+		while (true) {
+			if (req.isCancelled()) {
+				return;
+			}
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
+				int length = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(length);
+				BinaryMapDataObject mapObject = readMapDataObject(tree, req, root);
+				codedIS.popLimit(oldLimit);
+				if (mapObject != null) {
+					mapObject.setId(mapObject.getId() + baseId);
+					if (mapObject.namesIndexes != null) {
+						mapObject.namesTable = stringTable;
+					}
+					if (!req.visitor.visit(mapObject)) {
+						req.setInterrupted(true);
+					}
+				}
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
 	protected void searchMapTreeBounds(MapTree current, MapTree parent,
 			SearchRequest<BinaryMapDataObject> req, List<MapTree> foundSubtrees) throws IOException {
 		int init = 0;
@@ -1074,6 +1530,40 @@ public class BinaryMapIndexReader {
 		}
 	}
 	
+	// same as searchMapTreeBounds but over boxes restored from the index cache, nodes are shared and not modified
+	private void searchMapTreeBoundsInMemory(MapTree current, SearchRequest<BinaryMapDataObject> req,
+			List<MapTree> foundSubtrees) {
+		req.numberOfReadSubtrees++;
+		if (req.isCancelled()) {
+			return;
+		}
+		if (current.right < req.left || current.left > req.right || current.top > req.bottom || current.bottom < req.top) {
+			return;
+		}
+		req.numberOfAcceptedSubtrees++;
+		if (current.ocean != null) {
+			req.publishOceanTile(current.ocean);
+		}
+		if (current.mapDataBlock != 0) {
+			foundSubtrees.add(current);
+		}
+		if (current.subtrees != null) {
+			for (MapTree child : current.subtrees) {
+				searchMapTreeBoundsInMemory(child, req, foundSubtrees);
+			}
+		}
+	}
+	
+	private static final int[] EMPTY_TYPES = new int[0];
+	private static final int[][] EMPTY_POLYGONS = new int[0][];
+	
+	private static int[] toArray(TIntArrayList l) {
+		if (l.isEmpty()) {
+			return EMPTY_TYPES;
+		}
+		return l.toArray();
+	}
+	
 	private int MASK_TO_READ = ~((1 << SHIFT_COORDINATES) - 1);
 	private BinaryMapDataObject readMapDataObject(MapTree tree , SearchRequest<BinaryMapDataObject> req, 
 			MapIndex root) throws IOException {
@@ -1082,7 +1572,8 @@ public class BinaryMapIndexReader {
 		if(!area && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
 			throw new IllegalArgumentException();
 		}
-		req.cacheCoordinates.clear();
+		// clear() reallocates the buffer
+		req.cacheCoordinates.resetQuick();
 		int size = codedIS.readRawVarint32();
 		if(READ_STATS) {
 			req.stat.lastObjectCoordinates += size;
@@ -1127,12 +1618,10 @@ public class BinaryMapIndexReader {
 			return null;
 		}
 		
-		// read 
-		
-		List<TIntArrayList> innercoordinates = null;
-		TIntArrayList additionalTypes = null;
-		TIntObjectHashMap<String> stringNames = null;
-		TIntArrayList stringOrder = null;
+		// read into request buffers, arrays are created only for accepted objects
+		int innerPolygons = 0;
+		boolean hasAdditionalTypes = false;
+		boolean hasNames = false;
 		long id = 0;
 		
 		boolean loop = true; 
@@ -1144,11 +1633,11 @@ public class BinaryMapIndexReader {
 				loop = false;
 				break;
 			case OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER:
-				if (innercoordinates == null) {
-					innercoordinates = new ArrayList<TIntArrayList>();
+				if (req.cacheInnerCoordinates.size() == innerPolygons) {
+					req.cacheInnerCoordinates.add(new TIntArrayList());
 				}
-				TIntArrayList polygon = new TIntArrayList();
-				innercoordinates.add(polygon);
+				TIntArrayList polygon = req.cacheInnerCoordinates.get(innerPolygons++);
+				polygon.resetQuick();
 				px = tree.left & MASK_TO_READ;
 				py = tree.top & MASK_TO_READ;
 				size = codedIS.readRawVarint32();
@@ -1169,7 +1658,8 @@ public class BinaryMapIndexReader {
 				codedIS.popLimit(old);
 				break;
 			case OsmandOdb.MapData.ADDITIONALTYPES_FIELD_NUMBER:
-				additionalTypes = new TIntArrayList();
+				hasAdditionalTypes = true;
+				req.cacheAdditionalTypes.resetQuick();
 				int sizeL = codedIS.readRawVarint32();
 				old = codedIS.pushLimit(sizeL);
 				if(READ_STATS) {
@@ -1178,13 +1668,13 @@ public class BinaryMapIndexReader {
 							sizeL);
 				}
 				while (codedIS.getBytesUntilLimit() > 0) {
-					additionalTypes.add(codedIS.readRawVarint32());
+					req.cacheAdditionalTypes.add(codedIS.readRawVarint32());
 				}
 				codedIS.popLimit(old);
 				
 				break;
 			case OsmandOdb.MapData.TYPES_FIELD_NUMBER:
-				req.cacheTypes.clear();
+				req.cacheTypes.resetQuick();
 				sizeL = codedIS.readRawVarint32();
 				old = codedIS.pushLimit(sizeL);
 				if(READ_STATS) {
@@ -1214,15 +1704,15 @@ public class BinaryMapIndexReader {
 				}
 				break;
 			case OsmandOdb.MapData.STRINGNAMES_FIELD_NUMBER:
-				stringNames = new TIntObjectHashMap<String>();
-				stringOrder = new TIntArrayList();
+				hasNames = true;
+				req.cacheNames.resetQuick();
 				sizeL = codedIS.readRawVarint32();
 				old = codedIS.pushLimit(sizeL);
 				while (codedIS.getBytesUntilLimit() > 0) {
 					int stag = codedIS.readRawVarint32();
 					int pId = codedIS.readRawVarint32();
-					stringNames.put(stag, ((char)pId)+"");
-					stringOrder.add(stag);
+					req.cacheNames.add(stag);
+					req.cacheNames.add(pId);
 				}
 				codedIS.popLimit(old);
 				if(READ_STATS) {
@@ -1237,22 +1727,31 @@ public class BinaryMapIndexReader {
 		}
 		BinaryMapDataObject dataObject = new BinaryMapDataObject();
 		dataObject.area = area;
-		dataObject.coordinates = req.cacheCoordinates.toArray();
-		dataObject.objectNames = stringNames;
-		dataObject.namesOrder = stringOrder;
-		if (innercoordinates == null) {
-			dataObject.polygonInnerCoordinates = new int[0][0];
+		dataObject.coordinates = toArray(req.cacheCoordinates);
+		if (hasNames) {
+			// names are resolved with string table of the block on demand
+			int cnt = req.cacheNames.size() / 2;
+			int[] indexes = new int[cnt];
+			dataObject.namesOrder = new TIntArrayList(cnt);
+			for (int i = 0; i < cnt; i++) {
+				dataObject.namesOrder.add(req.cacheNames.getQuick(2 * i));
+				indexes[i] = req.cacheNames.getQuick(2 * i + 1);
+			}
+			dataObject.namesIndexes = indexes;
+		}
+		if (innerPolygons == 0) {
+			dataObject.polygonInnerCoordinates = EMPTY_POLYGONS;
 		} else {
-			dataObject.polygonInnerCoordinates = new int[innercoordinates.size()][];
-			for (int i = 0; i < innercoordinates.size(); i++) {
-				dataObject.polygonInnerCoordinates[i] = innercoordinates.get(i).toArray();
+			dataObject.polygonInnerCoordinates = new int[innerPolygons][];
+			for (int i = 0; i < innerPolygons; i++) {
+				dataObject.polygonInnerCoordinates[i] = toArray(req.cacheInnerCoordinates.get(i));
 			}
 		}
-		dataObject.types = req.cacheTypes.toArray();
-		if (additionalTypes != null) {
-			dataObject.additionalTypes = additionalTypes.toArray();
+		dataObject.types = toArray(req.cacheTypes);
+		if (hasAdditionalTypes) {
+			dataObject.additionalTypes = toArray(req.cacheAdditionalTypes);
 		} else {
-			dataObject.additionalTypes = new int[0];
+			dataObject.additionalTypes = EMPTY_TYPES;
 		}
 		dataObject.id = id;
 		dataObject.area = area;
@@ -1533,8 +2032,13 @@ public class BinaryMapIndexReader {
 	
 	public void close() throws IOException{
 		if(codedIS != null){
-			raf.close();
+			if (fileHandle != null) {
+				fileHandle.release();
+			} else {
+				raf.close();
+			}
 			codedIS = null;
+			mappedWindows = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
 			transportIndexes.clear();
@@ -1547,6 +2051,18 @@ public class BinaryMapIndexReader {
 		
 	}
 	
+	/**
+	 * Receives map objects one by one as soon as they are decoded (see {@link BinaryMapIndexReader#visitMapIndex}).
+	 */
+	public static interface MapDataObjectVisitor {
+		
+		/**
+		 * @return false to stop the search (request becomes interrupted)
+		 */
+		public boolean visit(BinaryMapDataObject object);
+		
+	}
+	
 	public static interface SearchPoiTypeFilter {
 		
 		public boolean accept(PoiCategory type, String subcategory);
@@ -1623,9 +2139,20 @@ public class BinaryMapIndexReader {
 		// internal read information
 		TIntObjectHashMap<String> stringTable = null;
 		
+		// shared cache of decoded map blocks
+		MapDataBlockCache blockCache = null;
+		
+		// objects are passed to visitor instead of search results
+		MapDataObjectVisitor visitor = null;
+		
 		// cache information
 		TIntArrayList cacheCoordinates = new TIntArrayList();
 		TIntArrayList cacheTypes = new TIntArrayList();
+		TIntArrayList cacheAdditionalTypes = new TIntArrayList();
+		// pairs of tag & string table index
+		TIntArrayList cacheNames = new TIntArrayList();
+		List<TIntArrayList> cacheInnerCoordinates = new ArrayList<TIntArrayList>();
+		List<BinaryMapDataObject> cacheBlockObjects = new ArrayList<BinaryMapDataObject>();
 		
 		MapObjectStat stat = new MapObjectStat();
 		
@@ -1636,7 +2163,7 @@ public class BinaryMapIndexReader {
 		int numberOfAcceptedObjects = 0;
 		int numberOfReadSubtrees = 0;
 		int numberOfAcceptedSubtrees = 0;
-		boolean interrupted = false;
+		volatile boolean interrupted = false;
 		
 		
 		protected SearchRequest(){
@@ -1722,6 +2249,14 @@ public class BinaryMapIndexReader {
 			return zoom;
 		}
 		
+		public MapDataBlockCache getMapDataBlockCache() {
+			return blockCache;
+		}
+		
+		public void setMapDataBlockCache(MapDataBlockCache blockCache) {
+			this.blockCache = blockCache;
+		}
+		
 		public void clearSearchResults(){
 			// recreate whole list to allow GC collect old data 
 			searchResults = new ArrayList<T>();
@@ -1905,6 +2440,9 @@ public class BinaryMapIndexReader {
 		}
 		
 		private List<MapTree> trees = null;
+		// packed boxes from the index cache, decoded with the first search
+		ByteString cachedTrees = null;
+		boolean treesInMemory = false;
 	}
 	
 	private static class MapTree {
@@ -1913,6 +2451,8 @@ public class BinaryMapIndexReader {
 		
 		long mapDataBlock = 0;
 		Boolean ocean = null;
+		// only for boxes restored from the index cache
+		List<MapTree> subtrees = null;
 		
 		int left = 0;
 		int right = 0;
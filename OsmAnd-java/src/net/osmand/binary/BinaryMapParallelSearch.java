@@ -0,0 +1,221 @@
+package net.osmand.binary;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Searches map sections of many files at once on a bounded pool of threads.
+ * Every file is searched by one thread with its own copy of request, so reader must not be used
+ * by anybody else during the search. Results are merged in the order of given files.
+ */
+public class BinaryMapParallelSearch {
+	private final static Log log = PlatformUtil.getLog(BinaryMapParallelSearch.class);
+
+	private final ExecutorService executor;
+	private final int threads;
+
+	/**
+	 * Search filters are usually not thread safe (they keep rendering request state),
+	 * so factory creates a filter per searched file.
+	 */
+	public static interface SearchFilterFactory {
+
+		public SearchFilter createSearchFilter();
+
+	}
+
+	public static class FileSearchResult {
+		private final BinaryMapIndexReader reader;
+		private List<BinaryMapDataObject> objects = new ArrayList<BinaryMapDataObject>();
+		private boolean ocean;
+		private boolean land;
+		private IOException error;
+
+		public FileSearchResult(BinaryMapIndexReader reader) {
+			this.reader = reader;
+		}
+
+		public BinaryMapIndexReader getReader() {
+			return reader;
+		}
+
+		public List<BinaryMapDataObject> getObjects() {
+			return objects;
+		}
+
+		public boolean isOcean() {
+			return ocean;
+		}
+
+		public boolean isLand() {
+			return land;
+		}
+
+		public IOException getError() {
+			return error;
+		}
+	}
+
+	public BinaryMapParallelSearch(int threads) {
+		this.threads = Math.max(1, threads);
+		this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			private int cnt = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Map search " + (cnt++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public BinaryMapParallelSearch() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Searches every file and returns results per file (in the order of files).
+	 * Request is used only as template : bbox, zoom, filter and cancellation, results are not published into it.
+	 * Failure of one file is reported by its result ({@link FileSearchResult#getError()}).
+	 */
+	public List<FileSearchResult> search(Collection<BinaryMapIndexReader> files, final SearchRequest<BinaryMapDataObject> req,
+			final SearchFilterFactory filterFactory) throws IOException {
+		List<FileSearchResult> results = new ArrayList<FileSearchResult>();
+		List<Future<FileSearchResult>> futures = new ArrayList<Future<FileSearchResult>>();
+		List<BinaryMapIndexReader> searched = new ArrayList<BinaryMapIndexReader>();
+		for (final BinaryMapIndexReader reader : files) {
+			if (req.isCancelled()) {
+				break;
+			}
+			if (!reader.containsMapData(req.left, req.top, req.right, req.bottom, req.zoom)) {
+				continue;
+			}
+			searched.add(reader);
+			futures.add(executor.submit(new Callable<FileSearchResult>() {
+				@Override
+				public FileSearchResult call() throws Exception {
+					return searchFile(reader, req, filterFactory);
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (InterruptedException e) {
+				// running searches are stopped by cancelled request, interrupting them would close shared file channel
+				req.setInterrupted(true);
+				for (int j = i; j < futures.size(); j++) {
+					futures.get(j).cancel(false);
+				}
+				Thread.currentThread().interrupt();
+				throw new IOException("Search was interrupted");
+			} catch (ExecutionException e) {
+				// broken file doesn't fail search of other files (as sequential search)
+				Throwable cause = e.getCause();
+				FileSearchResult r = new FileSearchResult(searched.get(i));
+				if (cause instanceof IOException) {
+					r.error = (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					r.error = new IOException("Search failed : " + cause.getMessage(), cause);
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				} else {
+					throw new IllegalStateException(cause);
+				}
+				results.add(r);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Searches every file and publishes found objects into request skipping objects with the same id
+	 * (objects without id are always published).
+	 */
+	public List<BinaryMapDataObject> searchMapIndex(Collection<BinaryMapIndexReader> files,
+			SearchRequest<BinaryMapDataObject> req, SearchFilterFactory filterFactory) throws IOException {
+		long now = System.currentTimeMillis();
+		List<FileSearchResult> results = search(files, req, filterFactory);
+		TLongHashSet ids = new TLongHashSet();
+		int duplicates = 0;
+		for (FileSearchResult r : results) {
+			if (r.error != null) {
+				log.debug("Search failed " + r.reader.getRegionNames(), r.error); //$NON-NLS-1$
+				continue;
+			}
+			if (r.ocean) {
+				req.publishOceanTile(true);
+			}
+			if (r.land) {
+				req.publishOceanTile(false);
+			}
+			for (BinaryMapDataObject o : r.objects) {
+				if (req.isCancelled()) {
+					return req.getSearchResults();
+				}
+				if (o.getId() > 0 && !ids.add(o.getId())) {
+					duplicates++;
+					continue;
+				}
+				req.publish(o);
+			}
+		}
+		if (req.log) {
+			log.info("Parallel search in " + results.size() + " files is done " + (System.currentTimeMillis() - now) + " ms. Found "
+					+ req.getSearchResults().size() + " objects, skipped " + duplicates + " duplicates."); //$NON-NLS-1$
+		}
+		return req.getSearchResults();
+	}
+
+	private FileSearchResult searchFile(BinaryMapIndexReader reader, final SearchRequest<BinaryMapDataObject> req,
+			SearchFilterFactory filterFactory) throws IOException {
+		FileSearchResult result = new FileSearchResult(reader);
+		SearchFilter filter = filterFactory == null ? req.searchFilter : filterFactory.createSearchFilter();
+		SearchRequest<BinaryMapDataObject> fileReq = BinaryMapIndexReader.buildSearchRequest(req.left, req.right, req.top,
+				req.bottom, req.zoom, filter, new ResultMatcher<BinaryMapDataObject>() {
+
+					@Override
+					public boolean publish(BinaryMapDataObject object) {
+						return true;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return req.isCancelled();
+					}
+				});
+		fileReq.log = false;
+		fileReq.blockCache = req.blockCache;
+		reader.searchMapIndex(fileReq);
+		result.objects = fileReq.getSearchResults();
+		result.ocean = fileReq.isOcean();
+		result.land = fileReq.isLand();
+		return result;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -751,11 +751,14 @@ public class BinaryMapRouteReaderAdapter {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException, InvalidProtocolBufferException {
-		if (routeReg.routeEncodingRules.isEmpty()) {
-			codedIS.seek(routeReg.filePointer);
-			int oldLimit = codedIS.pushLimit(routeReg.length);
-			readRouteIndex(routeReg);
-			codedIS.popLimit(oldLimit);
+		// region could be shared by readers of the same file (see BinaryMapFileHandle)
+		synchronized (routeReg) {
+			if (routeReg.routeEncodingRules.isEmpty()) {
+				codedIS.seek(routeReg.filePointer);
+				int oldLimit = codedIS.pushLimit(routeReg.length);
+				readRouteIndex(routeReg);
+				codedIS.popLimit(oldLimit);
+			}
 		}
 	}
 
@@ -763,16 +766,18 @@ public class BinaryMapRouteReaderAdapter {
 	public List<RouteDataObject> loadRouteRegionData(RouteSubregion rs) throws IOException {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<TLongArrayList> restrictionMap = new TLongObjectHashMap<TLongArrayList>();
-		if (rs.dataObjects == null) {
-			codedIS.seek(rs.filePointer + rs.shiftToData);
-			int limit = codedIS.readRawVarint32();
-			int oldLimit = codedIS.pushLimit(limit);
-			readRouteTreeData(rs, idMap, restrictionMap);
-			codedIS.popLimit(oldLimit);
-		}
-		List<RouteDataObject> res = rs.dataObjects;
-		rs.dataObjects = null;
-		return res;
+		synchronized (rs) {
+			if (rs.dataObjects == null) {
+				codedIS.seek(rs.filePointer + rs.shiftToData);
+				int limit = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(limit);
+				readRouteTreeData(rs, idMap, restrictionMap);
+				codedIS.popLimit(oldLimit);
+			}
+			List<RouteDataObject> res = rs.dataObjects;
+			rs.dataObjects = null;
+			return res;
+		}
 	}
 	
 	public void loadRouteRegionData(List<RouteSubregion> toLoad, ResultMatcher<RouteDataObject> matcher) throws IOException {
@@ -787,20 +792,24 @@ public class BinaryMapRouteReaderAdapter {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<TLongArrayList> restrictionMap = new TLongObjectHashMap<TLongArrayList>();
 		for (RouteSubregion rs : toLoad) {
-			if (rs.dataObjects == null) {
-				codedIS.seek(rs.filePointer + rs.shiftToData);
-				int limit = codedIS.readRawVarint32();
-				int oldLimit = codedIS.pushLimit(limit);
-				readRouteTreeData(rs, idMap, restrictionMap);
-				codedIS.popLimit(oldLimit);
+			List<RouteDataObject> dataObjects;
+			synchronized (rs) {
+				if (rs.dataObjects == null) {
+					codedIS.seek(rs.filePointer + rs.shiftToData);
+					int limit = codedIS.readRawVarint32();
+					int oldLimit = codedIS.pushLimit(limit);
+					readRouteTreeData(rs, idMap, restrictionMap);
+					codedIS.popLimit(oldLimit);
+				}
+				dataObjects = rs.dataObjects;
+				// free objects
+				rs.dataObjects = null;
 			}
-			for (RouteDataObject ro : rs.dataObjects) {
+			for (RouteDataObject ro : dataObjects) {
 				if (ro != null) {
 					matcher.publish(ro);
 				}
 			}
-			// free objects
-			rs.dataObjects = null;
 		}
 	}
 
@@ -808,11 +817,13 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
+				synchronized (rs) {
+					if (rs.subregions == null) {
+						codedIS.seek(rs.filePointer);
+						int old = codedIS.pushLimit(rs.length);
+						readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
+						codedIS.popLimit(old);
+					}
 				}
 				searchRouteRegionTree(req, rs.subregions, toLoad);
 
@@ -829,11 +840,13 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
+				synchronized (rs) {
+					if (rs.subregions == null) {
+						codedIS.seek(rs.filePointer);
+						int old = codedIS.pushLimit(rs.length);
+						readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
+						codedIS.popLimit(old);
+					}
 				}
 				searchRouteRegionTree(req, rs.subregions, toLoad);
 
@@ -30,6 +30,8 @@ import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
 
+import com.google.protobuf.ByteString;
+
 public class CachedOsmandIndexes {
 	
 	private OsmAndStoredIndex storedIndex;
@@ -37,21 +39,10 @@ public class CachedOsmandIndexes {
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = true;
 	
-	public static final int VERSION = 2;
+	// 3 - map levels keep box hierarchy (caches of older versions are rebuilt)
+	public static final int VERSION = 3;
 
 	public void addToCache(BinaryMapIndexReader reader, File f) {
-		hasChanged = true;
-		if(storedIndexBuilder == null) {
-			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
-			storedIndexBuilder.setVersion(VERSION);
-			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
-			if(storedIndex != null) {
-				for(FileIndex ex : storedIndex.getFileIndexList()) {
-					storedIndexBuilder.addFileIndex(ex);
-				}
-			}
-		}
-		
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
 		fileIndex.setDateModified(d== 0?f.lastModified() : d);
@@ -75,6 +66,14 @@ public class CachedOsmandIndexes {
 				lev.setBottom(mr.bottom);
 				lev.setMinzoom(mr.minZoom);
 				lev.setMaxzoom(mr.maxZoom);
+				try {
+					ByteString boxes = reader.readMapLevelTreesToCache(index, mr);
+					if (boxes != null) {
+						lev.setBoxes(boxes);
+					}
+				} catch (IOException e) {
+					log.error("Boxes of map level could not be read " + f.getName(), e);
+				}
 				map.addLevels(lev);
 			}
 			fileIndex.addMapIndex(map);
@@ -152,8 +151,21 @@ public class CachedOsmandIndexes {
 			fileIndex.addRoutingIndex(routing);
 		}
 		
-		storedIndexBuilder.addFileIndex(fileIndex);
-		
+		// files could be indexed concurrently
+		synchronized (this) {
+			hasChanged = true;
+			if (storedIndexBuilder == null) {
+				storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
+				storedIndexBuilder.setVersion(VERSION);
+				storedIndexBuilder.setDateCreated(System.currentTimeMillis());
+				if (storedIndex != null) {
+					for (FileIndex ex : storedIndex.getFileIndexList()) {
+						storedIndexBuilder.addFileIndex(ex);
+					}
+				}
+			}
+			storedIndexBuilder.addFileIndex(fileIndex);
+		}
 	}
 
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
@@ -217,6 +229,9 @@ public class CachedOsmandIndexes {
 				root.bottom = mr.getBottom();
 				root.minZoom = mr.getMinzoom();
 				root.maxZoom = mr.getMaxzoom();
+				if (mr.hasBoxes()) {
+					root.cachedTrees = mr.getBoxes();
+				}
 				mi.roots.add(root);
 			}
 			reader.mapIndexes.add(mi);
@@ -319,7 +334,7 @@ public class CachedOsmandIndexes {
 		log.info("Initialize cache " + (System.currentTimeMillis() - time));
 	}
 	
-	public void writeToFile(File f) throws IOException {
+	public synchronized void writeToFile(File f) throws IOException {
 		if (hasChanged) {
 			FileOutputStream outputStream = new FileOutputStream(f);
 			try {
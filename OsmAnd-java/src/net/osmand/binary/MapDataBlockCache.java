@@ -0,0 +1,216 @@
+package net.osmand.binary;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+/**
+ * LRU cache of decoded map data blocks keyed by (map index, block file offset).
+ * Cache is bounded by the estimated size of decoded objects and could be shared between
+ * many search requests and threads (see {@link BinaryMapIndexReader.SearchRequest#setMapDataBlockCache(MapDataBlockCache)}).
+ * Cached objects are shared by all requests, so they should not be modified.
+ * Objects of block are decoded only when some request accepts them (by bbox and search filter).
+ */
+public class MapDataBlockCache {
+
+	private static final int OBJECT_OVERHEAD = 96;
+
+	private final long maxSize;
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private final LinkedHashMap<BlockKey, CachedBlock> blocks = new LinkedHashMap<BlockKey, CachedBlock>(64, 0.75f, true);
+
+	/**
+	 * @param maxSize - approximate size in bytes of decoded objects to keep
+	 */
+	public MapDataBlockCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	private static class BlockKey {
+		private final MapIndex mapIndex;
+		private final long offset;
+
+		public BlockKey(MapIndex mapIndex, long offset) {
+			this.mapIndex = mapIndex;
+			this.offset = offset;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(mapIndex) * 31 + (int) (offset ^ (offset >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey other = (BlockKey) obj;
+			return mapIndex == other.mapIndex && offset == other.offset;
+		}
+	}
+
+	/**
+	 * Block keeps bounds and types of all objects (they are enough to check bbox and search filter),
+	 * objects are decoded when some request accepts them first time
+	 */
+	static class CachedBlock {
+		final long baseId;
+		final MapStringTable stringTable;
+		// file position and length of every object
+		final int[] positions;
+		// left, top, right, bottom of every object
+		final int[] bounds;
+		// types of object i are types[typesOffsets[i]] .. types[typesOffsets[i + 1] - 1]
+		final int[] types;
+		final int[] typesOffsets;
+		// decoded objects (null - not requested yet), access is synchronized on block
+		final BinaryMapDataObject[] objects;
+		// updated under lock of cache
+		long size;
+		boolean cached = false;
+
+		CachedBlock(long baseId, MapStringTable stringTable, int[] positions, int[] bounds, int[] types,
+				int[] typesOffsets) {
+			this.baseId = baseId;
+			this.stringTable = stringTable;
+			this.positions = positions;
+			this.bounds = bounds;
+			this.types = types;
+			this.typesOffsets = typesOffsets;
+			this.objects = new BinaryMapDataObject[bounds.length / 4];
+			long sz = OBJECT_OVERHEAD + (positions.length + bounds.length + types.length + typesOffsets.length) * 4
+					+ objects.length * 4;
+			if (stringTable != null) {
+				sz += stringTable.getDataSize() + stringTable.size() * 12;
+			}
+			this.size = sz;
+		}
+
+		int getObjectsCount() {
+			return objects.length;
+		}
+
+		boolean intersects(int i, int left, int top, int right, int bottom) {
+			return bounds[i * 4 + 2] >= left && bounds[i * 4] <= right && bounds[i * 4 + 1] <= bottom
+					&& bounds[i * 4 + 3] >= top;
+		}
+	}
+
+	private static long estimateSize(BinaryMapDataObject o) {
+		long sz = OBJECT_OVERHEAD;
+		sz += (o.coordinates == null ? 0 : o.coordinates.length * 4);
+		sz += (o.types == null ? 0 : o.types.length * 4);
+		sz += (o.additionalTypes == null ? 0 : o.additionalTypes.length * 4);
+		if (o.polygonInnerCoordinates != null) {
+			for (int[] p : o.polygonInnerCoordinates) {
+				sz += 16 + p.length * 4;
+			}
+		}
+		int[] indexes = o.namesIndexes;
+		if (indexes != null) {
+			// strings are decoded on demand (string table is counted once per block)
+			sz += indexes.length * 8;
+		}
+		return sz;
+	}
+
+	synchronized CachedBlock get(MapIndex mapIndex, long offset) {
+		CachedBlock b = blocks.get(new BlockKey(mapIndex, offset));
+		if (b == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return b;
+	}
+
+	synchronized void put(MapIndex mapIndex, long offset, CachedBlock block) {
+		if (block.size > maxSize) {
+			return;
+		}
+		CachedBlock old = blocks.put(new BlockKey(mapIndex, offset), block);
+		if (old != null) {
+			old.cached = false;
+			size -= old.size;
+		}
+		block.cached = true;
+		size += block.size;
+		evict();
+	}
+
+	/**
+	 * Object of block is decoded
+	 */
+	synchronized void objectDecoded(CachedBlock block, BinaryMapDataObject o) {
+		long sz = estimateSize(o);
+		block.size += sz;
+		if (block.cached) {
+			size += sz;
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry<BlockKey, CachedBlock>> it = blocks.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Entry<BlockKey, CachedBlock> e = it.next();
+			size -= e.getValue().size;
+			e.getValue().cached = false;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		for (CachedBlock b : blocks.values()) {
+			b.cached = false;
+		}
+		blocks.clear();
+		size = 0;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized int getBlocksCount() {
+		return blocks.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized void resetCounters() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Map blocks cache " + blocks.size() + " blocks " + (size >> 10) + "/" + (maxSize >> 10) + " KB, hits " + hits
+				+ ", misses " + misses + ", evictions " + evictions;
+	}
+}
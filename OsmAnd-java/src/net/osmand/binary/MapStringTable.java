@@ -0,0 +1,73 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Raw string table of map data block shared by objects of the block.
+ * Strings are decoded only when object names are requested.
+ */
+class MapStringTable {
+	private final byte[] data;
+	// offset & length of every string
+	private final int[] offsets;
+	private final String[] strings;
+
+	MapStringTable(byte[] data) throws IOException {
+		this.data = data;
+		CodedInputStream cis = CodedInputStream.newInstance(data);
+		int[] offs = new int[32];
+		int size = 0;
+		while (true) {
+			int t = cis.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				break;
+			}
+			if (tag != OsmandOdb.StringTable.S_FIELD_NUMBER) {
+				cis.skipField(t);
+				continue;
+			}
+			int length = cis.readRawVarint32();
+			if (size * 2 == offs.length) {
+				int[] n = new int[offs.length * 2];
+				System.arraycopy(offs, 0, n, 0, offs.length);
+				offs = n;
+			}
+			offs[size * 2] = cis.getTotalBytesRead();
+			offs[size * 2 + 1] = length;
+			size++;
+			cis.skipRawBytes(length);
+		}
+		this.offsets = new int[size * 2];
+		System.arraycopy(offs, 0, offsets, 0, size * 2);
+		this.strings = new String[size];
+	}
+
+	int size() {
+		return strings.length;
+	}
+
+	int getDataSize() {
+		return data.length;
+	}
+
+	synchronized String get(int i) {
+		if (i < 0 || i >= strings.length) {
+			return null;
+		}
+		String s = strings[i];
+		if (s == null) {
+			try {
+				s = new String(data, offsets[i * 2], offsets[i * 2 + 1], "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException("UTF-8 not supported?", e);
+			}
+			strings[i] = s;
+		}
+		return s;
+	}
+}
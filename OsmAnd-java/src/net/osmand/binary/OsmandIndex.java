@@ -2695,6 +2695,13 @@ public final class OsmandIndex {
     public boolean hasMaxzoom() { return hasMaxzoom; }
     public int getMaxzoom() { return maxzoom_; }
     
+    // optional bytes boxes = 10;
+    public static final int BOXES_FIELD_NUMBER = 10;
+    private boolean hasBoxes;
+    private com.google.protobuf.ByteString boxes_ = com.google.protobuf.ByteString.EMPTY;
+    public boolean hasBoxes() { return hasBoxes; }
+    public com.google.protobuf.ByteString getBoxes() { return boxes_; }
+    
     private void initFields() {
     }
     public final boolean isInitialized() {
@@ -2734,6 +2741,9 @@ public final class OsmandIndex {
       if (hasMaxzoom()) {
         output.writeInt32(9, getMaxzoom());
       }
+      if (hasBoxes()) {
+        output.writeBytes(10, getBoxes());
+      }
     }
     
     private int memoizedSerializedSize = -1;
@@ -2774,6 +2784,10 @@ public final class OsmandIndex {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(9, getMaxzoom());
       }
+      if (hasBoxes()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(10, getBoxes());
+      }
       memoizedSerializedSize = size;
       return size;
     }
@@ -2942,6 +2956,9 @@ public final class OsmandIndex {
         if (other.hasMaxzoom()) {
           setMaxzoom(other.getMaxzoom());
         }
+        if (other.hasBoxes()) {
+          setBoxes(other.getBoxes());
+        }
         return this;
       }
       
@@ -2992,6 +3009,10 @@ public final class OsmandIndex {
               setMaxzoom(input.readInt32());
               break;
             }
+            case 82: {
+              setBoxes(input.readBytes());
+              break;
+            }
           }
         }
       }
@@ -3141,6 +3162,27 @@ public final class OsmandIndex {
         return this;
       }
       
+      // optional bytes boxes = 10;
+      public boolean hasBoxes() {
+        return result.hasBoxes();
+      }
+      public com.google.protobuf.ByteString getBoxes() {
+        return result.getBoxes();
+      }
+      public Builder setBoxes(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasBoxes = true;
+        result.boxes_ = value;
+        return this;
+      }
+      public Builder clearBoxes() {
+        result.hasBoxes = false;
+        result.boxes_ = getDefaultInstance().getBoxes();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:MapLevel)
     }
     
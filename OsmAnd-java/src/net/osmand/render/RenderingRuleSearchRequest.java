@@ -34,12 +34,31 @@ public class RenderingRuleSearchRequest {
 		setBooleanFilter(storage.PROPS.R_TEST, true);
 		saveState();
 	}
+	
+	public RenderingRuleSearchRequest(RenderingRuleSearchRequest searchRequest) {
+		this.storage = searchRequest.storage;
+		this.ALL = searchRequest.ALL;
+		props = searchRequest.props;
+		values = searchRequest.values.clone();
+		fvalues = searchRequest.fvalues.clone();
+		savedValues = searchRequest.savedValues.clone();
+		savedFvalues = searchRequest.savedFvalues.clone();
+	}
 
 	public void setStringFilter(RenderingRuleProperty p, String filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = storage.getDictionaryValue(filter);
 	}
 
+	/**
+	 * Same as {@link #setStringFilter} but unknown value is not added to storage dictionary,
+	 * it is set as -1 which doesn't match any rule. Used by requests that are copied for search threads.
+	 */
+	public void setKnownStringFilter(RenderingRuleProperty p, String filter) {
+		assert p.isInputProperty();
+		values[p.getId()] = storage.findDictionaryValue(filter);
+	}
+
 	public void setIntFilter(RenderingRuleProperty p, int filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = filter;
@@ -79,6 +79,15 @@ public class RenderingRulesStorage {
 
 	}
 	
+	/**
+	 * Looks up value without adding it to dictionary (safe to call from several threads while dictionary is not changed)
+	 * @return -1 if value is not in dictionary
+	 */
+	public int findDictionaryValue(String val) {
+		Integer ind = dictionaryMap.get(val);
+		return ind == null ? -1 : ind.intValue();
+	}
+	
 	public String getStringValue(int i){
 		return dictionary.get(i);
 	}
@@ -1,18 +1,18 @@
 package net.osmand.router;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.osm.MapRenderingTypes;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
@@ -42,17 +42,6 @@ public class BinaryRoutePlanner {
 	}
 	
 	
-	private static class SegmentsComparator implements Comparator<RouteSegment> {
-		final RoutingContext ctx;
-		public SegmentsComparator(RoutingContext ctx) {
-			this.ctx = ctx;
-		}
-		@Override
-		public int compare(RouteSegment o1, RouteSegment o2) {
-			return ctx.roadPriorityComparator(o1.distanceFromStart, o1.distanceToEnd, o2.distanceFromStart, o2.distanceToEnd);
-		}
-	}
-	
 	private static class NonHeuristicSegmentsComparator implements Comparator<RouteSegment> {
 		public NonHeuristicSegmentsComparator() {
 		}
@@ -73,23 +62,31 @@ public class BinaryRoutePlanner {
 		ctx.visitedSegments = 0;
 		ctx.memoryOverhead  = 1000;
 		ctx.timeToCalculate = System.nanoTime();
+		if (ctx.reverseSearchTree != null && recalculationEnd == null && ctx.nativeLib == null
+				&& ctx.precalculatedRouteDirection == null && ctx.reverseSearchTree.isApplicable(ctx, end)) {
+			return searchRouteIncremental(ctx, start, end, ctx.reverseSearchTree);
+		}
+		if (ctx.config.parallelBidirectional && ctx.planRouteIn2Directions() && ctx.nativeLib == null
+				&& ctx.visitor == null && ctx.precalculatedRouteDirection == null) {
+			return searchRouteInternalParallel(ctx, start, end, recalculationEnd);
+		}
 
 		
 		// Initializing priority queue to visit way segments 
 		Comparator<RouteSegment> nonHeuristicSegmentsComparator = new NonHeuristicSegmentsComparator();
-		PriorityQueue<RouteSegment> graphDirectSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
-		PriorityQueue<RouteSegment> graphReverseSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
+		RouteSegmentQueue graphDirectSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		RouteSegmentQueue graphReverseSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
 		
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
-		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		VisitedSegments visitedDirectSegments = new VisitedSegments();
+		VisitedSegments visitedOppositeSegments = new VisitedSegments();
 		
 		initQueuesWithStartEnd(ctx, start, end, recalculationEnd, graphDirectSegments, graphReverseSegments);
 		
 		// Extract & analyze segment with min(f(x)) from queue while final segment is not found
 		boolean forwardSearch = true;
 		
-		PriorityQueue<RouteSegment>  graphSegments = graphDirectSegments;
+		RouteSegmentQueue graphSegments = graphDirectSegments;
 		
 		FinalRouteSegment finalSegment = null;
 		boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
@@ -168,15 +165,272 @@ public class BinaryRoutePlanner {
 			}
 		}
 		printDebugMemoryInformation(ctx, graphDirectSegments, graphReverseSegments, visitedDirectSegments, visitedOppositeSegments);
+		saveReverseSearchTree(ctx, end, recalculationEnd, finalSegment, visitedOppositeSegments);
 		return finalSegment;
 	}
 
+	private void saveReverseSearchTree(RoutingContext ctx, RouteSegmentPoint end, RouteSegment recalculationEnd,
+			FinalRouteSegment finalSegment, VisitedSegments visitedOppositeSegments) {
+		// backward graph is complete only when it started from target point,
+		// its times depend on departure time with speed profiles
+		if (ctx.config.incrementalRecalculation && finalSegment != null && recalculationEnd == null
+				&& ctx.calculationMode != RouteCalculationMode.BASE && ctx.precalculatedRouteDirection == null
+				&& ctx.planRouteIn2Directions() && ctx.config.speedProfiles == null
+				// saved tree stays in memory with the route, so large graphs are not kept
+				&& visitedOppositeSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD < ctx.config.memoryLimitation / 4) {
+			ctx.reverseSearchTree = new ReverseSearchTree(ctx, end, visitedOppositeSegments);
+		}
+	}
+
+	/**
+	 * Expands only forward graph from start point until it meets backward graph saved by previous calculation
+	 * to the same target, distances to target of saved segments are final.
+	 */
+	private FinalRouteSegment searchRouteIncremental(final RoutingContext ctx, RouteSegmentPoint start,
+			RouteSegmentPoint end, ReverseSearchTree tree) throws InterruptedException, IOException {
+		RouteSegmentQueue graphDirectSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		// target segments are already in saved tree, reverse queue is not expanded
+		RouteSegmentQueue graphReverseSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		VisitedSegments visitedDirectSegments = new VisitedSegments();
+		initQueuesWithStartEnd(ctx, start, end, null, graphDirectSegments, graphReverseSegments);
+		ParallelSearch search = new ParallelSearch();
+		searchInOneDirection(ctx, false, graphDirectSegments, visitedDirectSegments, tree.getVisitedSegments(), start,
+				tree.size() * STANDARD_ROAD_VISITED_OVERHEAD, search);
+		printDebugMemoryInformation(ctx, graphDirectSegments, null, visitedDirectSegments, tree.getVisitedSegments());
+		return search.getFinalSegment();
+	}
+
+	/**
+	 * Bidirectional search which doesn't stop when the best route is found: every later meeting of forward and
+	 * backward graphs gives route through the meeting point (forward tree to it and backward tree from it).
+	 * Search continues until both queues have nothing shorter than maxStretch * time of the best route.
+	 * Returns meeting segments sorted by route time (the first one is the best route), empty list if route is not found.
+	 */
+	List<FinalRouteSegment> searchRouteAlternatives(final RoutingContext ctx, RouteSegmentPoint start,
+			RouteSegmentPoint end, float maxStretch) throws InterruptedException, IOException {
+		ctx.timeToLoad = 0;
+		ctx.visitedSegments = 0;
+		ctx.memoryOverhead = 1000;
+		ctx.timeToCalculate = System.nanoTime();
+		Comparator<RouteSegment> nonHeuristicSegmentsComparator = new NonHeuristicSegmentsComparator();
+		RouteSegmentQueue graphDirectSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		RouteSegmentQueue graphReverseSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		VisitedSegments visitedDirectSegments = new VisitedSegments();
+		VisitedSegments visitedOppositeSegments = new VisitedSegments();
+		initQueuesWithStartEnd(ctx, start, end, null, graphDirectSegments, graphReverseSegments);
+
+		List<FinalRouteSegment> meetings = new ArrayList<FinalRouteSegment>();
+		float limit = Float.POSITIVE_INFINITY;
+		boolean directFinished = false;
+		boolean reverseFinished = false;
+		boolean forwardSearch = true;
+		while (!directFinished || !reverseFinished) {
+			RouteSegmentQueue graphSegments = forwardSearch ? graphDirectSegments : graphReverseSegments;
+			RouteSegment segment = graphSegments.isEmpty() ? null : graphSegments.poll();
+			if (segment == null || segment.distanceFromStart + segment.distanceToEnd > limit) {
+				// nothing shorter is left in that direction
+				if (forwardSearch) {
+					directFinished = true;
+				} else {
+					reverseFinished = true;
+				}
+			} else if (segment instanceof FinalRouteSegment) {
+				if (meetings.isEmpty()) {
+					limit = segment.distanceFromStart * maxStretch;
+				}
+				meetings.add((FinalRouteSegment) segment);
+			} else {
+				ctx.memoryOverhead = (visitedDirectSegments.size() + visitedOppositeSegments.size())
+						* STANDARD_ROAD_VISITED_OVERHEAD + (graphDirectSegments.size() + graphReverseSegments.size())
+						* STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+					if (meetings.isEmpty()) {
+						throw new IllegalStateException("There is no enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+					}
+					// keep alternatives found so far
+					break;
+				}
+				ctx.visitedSegments++;
+				if (forwardSearch) {
+					processRouteSegment(ctx, false, graphDirectSegments, visitedDirectSegments, segment,
+							visitedOppositeSegments, false);
+				} else {
+					processRouteSegment(ctx, true, graphReverseSegments, visitedOppositeSegments, segment,
+							visitedDirectSegments, false);
+				}
+				updateCalculationProgress(ctx, graphDirectSegments, graphReverseSegments);
+				if (meetings.isEmpty()) {
+					checkIfGraphIsEmpty(ctx, true, graphReverseSegments, end, visitedOppositeSegments,
+							"Route is not found to selected target point.");
+					checkIfGraphIsEmpty(ctx, true, graphDirectSegments, start, visitedDirectSegments,
+							"Route is not found from selected start point.");
+				}
+			}
+			if (directFinished || graphDirectSegments.isEmpty()) {
+				forwardSearch = false;
+			} else if (reverseFinished || graphReverseSegments.isEmpty()) {
+				forwardSearch = true;
+			} else {
+				forwardSearch = nonHeuristicSegmentsComparator.compare(graphDirectSegments.peek(),
+						graphReverseSegments.peek()) < 0;
+			}
+			if (directFinished && graphReverseSegments.isEmpty()) {
+				reverseFinished = true;
+			} else if (reverseFinished && graphDirectSegments.isEmpty()) {
+				directFinished = true;
+			}
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+		Collections.sort(meetings, new Comparator<FinalRouteSegment>() {
+			@Override
+			public int compare(FinalRouteSegment o1, FinalRouteSegment o2) {
+				return Float.compare(o1.distanceFromStart, o2.distanceFromStart);
+			}
+		});
+		printDebugMemoryInformation(ctx, graphDirectSegments, graphReverseSegments, visitedDirectSegments, visitedOppositeSegments);
+		return meetings;
+	}
+
+	/**
+	 * Expands forward graph on the current thread and backward graph on another one.
+	 * Backward graph has its own routing context, each direction loads tiles and expands its graph
+	 * within half of memory limit (other half is counted as retained overhead), 
+	 * directions meet through synchronized visited segments. Every thread stops as soon as 
+	 * one of them polls final segment (as in sequential search nothing better is left in its queue),
+	 * the best polled final segment is returned.
+	 */
+	private FinalRouteSegment searchRouteInternalParallel(final RoutingContext ctx, final RouteSegmentPoint start,
+			final RouteSegmentPoint end, RouteSegment recalculationEnd) throws InterruptedException, IOException {
+		final RouteSegmentQueue graphDirectSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		final RouteSegmentQueue graphReverseSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient, 50);
+		final VisitedSegments visitedDirectSegments = new VisitedSegments.Synchronized();
+		final VisitedSegments visitedOppositeSegments = new VisitedSegments.Synchronized();
+		initQueuesWithStartEnd(ctx, start, end, recalculationEnd, graphDirectSegments, graphReverseSegments);
+
+		final RoutingContext reverseCtx = new RoutingContext(ctx);
+		reverseCtx.startX = ctx.startX;
+		reverseCtx.startY = ctx.startY;
+		reverseCtx.targetX = ctx.targetX;
+		reverseCtx.targetY = ctx.targetY;
+		reverseCtx.calculationProgress = ctx.calculationProgress;
+		final int oppositeDirectionMemory = ctx.config.memoryLimitation / 2;
+		final ParallelSearch search = new ParallelSearch();
+		Thread reverseThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					searchInOneDirection(reverseCtx, true, graphReverseSegments, visitedOppositeSegments,
+							visitedDirectSegments, end, oppositeDirectionMemory, search);
+				} catch (Throwable e) {
+					search.fail(e);
+				} finally {
+					search.stop();
+				}
+			}
+		}, "Reverse route search");
+		reverseThread.setDaemon(true);
+		reverseThread.start();
+		try {
+			searchInOneDirection(ctx, false, graphDirectSegments, visitedDirectSegments, visitedOppositeSegments, start,
+					oppositeDirectionMemory, search);
+		} catch (Throwable e) {
+			search.fail(e);
+		} finally {
+			search.stop();
+			reverseThread.join();
+		}
+		ctx.visitedSegments += reverseCtx.visitedSegments;
+		ctx.memoryOverhead = (visitedDirectSegments.size() + visitedOppositeSegments.size()) * STANDARD_ROAD_VISITED_OVERHEAD
+				+ (graphDirectSegments.size() + graphReverseSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+		ctx.timeToLoad += reverseCtx.timeToLoad;
+		ctx.timeToLoadHeaders += reverseCtx.timeToLoadHeaders;
+		ctx.loadedTiles += reverseCtx.loadedTiles;
+		ctx.distinctLoadedTiles += reverseCtx.distinctLoadedTiles;
+		Throwable error = search.getError();
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error instanceof InterruptedException) {
+			throw (InterruptedException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		}
+		printDebugMemoryInformation(ctx, graphDirectSegments, graphReverseSegments, visitedDirectSegments, visitedOppositeSegments);
+		saveReverseSearchTree(ctx, end, recalculationEnd, search.getFinalSegment(), visitedOppositeSegments);
+		return search.getFinalSegment();
+	}
+
+	private void searchInOneDirection(RoutingContext ctx, boolean reverseWaySearch, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments, VisitedSegments oppositeSegments, RouteSegmentPoint pnt, int retainedOverhead,
+			ParallelSearch search) throws InterruptedException, IOException {
+		while (!graphSegments.isEmpty() && !search.isStopped()) {
+			RouteSegment segment = graphSegments.poll();
+			ctx.memoryOverhead = retainedOverhead + visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+					+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			if (segment instanceof FinalRouteSegment) {
+				search.finish((FinalRouteSegment) segment);
+				break;
+			}
+			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+				throw new IllegalStateException("There is no enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+			}
+			ctx.visitedSegments++;
+			processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment, oppositeSegments, false);
+			updateCalculationProgress(ctx, graphSegments, reverseWaySearch);
+			checkIfGraphIsEmpty(ctx, true, graphSegments, pnt, visitedSegments,
+					reverseWaySearch ? "Route is not found to selected target point."
+							: "Route is not found from selected start point.");
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+	}
+
+	private static class ParallelSearch {
+		private volatile boolean stopped = false;
+		private FinalRouteSegment finalSegment;
+		private Throwable error;
+
+		public boolean isStopped() {
+			return stopped;
+		}
+
+		public void stop() {
+			stopped = true;
+		}
+
+		public synchronized void finish(FinalRouteSegment segment) {
+			if (finalSegment == null || segment.distanceFromStart < finalSegment.distanceFromStart) {
+				finalSegment = segment;
+			}
+			stopped = true;
+		}
+
+		public synchronized void fail(Throwable e) {
+			if (error == null) {
+				error = e;
+			}
+			stopped = true;
+		}
+
+		public synchronized FinalRouteSegment getFinalSegment() {
+			return finalSegment;
+		}
+
+		public synchronized Throwable getError() {
+			return error;
+		}
+	}
+
 
 	
 
 
 	protected void checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			PriorityQueue<RouteSegment> graphSegments, RouteSegmentPoint pnt, TLongObjectHashMap<RouteSegment> visited,
+			RouteSegmentQueue graphSegments, RouteSegmentPoint pnt, VisitedSegments visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -244,7 +498,7 @@ public class BinaryRoutePlanner {
 
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegment start, RouteSegment end,
-			RouteSegment recalculationEnd, PriorityQueue<RouteSegment> graphDirectSegments, PriorityQueue<RouteSegment> graphReverseSegments) {
+			RouteSegment recalculationEnd, RouteSegmentQueue graphDirectSegments, RouteSegmentQueue graphReverseSegments) {
 		RouteSegment startPos = initRouteSegment(ctx, start, true);
 		RouteSegment startNeg = initRouteSegment(ctx, start, false);
 		RouteSegment endPos = initRouteSegment(ctx, end, true);
@@ -268,6 +522,7 @@ public class BinaryRoutePlanner {
 			ctx.targetX = recalculationEnd.getRoad().getPoint31XTile(recalculationEnd.getSegmentStart());
 			ctx.targetY = recalculationEnd.getRoad().getPoint31YTile(recalculationEnd.getSegmentStart());
 		}
+		initLandmarks(ctx, start, recalculationEnd != null ? recalculationEnd : end);
 		float estimatedDistance = (float) estimatedDistance(ctx, ctx.targetX, ctx.targetY, ctx.startX, ctx.startY);
 		if(startPos != null) {
 			startPos.distanceToEnd = estimatedDistance;
@@ -299,22 +554,31 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegment> graphDirectSegments,
-			PriorityQueue<RouteSegment> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphDirectSegments,
+			RouteSegmentQueue graphReverseSegments) {
+		updateCalculationProgress(ctx, graphReverseSegments, true);
+		updateCalculationProgress(ctx, graphDirectSegments, false);
+	}
+
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphSegments,
+			boolean reverseWaySearch) {
 		if(ctx.calculationProgress != null) {
-			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
-			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
-			if(graphDirectSegments.size() > 0 && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek();
-				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart, 
-						ctx.calculationProgress.distanceFromBegin);
-				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
-			}
-			if(graphReverseSegments.size() > 0 && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek();
-				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
+			if(reverseWaySearch) {
+				ctx.calculationProgress.reverseSegmentQueueSize = graphSegments.size();
+				if(graphSegments.size() > 0 && ctx.getPlanRoadDirection() <= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
-				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+					ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
+			} else {
+				ctx.calculationProgress.directSegmentQueueSize = graphSegments.size();
+				if(graphSegments.size() > 0 && ctx.getPlanRoadDirection() >= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart, 
+							ctx.calculationProgress.distanceFromBegin);
+					ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
 			}
 		}
 	}
@@ -341,6 +605,35 @@ public class BinaryRoutePlanner {
 		return (float) (distance / ctx.getRouter().getMaxDefaultSpeed());
 	}
 	
+	private void initLandmarks(RoutingContext ctx, RouteSegment start, RouteSegment end) {
+		ctx.landmarkStartNodes = null;
+		ctx.landmarkTargetNodes = null;
+		if (ctx.landmarks != null && ctx.precalculatedRouteDirection == null && ctx.landmarks.isApplicable(ctx)) {
+			int[] startNodes = ctx.landmarks.findRoadNodes(start.getRoad(), start.getSegmentStart());
+			int[] targetNodes = ctx.landmarks.findRoadNodes(end.getRoad(), end.getSegmentStart());
+			if (startNodes != null && targetNodes != null) {
+				ctx.landmarkStartNodes = startNodes;
+				ctx.landmarkTargetNodes = targetNodes;
+			}
+		}
+	}
+	
+	/**
+	 * Landmarks estimate (if it is available for the point) or straight line estimate
+	 */
+	protected static float h(RoutingContext ctx, boolean reverseWaySearch, int begX, int begY, int endX, int endY) {
+		float result = h(ctx, begX, begY, endX, endY);
+		if (ctx.landmarkTargetNodes != null) {
+			// backward search estimates route from start point
+			float alt = ctx.landmarks.estimate(begX, begY, reverseWaySearch ? ctx.landmarkStartNodes
+					: ctx.landmarkTargetNodes, reverseWaySearch);
+			if (alt > result) {
+				result = alt;
+			}
+		}
+		return result;
+	}
+	
 	protected static float h(RoutingContext ctx, int begX, int begY, int endX, int endY) {
 		double distToFinalPoint = squareRootDist(begX, begY,  endX, endY);
 		double result = distToFinalPoint / ctx.getRouter().getMaxDefaultSpeed();
@@ -364,8 +657,8 @@ public class BinaryRoutePlanner {
 		log.warn(logMsg);
 	}
 	
-	public void printDebugMemoryInformation(RoutingContext ctx, PriorityQueue<RouteSegment> graphDirectSegments, PriorityQueue<RouteSegment> graphReverseSegments, 
-			TLongObjectHashMap<RouteSegment> visitedDirectSegments,TLongObjectHashMap<RouteSegment> visitedOppositeSegments) {
+	public void printDebugMemoryInformation(RoutingContext ctx, RouteSegmentQueue graphDirectSegments, RouteSegmentQueue graphReverseSegments, 
+			VisitedSegments visitedDirectSegments,VisitedSegments visitedOppositeSegments) {
 		printInfo("Time to calculate : " + (System.nanoTime() - ctx.timeToCalculate) / 1e6 + 
 				", time to load : " + ctx.timeToLoad / 1e6 + ", time to load headers : " + ctx.timeToLoadHeaders / 1e6 + 
 				", time to calc dev : " + ctx.timeNanoToCalcDeviation/ 1e6);
@@ -387,8 +680,8 @@ public class BinaryRoutePlanner {
 	
 	@SuppressWarnings("unused")
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments, 
-            RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments, boolean doNotAddIntersections) throws IOException {
+			RouteSegmentQueue graphSegments, VisitedSegments visitedSegments, 
+            RouteSegment segment, VisitedSegments oppositeSegments, boolean doNotAddIntersections) throws IOException {
 		final RouteDataObject road = segment.road;
 		boolean initDirectionAllowed = checkIfInitialMovementAllowedOnSegment(ctx, reverseWaySearch, visitedSegments, segment, road);
 		if(TEST_SPECIFIC && road.getId() == TEST_ID ) {
@@ -423,8 +716,11 @@ public class BinaryRoutePlanner {
 				continue;
 			}
 			// store <segment> in order to not have unique <segment, direction> in visitedSegments 
+			RouteSegment visited = previous != null ? previous : segment;
+			// visited segment doesn't need other roads of its intersection anymore
+			visited.next = null;
 			visitedSegments.put(calculateRoutePointId(segment.getRoad(), segment.isPositive() ? segmentPoint - 1 : segmentPoint, 
-					segment.isPositive()), previous != null ? previous : segment);
+					segment.isPositive()), visited);
 			final int x = road.getPoint31XTile(segmentPoint);
 			final int y = road.getPoint31YTile(segmentPoint);
 			final int prevx = road.getPoint31XTile(prevInd);
@@ -465,7 +761,8 @@ public class BinaryRoutePlanner {
 			// could be expensive calculation
 			// 3. get intersected ways
 			final RouteSegment roadNext = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - ctx.memoryOverhead);
-			float distStartObstacles = segment.distanceFromStart + calculateTimeWithObstacles(ctx, road, segmentDist , obstaclesTime);
+			float distStartObstacles = segment.distanceFromStart + calculateTimeWithObstacles(ctx, segment, reverseWaySearch,
+					segmentDist, obstaclesTime);
 			if(ctx.precalculatedRouteDirection != null && ctx.precalculatedRouteDirection.isFollowNext()) {
 				// reset to f
 //				distStartObstacles = 0;
@@ -487,7 +784,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfInitialMovementAllowedOnSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			TLongObjectHashMap<RouteSegment> visitedSegments, RouteSegment segment, final RouteDataObject road) {
+			VisitedSegments visitedSegments, RouteSegment segment, final RouteDataObject road) {
 		boolean directionAllowed;
 		int oneway = ctx.getRouter().isOneWay(road);
 		// use positive direction as agreed
@@ -539,18 +836,18 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositieSegmentWasVisited(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments,
+			RouteSegmentQueue graphSegments, RouteSegment segment, VisitedSegments oppositeSegments,
 			int segmentPoint, float segmentDist, float obstaclesTime) {
 		RouteDataObject road = segment.getRoad();
 		long opp = calculateRoutePointId(road, segment.isPositive() ? segmentPoint - 1 : segmentPoint, !segment.isPositive());
-		if (oppositeSegments.containsKey(opp)) {
-			RouteSegment opposite = oppositeSegments.get(opp);
+		RouteSegment opposite = oppositeSegments.get(opp);
+		if (opposite != null) {
 			RouteSegment to = reverseWaySearch ? getParentDiffId(segment) : getParentDiffId(opposite);
 			RouteSegment from = !reverseWaySearch ? getParentDiffId(segment) : getParentDiffId(opposite);
 			if (checkViaRestrictions(from, to)) {
 				FinalRouteSegment frs = new FinalRouteSegment(road, segmentPoint);
 				float distStartObstacles = segment.distanceFromStart
-						+ calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime);
+						+ calculateTimeWithObstacles(ctx, segment, reverseWaySearch, segmentDist, obstaclesTime);
 				frs.setParentRoute(segment);
 				frs.setParentSegmentEnd(segmentPoint);
 				frs.reverseWaySearch = reverseWaySearch;
@@ -568,20 +865,41 @@ public class BinaryRoutePlanner {
 	}
 	
 
-	private float calculateTimeWithObstacles(RoutingContext ctx, RouteDataObject road, float distOnRoadToPass, float obstaclesTime) {
-		float priority = ctx.getRouter().defineSpeedPriority(road);
-		float speed = (ctx.getRouter().defineRoutingSpeed(road) * priority);
+	private float calculateTimeWithObstacles(RoutingContext ctx, RouteSegment segment, boolean reverseWaySearch,
+			float distOnRoadToPass, float obstaclesTime) {
+		// segment is passed after time from start (forward search) or after estimated time from start to it (backward search).
+		// Backward estimate is straight line time with maximum speed, so it is never later than real time of passing:
+		// factor is taken up to (route time - straight line time to start) earlier. Only choice of route is affected,
+		// times of found route are recalculated sequentially from departure (RouteResultPreparation).
+		float speedFactor = ctx.getSpeedFactor(segment.getRoad(), reverseWaySearch ? segment.distanceToEnd
+				: segment.distanceFromStart);
+		return calculateTimeWithObstacles(ctx.getRouter(), segment.getRoad(), distOnRoadToPass, obstaclesTime, speedFactor);
+	}
+	
+	static float calculateTimeWithObstacles(VehicleRouter router, RouteDataObject road, float distOnRoadToPass, float obstaclesTime) {
+		return calculateTimeWithObstacles(router, road, distOnRoadToPass, obstaclesTime, 1);
+	}
+	
+	static float calculateTimeWithObstacles(VehicleRouter router, RouteDataObject road, float distOnRoadToPass,
+			float obstaclesTime, float speedFactor) {
+		float priority = router.defineSpeedPriority(road);
+		float speed = (router.defineRoutingSpeed(road) * priority);
 		if (speed == 0) {
-			speed = (ctx.getRouter().getMinDefaultSpeed() * priority);
+			speed = (router.getMinDefaultSpeed() * priority);
+		}
+		speed *= speedFactor;
+		if (speed <= 0) {
+			// road is closed at that time (it is still allowed as speed profiles are not restrictions)
+			speed = router.getMinDefaultSpeed() * priority;
 		}
 		// speed can not exceed max default speed according to A*
-		if(speed > ctx.getRouter().getMaxDefaultSpeed()) {
-			speed = ctx.getRouter().getMaxDefaultSpeed();
+		if(speed > router.getMaxDefaultSpeed()) {
+			speed = router.getMaxDefaultSpeed();
 		}
 		return obstaclesTime + distOnRoadToPass / speed;
 	}
 
-	private long calculateRoutePointId(final RouteDataObject road, int intervalId, boolean positive) {
+	/*private*/ static long calculateRoutePointId(final RouteDataObject road, int intervalId, boolean positive) {
 		if(intervalId < 0) {
 			// should be assert
 			throw new IllegalStateException("Assert failed");
@@ -589,7 +907,7 @@ public class BinaryRoutePlanner {
 		return (road.getId() << ROUTE_POINTS) + (intervalId << 1) + (positive ? 1 : 0);
 	}
 	
-	private long calculateRoutePointId(RouteSegment segm, boolean direction) {
+	/*private*/ static long calculateRoutePointId(RouteSegment segm, boolean direction) {
 		if(segm.getSegmentStart() == 0 && !direction) {
 			throw new IllegalStateException("Assert failed");	
 		}
@@ -698,8 +1016,8 @@ public class BinaryRoutePlanner {
 	
 
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
-			TLongObjectHashMap<RouteSegment> visitedSegments,  float distFromStart, RouteSegment segment,
+	private RouteSegment processIntersections(RoutingContext ctx, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments,  float distFromStart, RouteSegment segment,
 			short segmentPoint, RouteSegment inputNext, boolean reverseWaySearch, boolean doNotAddIntersections, 
 			boolean[] processFurther) {
 		boolean thereAreRestrictions ;
@@ -719,7 +1037,7 @@ public class BinaryRoutePlanner {
 		}
 		int targetEndX = reverseWaySearch ? ctx.startX : ctx.targetX;
 		int targetEndY = reverseWaySearch ? ctx.startY : ctx.targetY;
-		float distanceToEnd = h(ctx, segment.getRoad().getPoint31XTile(segmentPoint), segment.getRoad()
+		float distanceToEnd = h(ctx, reverseWaySearch, segment.getRoad().getPoint31XTile(segmentPoint), segment.getRoad()
 				.getPoint31YTile(segmentPoint), targetEndX, targetEndY);
 		// Calculate possible ways to put into priority queue
 		RouteSegment next = inputNext;
@@ -768,8 +1086,8 @@ public class BinaryRoutePlanner {
 
 
 	@SuppressWarnings("unused")
-	private void processOneRoadIntersection(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
-			TLongObjectHashMap<RouteSegment> visitedSegments, float distFromStart, float distanceToEnd,  RouteSegment segment,
+	private void processOneRoadIntersection(RoutingContext ctx, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments, float distFromStart, float distanceToEnd,  RouteSegment segment,
 			int segmentPoint, RouteSegment next) {
 		if (next != null) {
 			float obstaclesTime = (float) ctx.getRouter().calculateTurnTime(next, next.isPositive()? 
@@ -782,8 +1100,15 @@ public class BinaryRoutePlanner {
 						" distToEnd=" + distanceToEnd +
 						" segmentPoint="+ segmentPoint + " -- ", next, true);
 			}
-			if (!visitedSegments.containsKey(calculateRoutePointId(next, next.isPositive()))) {
-				if (next.getParentRoute() == null
+			long nextId = calculateRoutePointId(next, next.isPositive());
+			if (!visitedSegments.containsKey(nextId)) {
+				// segment is already in queue : update it in place if route is better
+				RouteSegment queued = graphSegments.get(nextId);
+				boolean inQueue = queued != null;
+				if (inQueue) {
+					next = queued;
+				}
+				if ((!inQueue && next.getParentRoute() == null)
 						|| ctx.roadPriorityComparator(next.distanceFromStart, next.distanceToEnd,
 								distFromStart, distanceToEnd) > 0) {
 					next.distanceFromStart = distFromStart;
@@ -794,7 +1119,11 @@ public class BinaryRoutePlanner {
 					// put additional information to recover whole route after
 					next.setParentRoute(segment);
 					next.setParentSegmentEnd(segmentPoint);
-					graphSegments.add(next);
+					if (inQueue) {
+						graphSegments.decreaseKey(next);
+					} else {
+						graphSegments.add(nextId, next);
+					}
 				}
 			} else {
 				// the segment was already visited! We need to follow better route if it exists
@@ -856,6 +1185,8 @@ public class BinaryRoutePlanner {
 		// search context (needed for searching route)
 		// Initially it should be null (!) because it checks was it segment visited before
 		RouteSegment parentRoute = null;
+		// position in RouteSegmentQueue (-1 not queued)
+		int queueIndex = -1;
 		short parentSegmentEnd = 0;
 		// 1 - positive , -1 - negative, 0 not assigned
 		byte directionAssgn = 0;
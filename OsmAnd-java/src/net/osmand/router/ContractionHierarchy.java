@@ -0,0 +1,671 @@
+package net.osmand.router;
+
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.osm.MapRenderingTypes;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Contraction hierarchy of the routing graph of one obf file for one routing profile
+ * (built offline by {@link ContractionHierarchyBuilder} and stored next to obf file).
+ *
+ * Nodes of the graph are road points shared by several roads and road ends, edges are pieces of roads between
+ * nodes and shortcuts which replace 2 edges going through less important node. Query is bidirectional Dijkstra
+ * which goes only to more important nodes, so it settles few hundreds of nodes even for country routes and
+ * loads only tiles of roads of the found route when shortcuts are unpacked.
+ *
+ * Turn times and turn restrictions are not part of the hierarchy, so the route could differ slightly from A* one.
+ * Found route is checked against turn restrictions of its roads, route with restricted turn is rejected
+ * (caller calculates it with A*).
+ */
+public class ContractionHierarchy {
+
+	private final static Log log = PlatformUtil.getLog(ContractionHierarchy.class);
+
+	public static final String FILE_EXT = ".chgraph";
+	private static final int MAGIC = 0x4f434847;
+	private static final int VERSION = 1;
+	private static final long MASK_31 = (1l << 31) - 1;
+
+	final String profile;
+	final long obfLength;
+	final long obfDateCreated;
+
+	// nodes sorted by (x31 << 31) + y31, node id is index
+	final long[] nodeKeys;
+
+	// edges : original edges are pieces of road edgeRoad between points edgeA -> edgeB,
+	// shortcuts have edgeRoad = -1 and consist of edges edgeA + edgeB
+	final int[] edgeFrom;
+	final int[] edgeTo;
+	final float[] edgeWeight;
+	final long[] edgeRoad;
+	final int[] edgeA;
+	final int[] edgeB;
+
+	// edges from node to more important nodes (forward search)
+	final int[] upOffsets;
+	final int[] upEdges;
+	// edges to node from more important nodes (backward search)
+	final int[] downOffsets;
+	final int[] downEdges;
+
+	private int left = Integer.MAX_VALUE;
+	private int right = Integer.MIN_VALUE;
+	private int top = Integer.MAX_VALUE;
+	private int bottom = Integer.MIN_VALUE;
+
+	ContractionHierarchy(String profile, long obfLength, long obfDateCreated, long[] nodeKeys, int[] edgeFrom, int[] edgeTo,
+			float[] edgeWeight, long[] edgeRoad, int[] edgeA, int[] edgeB, int[] upOffsets, int[] upEdges,
+			int[] downOffsets, int[] downEdges) {
+		this.profile = profile;
+		this.obfLength = obfLength;
+		this.obfDateCreated = obfDateCreated;
+		this.nodeKeys = nodeKeys;
+		this.edgeFrom = edgeFrom;
+		this.edgeTo = edgeTo;
+		this.edgeWeight = edgeWeight;
+		this.edgeRoad = edgeRoad;
+		this.edgeA = edgeA;
+		this.edgeB = edgeB;
+		this.upOffsets = upOffsets;
+		this.upEdges = upEdges;
+		this.downOffsets = downOffsets;
+		this.downEdges = downEdges;
+		for (long k : nodeKeys) {
+			int x = (int) (k >> 31);
+			int y = (int) (k & MASK_31);
+			left = Math.min(left, x);
+			right = Math.max(right, x);
+			top = Math.min(top, y);
+			bottom = Math.max(bottom, y);
+		}
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public int getNodesCount() {
+		return nodeKeys.length;
+	}
+
+	public int getEdgesCount() {
+		return edgeFrom.length;
+	}
+
+	public boolean containsPoint(int x31, int y31) {
+		return x31 >= left && x31 <= right && y31 >= top && y31 <= bottom;
+	}
+
+	/**
+	 * Profile key is router name plus enabled routing parameters (they change edge weights)
+	 */
+	public static String getProfileKey(RoutingConfiguration config) {
+		GeneralRouter.RouteAttributeContext c = config.router.getObjContext(RouteDataObjectAttribute.ROAD_SPEED);
+		String[] keys = c.getParamKeys();
+		String[] values = c.getParamValues();
+		List<String> enabled = new ArrayList<String>();
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != null && !values[i].equals("false")) {
+				enabled.add(keys[i]);
+			}
+		}
+		String[] sorted = enabled.toArray(new String[enabled.size()]);
+		Arrays.sort(sorted);
+		StringBuilder key = new StringBuilder(config.routerName.length() == 0 ? "default" : config.routerName);
+		for (String s : sorted) {
+			key.append('_').append(s);
+		}
+		return key.toString();
+	}
+
+	public static File getFile(File obf, String profileKey) {
+		return new File(obf.getParentFile(), obf.getName() + "." + profileKey + FILE_EXT);
+	}
+
+	/**
+	 * Loads hierarchy of reader for routing profile, returns null if it is not built or outdated
+	 */
+	public static ContractionHierarchy load(BinaryMapIndexReader reader, RoutingConfiguration config) throws IOException {
+		String key = getProfileKey(config);
+		File f = getFile(reader.getFile(), key);
+		if (!f.exists()) {
+			return null;
+		}
+		ContractionHierarchy ch = read(f);
+		if (ch == null || !ch.profile.equals(key) || ch.obfLength != reader.getFile().length()
+				|| ch.obfDateCreated != reader.getDateCreated()) {
+			log.warn("Contraction hierarchy " + f.getName() + " is outdated");
+			return null;
+		}
+		return ch;
+	}
+
+	public static ContractionHierarchy read(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			String profile = in.readUTF();
+			long obfLength = in.readLong();
+			long obfDateCreated = in.readLong();
+			long[] nodeKeys = readLongs(in);
+			int[] edgeFrom = readInts(in);
+			int[] edgeTo = readInts(in);
+			float[] edgeWeight = new float[in.readInt()];
+			for (int i = 0; i < edgeWeight.length; i++) {
+				edgeWeight[i] = in.readFloat();
+			}
+			long[] edgeRoad = readLongs(in);
+			int[] edgeA = readInts(in);
+			int[] edgeB = readInts(in);
+			int[] upOffsets = readInts(in);
+			int[] upEdges = readInts(in);
+			int[] downOffsets = readInts(in);
+			int[] downEdges = readInts(in);
+			return new ContractionHierarchy(profile, obfLength, obfDateCreated, nodeKeys, edgeFrom, edgeTo, edgeWeight,
+					edgeRoad, edgeA, edgeB, upOffsets, upEdges, downOffsets, downEdges);
+		} finally {
+			in.close();
+		}
+	}
+
+	public void write(File f) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(profile);
+			out.writeLong(obfLength);
+			out.writeLong(obfDateCreated);
+			writeLongs(out, nodeKeys);
+			writeInts(out, edgeFrom);
+			writeInts(out, edgeTo);
+			out.writeInt(edgeWeight.length);
+			for (float w : edgeWeight) {
+				out.writeFloat(w);
+			}
+			writeLongs(out, edgeRoad);
+			writeInts(out, edgeA);
+			writeInts(out, edgeB);
+			writeInts(out, upOffsets);
+			writeInts(out, upEdges);
+			writeInts(out, downOffsets);
+			writeInts(out, downEdges);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] r = new int[in.readInt()];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = in.readInt();
+		}
+		return r;
+	}
+
+	private static long[] readLongs(DataInputStream in) throws IOException {
+		long[] r = new long[in.readInt()];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = in.readLong();
+		}
+		return r;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a) throws IOException {
+		out.writeInt(a.length);
+		for (int v : a) {
+			out.writeInt(v);
+		}
+	}
+
+	private static void writeLongs(DataOutputStream out, long[] a) throws IOException {
+		out.writeInt(a.length);
+		for (long v : a) {
+			out.writeLong(v);
+		}
+	}
+
+	static long nodeKey(int x31, int y31) {
+		return (((long) x31) << 31) + (long) y31;
+	}
+
+	int findNode(int x31, int y31) {
+		int ind = Arrays.binarySearch(nodeKeys, nodeKey(x31, y31));
+		return ind < 0 ? -1 : ind;
+	}
+
+	/**
+	 * Travel time along the road between 2 points (the same way as A* calculates it), -1 if road is not passable
+	 */
+	static float calculatePieceTime(VehicleRouter router, RouteDataObject road, int from, int to) {
+		float dist = 0;
+		float obstacles = 0;
+		int step = from < to ? 1 : -1;
+		for (int i = from; i != to; i += step) {
+			int next = i + step;
+			dist += BinaryRoutePlanner.squareRootDist(road.getPoint31XTile(i), road.getPoint31YTile(i),
+					road.getPoint31XTile(next), road.getPoint31YTile(next));
+			float obstacle = router.defineRoutingObstacle(road, next);
+			if (obstacle < 0) {
+				return -1;
+			}
+			obstacles += obstacle;
+		}
+		return BinaryRoutePlanner.calculateTimeWithObstacles(router, road, dist, obstacles);
+	}
+
+	private static class Access {
+		final int node;
+		final int nodePoint;
+		final float time;
+
+		public Access(int node, int nodePoint, float time) {
+			this.node = node;
+			this.nodePoint = nodePoint;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * Nearest nodes of the road reachable from point (start) or reaching point (end)
+	 */
+	private List<Access> attach(VehicleRouter router, RouteDataObject road, int point, boolean start) {
+		List<Access> res = new ArrayList<Access>(2);
+		int oneway = router.isOneWay(road);
+		// moving with increasing point index
+		if (oneway >= 0) {
+			int step = start ? 1 : -1;
+			for (int k = point; k >= 0 && k < road.getPointsLength(); k += step) {
+				int node = findNode(road.getPoint31XTile(k), road.getPoint31YTile(k));
+				if (node >= 0) {
+					addAccess(router, road, point, start, res, k, node);
+					break;
+				}
+			}
+		}
+		// moving with decreasing point index
+		if (oneway <= 0) {
+			int step = start ? -1 : 1;
+			for (int k = point; k >= 0 && k < road.getPointsLength(); k += step) {
+				int node = findNode(road.getPoint31XTile(k), road.getPoint31YTile(k));
+				if (node >= 0) {
+					addAccess(router, road, point, start, res, k, node);
+					break;
+				}
+			}
+		}
+		return res;
+	}
+
+	private void addAccess(VehicleRouter router, RouteDataObject road, int point, boolean start, List<Access> res,
+			int k, int node) {
+		float time = start ? calculatePieceTime(router, road, point, k) : calculatePieceTime(router, road, k, point);
+		if (time >= 0) {
+			res.add(new Access(node, k, time));
+		}
+	}
+
+	private static long pack(float dist, int parent) {
+		return (((long) Float.floatToIntBits(dist)) << 32) | (parent & 0xffffffffl);
+	}
+
+	private static float dist(long packed) {
+		return Float.intBitsToFloat((int) (packed >>> 32));
+	}
+
+	private static int parent(long packed) {
+		return (int) packed;
+	}
+
+	/**
+	 * Calculates route between start and end, returns null if points are not reachable with the hierarchy
+	 * (caller should fall back to A* then).
+	 */
+	public List<RouteSegmentResult> searchRoute(RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end)
+			throws InterruptedException {
+		VehicleRouter router = ctx.getRouter();
+		if (ctx.config.router.getImpassableRoadIds().length > 0) {
+			// user avoided roads are not part of hierarchy
+			return null;
+		}
+		long now = System.nanoTime();
+		List<Access> sources = attach(router, start.getRoad(), start.getSegmentStart(), true);
+		List<Access> targets = attach(router, end.getRoad(), end.getSegmentStart(), false);
+
+		float best = Float.POSITIVE_INFINITY;
+		int meet = -1;
+		boolean direct = false;
+		if (start.getRoad().getId() == end.getRoad().getId() && start.getSegmentStart() != end.getSegmentStart()) {
+			int oneway = router.isOneWay(start.getRoad());
+			boolean plus = start.getSegmentStart() < end.getSegmentStart();
+			if ((plus && oneway >= 0) || (!plus && oneway <= 0)) {
+				float t = calculatePieceTime(router, start.getRoad(), start.getSegmentStart(), end.getSegmentStart());
+				if (t >= 0) {
+					best = t;
+					direct = true;
+				}
+			}
+		}
+
+		TIntLongHashMap forward = new TIntLongHashMap();
+		TIntLongHashMap backward = new TIntLongHashMap();
+		NodeQueue forwardQueue = new NodeQueue();
+		NodeQueue backwardQueue = new NodeQueue();
+		initAccess(sources, forward, forwardQueue);
+		initAccess(targets, backward, backwardQueue);
+		int settled = 0;
+		while (!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+			boolean fwd = backwardQueue.isEmpty() || (!forwardQueue.isEmpty() &&
+					forwardQueue.peekKey() <= backwardQueue.peekKey());
+			NodeQueue queue = fwd ? forwardQueue : backwardQueue;
+			TIntLongHashMap visited = fwd ? forward : backward;
+			TIntLongHashMap opposite = fwd ? backward : forward;
+			// both queues can't improve found route
+			if (queue.peekKey() >= best) {
+				break;
+			}
+			float d = queue.peekKey();
+			int v = queue.poll();
+			if (dist(visited.get(v)) < d) {
+				continue;
+			}
+			settled++;
+			if (opposite.containsKey(v)) {
+				float t = d + dist(opposite.get(v));
+				if (t < best) {
+					best = t;
+					meet = v;
+					direct = false;
+				}
+			}
+			int[] offsets = fwd ? upOffsets : downOffsets;
+			int[] edges = fwd ? upEdges : downEdges;
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				int e = edges[i];
+				int w = fwd ? edgeTo[e] : edgeFrom[e];
+				float nd = d + edgeWeight[e];
+				if (!visited.containsKey(w) || dist(visited.get(w)) > nd) {
+					visited.put(w, pack(nd, e));
+					queue.push(nd, w);
+				}
+			}
+			if ((settled & 0xff) == 0 && ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+		ctx.visitedSegments += settled;
+		if (meet == -1 && !direct) {
+			return null;
+		}
+		List<RouteSegmentResult> result = new ArrayList<RouteSegmentResult>();
+		float routeTime = best;
+		if (direct) {
+			result.add(new RouteSegmentResult(start.getRoad(), start.getSegmentStart(), end.getSegmentStart()));
+		} else {
+			// edges from start to meet node
+			TIntArrayList path = new TIntArrayList();
+			int p = parent(forward.get(meet));
+			while (p >= 0) {
+				path.add(p);
+				p = parent(forward.get(edgeFrom[p]));
+			}
+			Access source = sources.get(-p - 1);
+			path.reverse();
+			p = parent(backward.get(meet));
+			while (p >= 0) {
+				path.add(p);
+				p = parent(backward.get(edgeTo[p]));
+			}
+			Access target = targets.get(-p - 1);
+			// parents could be improved after meeting node was found, so time is taken from unpacked path
+			routeTime = source.time + target.time;
+			for (int i = 0; i < path.size(); i++) {
+				routeTime += edgeWeight[path.get(i)];
+			}
+
+			addPiece(result, start.getRoad(), start.getSegmentStart(), source.nodePoint);
+			TLongObjectHashMap<RouteDataObject> roads = new TLongObjectHashMap<RouteDataObject>();
+			roads.put(start.getRoad().getId(), start.getRoad());
+			roads.put(end.getRoad().getId(), end.getRoad());
+			for (int i = 0; i < path.size(); i++) {
+				if (!unpackEdge(ctx, path.get(i), roads, result)) {
+					log.warn("Road of contraction hierarchy edge is not found (hierarchy is outdated ?)");
+					return null;
+				}
+			}
+			addPiece(result, end.getRoad(), target.nodePoint, end.getSegmentStart());
+		}
+		if (hasRestrictedTurn(ctx, result)) {
+			log.info("Contraction hierarchy route has restricted turn");
+			return null;
+		}
+		ctx.routingTime = routeTime;
+		ctx.timeToCalculate = System.nanoTime() - now;
+		log.info("Contraction hierarchy route " + routeTime + " s : settled nodes " + settled + ", time "
+				+ (System.nanoTime() - now) / 1e6 + " ms");
+		return result;
+	}
+
+	/**
+	 * Checks turns of the route the same way as A* does : "no" restriction of the road (or of the previous road
+	 * for restrictions via road) forbids turn to the restricted road, "only" restriction forbids turns to other roads
+	 * at junction with the restricted road.
+	 */
+	private boolean hasRestrictedTurn(RoutingContext ctx, List<RouteSegmentResult> result) {
+		if (!ctx.getRouter().restrictionsAware()) {
+			return false;
+		}
+		RouteDataObject via = null;
+		for (int i = 1; i < result.size(); i++) {
+			RouteSegmentResult prev = result.get(i - 1);
+			RouteDataObject road = prev.getObject();
+			RouteDataObject next = result.get(i).getObject();
+			if (road.getId() == next.getId()) {
+				continue;
+			}
+			if (isNoRestriction(getRestrictionType(road, next.getId()))
+					|| (via != null && isNoRestriction(getRestrictionType(via, next.getId())))) {
+				return true;
+			}
+			for (int k = 0; k < road.getRestrictionLength(); k++) {
+				int type = road.getRestrictionType(k);
+				if (type == MapRenderingTypes.RESTRICTION_ONLY_RIGHT_TURN
+						|| type == MapRenderingTypes.RESTRICTION_ONLY_LEFT_TURN
+						|| type == MapRenderingTypes.RESTRICTION_ONLY_STRAIGHT_ON) {
+					long onlyTo = road.getRestrictionId(k);
+					if (onlyTo != next.getId() && isRoadAtPoint(ctx, onlyTo, road, prev.getEndPointIndex())) {
+						return true;
+					}
+				}
+			}
+			via = road;
+		}
+		return false;
+	}
+
+	private static int getRestrictionType(RouteDataObject road, long to) {
+		for (int k = 0; k < road.getRestrictionLength(); k++) {
+			if (road.getRestrictionId(k) == to) {
+				return road.getRestrictionType(k);
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isNoRestriction(int type) {
+		return type == MapRenderingTypes.RESTRICTION_NO_LEFT_TURN || type == MapRenderingTypes.RESTRICTION_NO_RIGHT_TURN
+				|| type == MapRenderingTypes.RESTRICTION_NO_STRAIGHT_ON || type == MapRenderingTypes.RESTRICTION_NO_U_TURN;
+	}
+
+	private static boolean isRoadAtPoint(RoutingContext ctx, long roadId, RouteDataObject road, int point) {
+		RouteSegment s = ctx.loadRouteSegment(road.getPoint31XTile(point), road.getPoint31YTile(point), 0);
+		while (s != null) {
+			if (s.getRoad().getId() == roadId) {
+				return true;
+			}
+			s = s.getNext();
+		}
+		return false;
+	}
+
+	private void initAccess(List<Access> access, TIntLongHashMap visited, NodeQueue queue) {
+		for (int i = 0; i < access.size(); i++) {
+			Access a = access.get(i);
+			if (!visited.containsKey(a.node) || dist(visited.get(a.node)) > a.time) {
+				visited.put(a.node, pack(a.time, -i - 1));
+				queue.push(a.time, a.node);
+			}
+		}
+	}
+
+	private boolean unpackEdge(RoutingContext ctx, int edge, TLongObjectHashMap<RouteDataObject> roads,
+			List<RouteSegmentResult> result) {
+		TIntArrayList stack = new TIntArrayList();
+		stack.add(edge);
+		while (!stack.isEmpty()) {
+			int e = stack.removeAt(stack.size() - 1);
+			if (edgeRoad[e] < 0) {
+				stack.add(edgeB[e]);
+				stack.add(edgeA[e]);
+				continue;
+			}
+			RouteDataObject road = roads.get(edgeRoad[e]);
+			if (road == null) {
+				road = loadRoad(ctx, e);
+				if (road == null) {
+					return false;
+				}
+				roads.put(road.getId(), road);
+			}
+			addPiece(result, road, edgeA[e], edgeB[e]);
+		}
+		return true;
+	}
+
+	private RouteDataObject loadRoad(RoutingContext ctx, int e) {
+		long key = nodeKeys[edgeFrom[e]];
+		int x31 = (int) (key >> 31);
+		int y31 = (int) (key & MASK_31);
+		RouteSegment s = ctx.loadRouteSegment(x31, y31, 0);
+		while (s != null) {
+			RouteDataObject road = s.getRoad();
+			if (road.getId() == edgeRoad[e] && edgeA[e] < road.getPointsLength() && edgeB[e] < road.getPointsLength()
+					&& road.getPoint31XTile(edgeA[e]) == x31 && road.getPoint31YTile(edgeA[e]) == y31) {
+				return road;
+			}
+			s = s.getNext();
+		}
+		return null;
+	}
+
+	private void addPiece(List<RouteSegmentResult> result, RouteDataObject road, int from, int to) {
+		if (from == to) {
+			return;
+		}
+		if (result.size() > 0) {
+			RouteSegmentResult last = result.get(result.size() - 1);
+			boolean lastPlus = last.getStartPointIndex() < last.getEndPointIndex();
+			if (last.getObject().getId() == road.getId() && last.getEndPointIndex() == from && lastPlus == (from < to)) {
+				last.setEndPointIndex(to);
+				return;
+			}
+		}
+		result.add(new RouteSegmentResult(road, from, to));
+	}
+
+	/**
+	 * Binary heap of nodes by float key (without decrease key, so node could be polled several times)
+	 */
+	static class NodeQueue {
+		private float[] keys = new float[64];
+		private int[] nodes = new int[64];
+		private int size = 0;
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			size = 0;
+		}
+
+		public float peekKey() {
+			return keys[0];
+		}
+
+		public void push(float key, int node) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				nodes = Arrays.copyOf(nodes, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int p = (i - 1) >> 1;
+				if (keys[p] <= key) {
+					break;
+				}
+				keys[i] = keys[p];
+				nodes[i] = nodes[p];
+				i = p;
+			}
+			keys[i] = key;
+			nodes[i] = node;
+		}
+
+		public int poll() {
+			int res = nodes[0];
+			size--;
+			float key = keys[size];
+			int node = nodes[size];
+			int i = 0;
+			while (true) {
+				int c = 2 * i + 1;
+				if (c >= size) {
+					break;
+				}
+				if (c + 1 < size && keys[c + 1] < keys[c]) {
+					c++;
+				}
+				if (key <= keys[c]) {
+					break;
+				}
+				keys[i] = keys[c];
+				nodes[i] = nodes[c];
+				i = c;
+			}
+			keys[i] = key;
+			nodes[i] = node;
+			return res;
+		}
+	}
+
+}
@@ -0,0 +1,363 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.ContractionHierarchy.NodeQueue;
+import net.osmand.router.RoadGraphExtractor.RoadVisitor;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Offline preprocessing of routing section of obf file into {@link ContractionHierarchy} for one routing profile.
+ * Nodes are contracted in order of edge difference (shortcuts added - edges removed) plus number of contracted
+ * neighbours, priorities are updated lazily. Shortcut u -> x through v is added only if limited witness search
+ * from u (without v) doesn't find path as short as u -> v -> x.
+ *
+ * Usage : ContractionHierarchyBuilder [-routingXmlPath=PATH] [-vehicle=car] [-params=avoid_toll,...] file.obf ...
+ */
+public class ContractionHierarchyBuilder {
+
+	private final static Log log = PlatformUtil.getLog(ContractionHierarchyBuilder.class);
+	// settled nodes limit of witness search (more - less shortcuts but slower preprocessing)
+	private static final int WITNESS_SETTLED_LIMIT = 250;
+
+	private final RoutingConfiguration config;
+	private final VehicleRouter router;
+
+	// 1. nodes
+	private RoadGraphExtractor graph;
+	private long[] nodeKeys;
+
+	// 2. edges (weights are stored as float bits)
+	private TIntArrayList edgeFrom = new TIntArrayList();
+	private TIntArrayList edgeTo = new TIntArrayList();
+	private TIntArrayList edgeWeight = new TIntArrayList();
+	private TLongArrayList edgeRoad = new TLongArrayList();
+	private TIntArrayList edgeA = new TIntArrayList();
+	private TIntArrayList edgeB = new TIntArrayList();
+	private TIntArrayList[] outEdges;
+	private TIntArrayList[] inEdges;
+
+	// 3. contraction state
+	private boolean[] contracted;
+	private int[] contractedNeighbours;
+	private float[] witnessDist;
+	private TIntArrayList witnessTouched = new TIntArrayList();
+	private NodeQueue witnessQueue = new NodeQueue();
+	private int shortcuts = 0;
+
+	public ContractionHierarchyBuilder(RoutingConfiguration config) {
+		this.config = config;
+		this.router = config.router;
+	}
+
+	public ContractionHierarchy build(BinaryMapIndexReader reader) throws IOException {
+		long now = System.currentTimeMillis();
+		graph = new RoadGraphExtractor(router);
+		nodeKeys = graph.extractNodes(reader);
+		int n = nodeKeys.length;
+		outEdges = new TIntArrayList[n];
+		inEdges = new TIntArrayList[n];
+		graph.processRoads(reader, new RoadVisitor() {
+			@Override
+			public void visitRoad(RouteDataObject road) {
+				addRoadEdges(road);
+			}
+		});
+		int originalEdges = edgeFrom.size();
+		log.info("Route graph : " + n + " nodes, " + originalEdges + " edges " + (System.currentTimeMillis() - now) + " ms");
+
+		int[] rank = contract();
+		log.info("Contracted : " + shortcuts + " shortcuts " + (System.currentTimeMillis() - now) + " ms");
+
+		int m = edgeFrom.size();
+		float[] weights = new float[m];
+		for (int i = 0; i < m; i++) {
+			weights[i] = Float.intBitsToFloat(edgeWeight.get(i));
+		}
+		int[] from = edgeFrom.toArray();
+		int[] to = edgeTo.toArray();
+		int[] upOffsets = new int[n + 1];
+		int[] downOffsets = new int[n + 1];
+		for (int e = 0; e < m; e++) {
+			if (rank[from[e]] < rank[to[e]]) {
+				upOffsets[from[e] + 1]++;
+			} else {
+				downOffsets[to[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			upOffsets[i + 1] += upOffsets[i];
+			downOffsets[i + 1] += downOffsets[i];
+		}
+		int[] upEdges = new int[upOffsets[n]];
+		int[] downEdges = new int[downOffsets[n]];
+		int[] upFill = Arrays.copyOf(upOffsets, n);
+		int[] downFill = Arrays.copyOf(downOffsets, n);
+		for (int e = 0; e < m; e++) {
+			if (rank[from[e]] < rank[to[e]]) {
+				upEdges[upFill[from[e]]++] = e;
+			} else {
+				downEdges[downFill[to[e]]++] = e;
+			}
+		}
+		outEdges = null;
+		inEdges = null;
+		return new ContractionHierarchy(ContractionHierarchy.getProfileKey(config), reader.getFile().length(),
+				reader.getDateCreated(), nodeKeys, from, to, weights, edgeRoad.toArray(), edgeA.toArray(),
+				edgeB.toArray(), upOffsets, upEdges, downOffsets, downEdges);
+	}
+
+	private void addRoadEdges(RouteDataObject ro) {
+		int oneway = router.isOneWay(ro);
+		int prevPoint = 0;
+		int prevNode = graph.findNode(ro, 0);
+		for (int i = 1; i < ro.getPointsLength(); i++) {
+			int node = graph.findNode(ro, i);
+			if (node < 0) {
+				continue;
+			}
+			if (node != prevNode) {
+				if (oneway >= 0) {
+					float w = ContractionHierarchy.calculatePieceTime(router, ro, prevPoint, i);
+					if (w >= 0) {
+						addEdge(prevNode, node, w, ro.getId(), prevPoint, i);
+					}
+				}
+				if (oneway <= 0) {
+					float w = ContractionHierarchy.calculatePieceTime(router, ro, i, prevPoint);
+					if (w >= 0) {
+						addEdge(node, prevNode, w, ro.getId(), i, prevPoint);
+					}
+				}
+			}
+			prevNode = node;
+			prevPoint = i;
+		}
+	}
+
+	private int addEdge(int from, int to, float weight, long road, int a, int b) {
+		int e = edgeFrom.size();
+		edgeFrom.add(from);
+		edgeTo.add(to);
+		edgeWeight.add(Float.floatToIntBits(weight));
+		edgeRoad.add(road);
+		edgeA.add(a);
+		edgeB.add(b);
+		if (outEdges[from] == null) {
+			outEdges[from] = new TIntArrayList(4);
+		}
+		outEdges[from].add(e);
+		if (inEdges[to] == null) {
+			inEdges[to] = new TIntArrayList(4);
+		}
+		inEdges[to].add(e);
+		return e;
+	}
+
+	private float weight(int e) {
+		return Float.intBitsToFloat(edgeWeight.get(e));
+	}
+
+	private int[] contract() {
+		int n = nodeKeys.length;
+		contracted = new boolean[n];
+		contractedNeighbours = new int[n];
+		witnessDist = new float[n];
+		Arrays.fill(witnessDist, Float.POSITIVE_INFINITY);
+		int[] rank = new int[n];
+		NodeQueue order = new NodeQueue();
+		for (int v = 0; v < n; v++) {
+			order.push(priority(v), v);
+		}
+		int r = 0;
+		while (!order.isEmpty()) {
+			int v = order.poll();
+			// lazy update : priority could grow since node was queued
+			float p = priority(v);
+			if (!order.isEmpty() && p > order.peekKey()) {
+				order.push(p, v);
+				continue;
+			}
+			processNode(v, true);
+			contracted[v] = true;
+			rank[v] = r++;
+			incrementNeighbours(outEdges[v], edgeTo);
+			incrementNeighbours(inEdges[v], edgeFrom);
+			if (r % 100000 == 0) {
+				log.info("Contracted " + r + " of " + n + " nodes, shortcuts " + shortcuts);
+			}
+		}
+		return rank;
+	}
+
+	private void incrementNeighbours(TIntArrayList edges, TIntArrayList nodes) {
+		if (edges != null) {
+			for (int i = 0; i < edges.size(); i++) {
+				int u = nodes.get(edges.get(i));
+				if (!contracted[u]) {
+					contractedNeighbours[u]++;
+				}
+			}
+		}
+	}
+
+	private float priority(int v) {
+		int removed = activeDegree(outEdges[v], edgeTo) + activeDegree(inEdges[v], edgeFrom);
+		return processNode(v, false) - removed + contractedNeighbours[v];
+	}
+
+	private int activeDegree(TIntArrayList edges, TIntArrayList nodes) {
+		int d = 0;
+		if (edges != null) {
+			for (int i = 0; i < edges.size(); i++) {
+				if (!contracted[nodes.get(edges.get(i))]) {
+					d++;
+				}
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Collects not contracted neighbours with minimal edge (parallel edges are possible)
+	 */
+	private void collectNeighbours(int v, TIntArrayList edges, TIntArrayList nodes, TIntArrayList resNodes,
+			TIntArrayList resEdges) {
+		if (edges == null) {
+			return;
+		}
+		for (int i = 0; i < edges.size(); i++) {
+			int e = edges.get(i);
+			int u = nodes.get(e);
+			if (contracted[u] || u == v) {
+				continue;
+			}
+			int ind = resNodes.indexOf(u);
+			if (ind < 0) {
+				resNodes.add(u);
+				resEdges.add(e);
+			} else if (weight(e) < weight(resEdges.get(ind))) {
+				resEdges.set(ind, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns number of shortcuts needed to contract node v (and adds them if add is true)
+	 */
+	private int processNode(int v, boolean add) {
+		TIntArrayList ins = new TIntArrayList();
+		TIntArrayList inE = new TIntArrayList();
+		TIntArrayList outs = new TIntArrayList();
+		TIntArrayList outE = new TIntArrayList();
+		collectNeighbours(v, inEdges[v], edgeFrom, ins, inE);
+		collectNeighbours(v, outEdges[v], edgeTo, outs, outE);
+		int cnt = 0;
+		for (int i = 0; i < ins.size(); i++) {
+			int u = ins.get(i);
+			float wu = weight(inE.get(i));
+			float maxDist = 0;
+			for (int j = 0; j < outs.size(); j++) {
+				if (outs.get(j) != u) {
+					maxDist = Math.max(maxDist, wu + weight(outE.get(j)));
+				}
+			}
+			if (maxDist == 0) {
+				continue;
+			}
+			witnessSearch(u, v, maxDist);
+			for (int j = 0; j < outs.size(); j++) {
+				int x = outs.get(j);
+				float via = wu + weight(outE.get(j));
+				if (x != u && witnessDist[x] > via) {
+					cnt++;
+					if (add) {
+						addShortcut(u, x, via, inE.get(i), outE.get(j));
+					}
+				}
+			}
+			clearWitness();
+		}
+		return cnt;
+	}
+
+	private void addShortcut(int u, int x, float via, int e1, int e2) {
+		TIntArrayList out = outEdges[u];
+		if (out != null) {
+			for (int i = 0; i < out.size(); i++) {
+				int e = out.get(i);
+				if (edgeTo.get(e) == x && weight(e) <= via) {
+					return;
+				}
+			}
+		}
+		addEdge(u, x, via, -1, e1, e2);
+		shortcuts++;
+	}
+
+	private void witnessSearch(int source, int excluded, float maxDist) {
+		witnessQueue.clear();
+		witnessDist[source] = 0;
+		witnessTouched.add(source);
+		witnessQueue.push(0, source);
+		int settled = 0;
+		while (!witnessQueue.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+			float d = witnessQueue.peekKey();
+			int v = witnessQueue.poll();
+			if (d > witnessDist[v]) {
+				continue;
+			}
+			if (d > maxDist) {
+				break;
+			}
+			settled++;
+			TIntArrayList out = outEdges[v];
+			if (out == null) {
+				continue;
+			}
+			for (int i = 0; i < out.size(); i++) {
+				int e = out.get(i);
+				int w = edgeTo.get(e);
+				if (w == excluded || contracted[w]) {
+					continue;
+				}
+				float nd = d + weight(e);
+				if (nd < witnessDist[w]) {
+					if (witnessDist[w] == Float.POSITIVE_INFINITY) {
+						witnessTouched.add(w);
+					}
+					witnessDist[w] = nd;
+					witnessQueue.push(nd, w);
+				}
+			}
+		}
+	}
+
+	private void clearWitness() {
+		for (int i = 0; i < witnessTouched.size(); i++) {
+			witnessDist[witnessTouched.get(i)] = Float.POSITIVE_INFINITY;
+		}
+		witnessTouched.resetQuick();
+	}
+
+	public static void main(String[] args) throws Exception {
+		new ObfPreprocessingTool("Builds contraction hierarchy files of routing profile next to obf files.", "") {
+			@Override
+			protected String process(RoutingConfiguration config, BinaryMapIndexReader reader) throws IOException {
+				ContractionHierarchy ch = new ContractionHierarchyBuilder(config).build(reader);
+				File out = ContractionHierarchy.getFile(reader.getFile(), ch.getProfile());
+				ch.write(out);
+				return out.getName() + " : " + ch.getNodesCount() + " nodes, " + ch.getEdgesCount() + " edges";
+			}
+		}.run(args);
+	}
+}
@@ -4,6 +4,7 @@ import gnu.trove.set.hash.TLongHashSet;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -13,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
@@ -24,6 +26,7 @@ import net.osmand.util.MapUtils;
 public class GeneralRouter implements VehicleRouter {
 	
 	private static final float CAR_SHORTEST_DEFAULT_SPEED = 55/3.6f;
+	private static final int INITIAL_EVALUATED_SIZE = 64;
 	public static final String USE_SHORTEST_WAY = "short_way";
 	public static final String AVOID_FERRIES = "avoid_ferries";
 	public static final String AVOID_TOLL = "avoid_toll";
@@ -40,7 +43,8 @@ public class GeneralRouter implements VehicleRouter {
 	private final ArrayList<Object> ruleToValue;
 	private boolean shortestRoute;
 	
-	private Map<RouteRegion, Map<Integer, Integer>> regionConvert = new LinkedHashMap<RouteRegion, Map<Integer,Integer>>();
+	// router could be evaluated by several threads (parallel route search) : conversion maps are copied on write
+	private Map<RouteRegion, Map<Integer, Integer>> regionConvert = new ConcurrentHashMap<RouteRegion, Map<Integer,Integer>>();
 	
 	// cached values
 	private boolean restrictionsAware = true;
@@ -104,7 +108,7 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		universalRules = new LinkedHashMap<String, Integer>();
 		universalRulesById = new ArrayList<String>();
-		tagRuleMask = new LinkedHashMap<String, BitSet>();
+		tagRuleMask = new ConcurrentHashMap<String, BitSet>();
 		ruleToValue = new ArrayList<Object>();
 		parameters = new LinkedHashMap<String, GeneralRouter.RoutingParameter>();
 	}
@@ -199,17 +203,32 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private int registerTagValueAttribute(String tag, String value) {
 		String key = tag +"$"+value;
-		if(universalRules.containsKey(key)) {
-			return universalRules.get(key);
+		synchronized (universalRules) {
+			if(universalRules.containsKey(key)) {
+				return universalRules.get(key);
+			}
+			int id = universalRules.size();
+			universalRulesById.add(key);
+			universalRules.put(key, id);
+			if(!tagRuleMask.containsKey(tag)) {
+				tagRuleMask.put(tag, new BitSet());
+			}
+			tagRuleMask.get(tag).set(id);
+			return id;
 		}
-		int id = universalRules.size();
-		universalRulesById.add(key);
-		universalRules.put(key, id);
-		if(!tagRuleMask.containsKey(tag)) {
-			tagRuleMask.put(tag, new BitSet());
+	}
+
+	private Map<Integer, Integer> registerRegionType(RouteRegion reg, int type) {
+		synchronized (universalRules) {
+			Map<Integer, Integer> map = regionConvert.get(reg);
+			if (map == null || !map.containsKey(type)) {
+				map = map == null ? new HashMap<Integer, Integer>() : new HashMap<Integer, Integer>(map);
+				RouteTypeRule r = reg.quickGetEncodingRule(type);
+				map.put(type, registerTagValueAttribute(r.getTag(), r.getValue()));
+				regionConvert.put(reg, map);
+			}
+			return map;
 		}
-		tagRuleMask.get(tag).set(id);
-		return id;
 	}
 	
 	
@@ -236,18 +255,21 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	private Object parseValueFromTag(int id, String type) {
-		while (ruleToValue.size() <= id) {
-			ruleToValue.add(null);
-		}
-		Object res = ruleToValue.get(id);
-		if (res == null) {
-			String v = universalRulesById.get(id);
-			String value = v.substring(v.indexOf('$') + 1);
-			res = parseValue(value, type);
+		Object res;
+		synchronized (universalRules) {
+			while (ruleToValue.size() <= id) {
+				ruleToValue.add(null);
+			}
+			res = ruleToValue.get(id);
 			if (res == null) {
-				res = "";
+				String v = universalRulesById.get(id);
+				String value = v.substring(v.indexOf('$') + 1);
+				res = parseValue(value, type);
+				if (res == null) {
+					res = "";
+				}
+				ruleToValue.set(id, res);
 			}
-			ruleToValue.set(id, res);
 		}
 		if ("".equals(res)) {
 			return null;
@@ -432,9 +454,40 @@ public class GeneralRouter implements VehicleRouter {
 		private Map<String, String> vars;
 	}
 	
+	private static class EvaluatedTypes {
+		private final int hash;
+		private final RouteRegion region;
+		private final int[] types;
+		private final Object value;
+		private final EvaluatedTypes next;
+
+		public EvaluatedTypes(int hash, RouteRegion region, int[] types, Object value, EvaluatedTypes next) {
+			this.hash = hash;
+			this.region = region;
+			this.types = types;
+			this.value = value;
+			this.next = next;
+		}
+
+		public EvaluatedTypes find(RouteRegion region, int[] types) {
+			EvaluatedTypes e = this;
+			while (e != null) {
+				if (e.region == region && Arrays.equals(e.types, types)) {
+					return e;
+				}
+				e = e.next;
+			}
+			return null;
+		}
+	}
+	
 	public class RouteAttributeContext {
 		List<RouteAttributeEvalRule> rules = new ArrayList<RouteAttributeEvalRule>();
 		ParameterContext paramContext = null;
+		// values evaluated by region and types of object, chained by hash of types.
+		// Table is copied on write, so evaluated values are read without lock by several threads
+		private volatile EvaluatedTypes[] evaluated = new EvaluatedTypes[INITIAL_EVALUATED_SIZE];
+		private int evaluatedSize = 0;
 		
 		public RouteAttributeContext(){
 		}
@@ -469,7 +522,55 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		
 		private Object evaluate(RouteDataObject ro) {
-			return evaluate(convert(ro.region, ro.types));
+			return evaluate(ro.region, ro.types);
+		}
+		
+		private Object evaluate(RouteRegion region, int[] types) {
+			int hash = typesHash(region, types);
+			EvaluatedTypes[] table = evaluated;
+			EvaluatedTypes e = table[hash & (table.length - 1)];
+			if (e != null) {
+				e = e.find(region, types);
+				if (e != null) {
+					return e.value;
+				}
+			}
+			Object value = evaluate(convert(region, types));
+			addEvaluated(hash, region, types, value);
+			return value;
+		}
+		
+		private synchronized void addEvaluated(int hash, RouteRegion region, int[] types, Object value) {
+			EvaluatedTypes[] table = evaluated;
+			EvaluatedTypes e = table[hash & (table.length - 1)];
+			// value could be evaluated by other thread meanwhile
+			if (e != null && e.find(region, types) != null) {
+				return;
+			}
+			EvaluatedTypes[] copy;
+			if (evaluatedSize >= table.length * 3 / 4) {
+				copy = new EvaluatedTypes[table.length << 1];
+				for (int k = 0; k < table.length; k++) {
+					for (e = table[k]; e != null; e = e.next) {
+						int ind = e.hash & (copy.length - 1);
+						copy[ind] = new EvaluatedTypes(e.hash, e.region, e.types, e.value, copy[ind]);
+					}
+				}
+			} else {
+				copy = table.clone();
+			}
+			int ind = hash & (copy.length - 1);
+			copy[ind] = new EvaluatedTypes(hash, region, types, value, copy[ind]);
+			evaluatedSize++;
+			evaluated = copy;
+		}
+		
+		private int typesHash(RouteRegion region, int[] types) {
+			int h = System.identityHashCode(region);
+			for (int k = 0; k < types.length; k++) {
+				h = h * 31 + types[k];
+			}
+			return h ^ (h >>> 16);
 		}
 
 		public void printRules(PrintStream out) {
@@ -482,6 +583,10 @@ public class GeneralRouter implements VehicleRouter {
 			RouteAttributeEvalRule ev = new RouteAttributeEvalRule();
 			ev.registerSelectValue(selectValue, selectType);
 			rules.add(ev);	
+			synchronized (this) {
+				evaluated = new EvaluatedTypes[INITIAL_EVALUATED_SIZE];
+				evaluatedSize = 0;
+			}
 			return ev;
 		}
 		
@@ -528,7 +633,7 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		
 		public int evaluateInt(RouteRegion region, int[] types, int defValue) {
-			Object o = evaluate(convert(region, types));
+			Object o = evaluate(region, types);
 			if(!(o instanceof Number)){
 				return defValue;
 			}
@@ -544,7 +649,7 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		
 		public float evaluateFloat(RouteRegion region, int[] types, float defValue) {
-			Object o = evaluate(convert(region, types));
+			Object o = evaluate(region, types);
 			if(!(o instanceof Number)) {
 				return defValue;
 			}
@@ -554,16 +659,11 @@ public class GeneralRouter implements VehicleRouter {
 		private BitSet convert(RouteRegion reg, int[] types) {
 			BitSet b = new BitSet(universalRules.size());
 			Map<Integer, Integer> map = regionConvert.get(reg);
-			if(map == null){
-				map = new HashMap<Integer, Integer>();
-				regionConvert.put(reg, map);
-			}
 			for(int k = 0; k < types.length; k++) {
-				Integer nid = map.get(types[k]);
+				Integer nid = map == null ? null : map.get(types[k]);
 				if(nid == null){
-					RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
-					nid = registerTagValueAttribute(r.getTag(), r.getValue());
-					map.put(types[k], nid);
+					map = registerRegionType(reg, types[k]);
+					nid = map.get(types[k]);
 				}
 				b.set(nid);
 			}
@@ -656,7 +756,6 @@ public class GeneralRouter implements VehicleRouter {
 		protected String selectType = null;
 		protected BitSet filterTypes = new BitSet();
 		protected BitSet filterNotTypes = new BitSet();
-		protected BitSet evalFilterTypes = new BitSet();
 		
 		protected Set<String> onlyTags = new LinkedHashSet<String>();
 		protected Set<String> onlyNotTags = new LinkedHashSet<String>();
@@ -852,14 +951,12 @@ public class GeneralRouter implements VehicleRouter {
 		}
 
 		private boolean checkAllTypesShouldBePresent(BitSet types) {
-			// Bitset method subset is missing "filterTypes.isSubset(types)"    
-			// reset previous evaluation
-			// evalFilterTypes.clear(); // not needed same as or()
-			evalFilterTypes.or(filterTypes);
-			// evaluate bit intersection and check if filterTypes contained as set in types
-			evalFilterTypes.and(types);
-			if(!evalFilterTypes.equals(filterTypes)) {
-				return false;
+			// Bitset method subset is missing "filterTypes.isSubset(types)"
+			// (rule could be evaluated by several threads, so no temporary bitset is kept in rule)
+			for (int i = filterTypes.nextSetBit(0); i >= 0; i = filterTypes.nextSetBit(i + 1)) {
+				if (!types.get(i)) {
+					return false;
+				}
 			}
 			return true;
 		}
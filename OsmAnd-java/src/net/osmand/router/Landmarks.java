@@ -0,0 +1,243 @@
+package net.osmand.router;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Landmark distance tables (ALT heuristic) of the routing graph of one obf file for one routing profile
+ * (built offline by {@link LandmarksBuilder} and stored next to obf file).
+ *
+ * Nodes of the graph are the same as A* intersections (road points shared by several roads and road ends), for every
+ * node travel times from and to every landmark are stored. By triangle inequality route time from v to t is not less
+ * than d(v, L) - d(t, L) and d(L, t) - d(L, v) for any landmark L, so maximum of them is admissible estimate
+ * which is much better than straight line distance with maximum speed. Edge times of tables don't include
+ * obstacles and turn times, so estimate stays lower bound of A* route time.
+ */
+public class Landmarks {
+
+	private final static Log log = PlatformUtil.getLog(Landmarks.class);
+
+	public static final String FILE_EXT = ".landmarks";
+	private static final int MAGIC = 0x4f4c4d4b;
+	private static final int VERSION = 1;
+
+	final String profile;
+	final long obfLength;
+	final long obfDateCreated;
+
+	// nodes sorted by (x31 << 31) + y31, node id is index
+	final long[] nodeKeys;
+	final int[] landmarkNodes;
+	// travel time from landmark to node and from node to landmark [node * landmarks + landmark],
+	// infinity if node is not reachable
+	final float[] fromLandmark;
+	final float[] toLandmark;
+
+	Landmarks(String profile, long obfLength, long obfDateCreated, long[] nodeKeys, int[] landmarkNodes,
+			float[] fromLandmark, float[] toLandmark) {
+		this.profile = profile;
+		this.obfLength = obfLength;
+		this.obfDateCreated = obfDateCreated;
+		this.nodeKeys = nodeKeys;
+		this.landmarkNodes = landmarkNodes;
+		this.fromLandmark = fromLandmark;
+		this.toLandmark = toLandmark;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public int getNodesCount() {
+		return nodeKeys.length;
+	}
+
+	public int getLandmarksCount() {
+		return landmarkNodes.length;
+	}
+
+	public static File getFile(File obf, String profileKey) {
+		return new File(obf.getParentFile(), obf.getName() + "." + profileKey + FILE_EXT);
+	}
+
+	/**
+	 * Loads landmarks of reader for routing profile, returns null if they are not built or outdated
+	 */
+	public static Landmarks load(BinaryMapIndexReader reader, RoutingConfiguration config) throws IOException {
+		String key = ContractionHierarchy.getProfileKey(config);
+		File f = getFile(reader.getFile(), key);
+		if (!f.exists()) {
+			return null;
+		}
+		Landmarks l = read(f);
+		if (l == null || !l.profile.equals(key) || l.obfLength != reader.getFile().length()
+				|| l.obfDateCreated != reader.getDateCreated()) {
+			log.warn("Landmarks " + f.getName() + " are outdated");
+			return null;
+		}
+		return l;
+	}
+
+	/**
+	 * Tables are lower bounds only for the graph of their obf file and routing profile, time dependent speeds
+	 * could make roads faster than in tables. When other maps are loaded together with the obf file
+	 * (neighbour regions), route which leaves the region could be faster than tables, so estimate could exceed
+	 * real time near region border and route found there is not guaranteed to be optimal.
+	 */
+	public boolean isApplicable(RoutingContext ctx) {
+		if (ctx.config.speedProfiles != null || ctx.calculationMode == RouteCalculationMode.BASE
+				|| !profile.equals(ContractionHierarchy.getProfileKey(ctx.config))) {
+			return false;
+		}
+		for (BinaryMapIndexReader reader : ctx.map.keySet()) {
+			if (reader.getFile() != null && reader.getFile().length() == obfLength
+					&& reader.getDateCreated() == obfDateCreated) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static Landmarks read(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			String profile = in.readUTF();
+			long obfLength = in.readLong();
+			long obfDateCreated = in.readLong();
+			long[] nodeKeys = new long[in.readInt()];
+			for (int i = 0; i < nodeKeys.length; i++) {
+				nodeKeys[i] = in.readLong();
+			}
+			int[] landmarkNodes = new int[in.readInt()];
+			for (int i = 0; i < landmarkNodes.length; i++) {
+				landmarkNodes[i] = in.readInt();
+			}
+			float[] fromLandmark = readFloats(in, nodeKeys.length * landmarkNodes.length);
+			float[] toLandmark = readFloats(in, nodeKeys.length * landmarkNodes.length);
+			return new Landmarks(profile, obfLength, obfDateCreated, nodeKeys, landmarkNodes, fromLandmark, toLandmark);
+		} finally {
+			in.close();
+		}
+	}
+
+	public void write(File f) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(profile);
+			out.writeLong(obfLength);
+			out.writeLong(obfDateCreated);
+			out.writeInt(nodeKeys.length);
+			for (long k : nodeKeys) {
+				out.writeLong(k);
+			}
+			out.writeInt(landmarkNodes.length);
+			for (int l : landmarkNodes) {
+				out.writeInt(l);
+			}
+			for (float d : fromLandmark) {
+				out.writeFloat(d);
+			}
+			for (float d : toLandmark) {
+				out.writeFloat(d);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static float[] readFloats(DataInputStream in, int length) throws IOException {
+		float[] r = new float[length];
+		for (int i = 0; i < length; i++) {
+			r[i] = in.readFloat();
+		}
+		return r;
+	}
+
+	int findNode(int x31, int y31) {
+		int ind = Arrays.binarySearch(nodeKeys, ContractionHierarchy.nodeKey(x31, y31));
+		return ind < 0 ? -1 : ind;
+	}
+
+	/**
+	 * Nodes through which route from (or to) the road point goes : the point itself or the nearest nodes
+	 * of the road on both sides, null if road is not in the graph
+	 */
+	int[] findRoadNodes(RouteDataObject road, int point) {
+		int node = findNode(road.getPoint31XTile(point), road.getPoint31YTile(point));
+		if (node >= 0) {
+			return new int[] { node };
+		}
+		int before = -1;
+		for (int i = point - 1; i >= 0 && before < 0; i--) {
+			before = findNode(road.getPoint31XTile(i), road.getPoint31YTile(i));
+		}
+		int after = -1;
+		for (int i = point + 1; i < road.getPointsLength() && after < 0; i++) {
+			after = findNode(road.getPoint31XTile(i), road.getPoint31YTile(i));
+		}
+		if (before < 0 || after < 0) {
+			return null;
+		}
+		return new int[] { before, after };
+	}
+
+	/**
+	 * Lower bound of route time from the point to the nearest of nodes (backward - from nodes to the point),
+	 * -1 if the point is not a node of the graph
+	 */
+	float estimate(int x31, int y31, int[] nodes, boolean backward) {
+		int v = findNode(x31, y31);
+		if (v < 0) {
+			return -1;
+		}
+		float res = Float.POSITIVE_INFINITY;
+		for (int t : nodes) {
+			res = Math.min(res, backward ? lowerBound(t, v) : lowerBound(v, t));
+		}
+		return res;
+	}
+
+	/**
+	 * Lower bound of route time between nodes
+	 */
+	float lowerBound(int from, int to) {
+		int count = landmarkNodes.length;
+		int f = from * count;
+		int t = to * count;
+		float res = 0;
+		for (int l = 0; l < count; l++) {
+			// d(from, to) >= d(from, L) - d(to, L)
+			float fl = toLandmark[f + l];
+			float tl = toLandmark[t + l];
+			if (fl != Float.POSITIVE_INFINITY && tl != Float.POSITIVE_INFINITY && fl - tl > res) {
+				res = fl - tl;
+			}
+			// d(from, to) >= d(L, to) - d(L, from)
+			float lt = fromLandmark[t + l];
+			float lf = fromLandmark[f + l];
+			if (lt != Float.POSITIVE_INFINITY && lf != Float.POSITIVE_INFINITY && lt - lf > res) {
+				res = lt - lf;
+			}
+		}
+		return res;
+	}
+}
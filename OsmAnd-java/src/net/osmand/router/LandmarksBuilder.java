@@ -0,0 +1,241 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.ContractionHierarchy.NodeQueue;
+import net.osmand.router.RoadGraphExtractor.RoadVisitor;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Offline preprocessing of routing section of obf file into {@link Landmarks} for one routing profile.
+ * Landmarks are selected by farthest selection : next landmark is the node with maximal travel time from already
+ * selected landmarks (so they lie on the border of the graph), first one is the farthest node from the middle node.
+ * Every landmark takes 2 Dijkstra searches over the whole graph and 8 bytes per node.
+ *
+ * Usage : LandmarksBuilder [-routingXmlPath=PATH] [-vehicle=car] [-params=avoid_toll,...] [-landmarks=16] file.obf ...
+ */
+public class LandmarksBuilder {
+
+	private final static Log log = PlatformUtil.getLog(LandmarksBuilder.class);
+	public static final int DEFAULT_LANDMARKS = 16;
+
+	private final RoutingConfiguration config;
+	private final VehicleRouter router;
+	private final int landmarks;
+
+	// 1. nodes
+	private RoadGraphExtractor graph;
+	private long[] nodeKeys;
+
+	// 2. edges (weights are stored as float bits)
+	private TIntArrayList edgeFrom = new TIntArrayList();
+	private TIntArrayList edgeTo = new TIntArrayList();
+	private TIntArrayList edgeWeight = new TIntArrayList();
+
+	public LandmarksBuilder(RoutingConfiguration config, int landmarks) {
+		this.config = config;
+		this.router = config.router;
+		this.landmarks = landmarks;
+	}
+
+	public Landmarks build(BinaryMapIndexReader reader) throws IOException {
+		long now = System.currentTimeMillis();
+		graph = new RoadGraphExtractor(router);
+		nodeKeys = graph.extractNodes(reader);
+		graph.processRoads(reader, new RoadVisitor() {
+			@Override
+			public void visitRoad(RouteDataObject road) {
+				addRoadEdges(road);
+			}
+		});
+		int n = nodeKeys.length;
+		log.info("Route graph : " + n + " nodes, " + edgeFrom.size() + " edges " + (System.currentTimeMillis() - now) + " ms");
+
+		int m = edgeFrom.size();
+		float[] weights = new float[m];
+		for (int i = 0; i < m; i++) {
+			weights[i] = Float.intBitsToFloat(edgeWeight.get(i));
+		}
+		int[] from = edgeFrom.toArray();
+		int[] to = edgeTo.toArray();
+		edgeFrom = null;
+		edgeTo = null;
+		edgeWeight = null;
+		Graph forward = new Graph(n, from, to, weights);
+		Graph backward = new Graph(n, to, from, weights);
+
+		int stride = Math.min(landmarks, n);
+		int count = stride;
+		int[] landmarkNodes = new int[stride];
+		float[] fromLandmark = new float[n * stride];
+		float[] toLandmark = new float[n * stride];
+		float[] dist = new float[n];
+		// minimal travel time from selected landmarks
+		float[] selection = new float[n];
+		forward.dijkstra(n / 2, dist);
+		System.arraycopy(dist, 0, selection, 0, n);
+		for (int l = 0; l < count; l++) {
+			int landmark = farthest(selection);
+			if (landmark < 0) {
+				count = l;
+				break;
+			}
+			landmarkNodes[l] = landmark;
+			if (l == 0) {
+				Arrays.fill(selection, Float.POSITIVE_INFINITY);
+			}
+			forward.dijkstra(landmark, dist);
+			for (int v = 0; v < n; v++) {
+				fromLandmark[v * stride + l] = dist[v];
+				selection[v] = Math.min(selection[v], dist[v]);
+			}
+			backward.dijkstra(landmark, dist);
+			for (int v = 0; v < n; v++) {
+				toLandmark[v * stride + l] = dist[v];
+			}
+			log.info("Landmark " + (l + 1) + " of " + count + " " + (System.currentTimeMillis() - now) + " ms");
+		}
+		if (count < stride) {
+			// all reachable nodes are landmarks
+			landmarkNodes = Arrays.copyOf(landmarkNodes, count);
+			fromLandmark = compact(fromLandmark, n, stride, count);
+			toLandmark = compact(toLandmark, n, stride, count);
+		}
+		return new Landmarks(ContractionHierarchy.getProfileKey(config), reader.getFile().length(),
+				reader.getDateCreated(), nodeKeys, landmarkNodes, fromLandmark, toLandmark);
+	}
+
+	/**
+	 * Reachable node with maximal distance, -1 if all reachable nodes are landmarks
+	 */
+	private static int farthest(float[] dist) {
+		int res = -1;
+		for (int v = 0; v < dist.length; v++) {
+			if (dist[v] != Float.POSITIVE_INFINITY && dist[v] > 0 && (res < 0 || dist[v] > dist[res])) {
+				res = v;
+			}
+		}
+		return res;
+	}
+
+	private static float[] compact(float[] table, int n, int from, int to) {
+		float[] res = new float[n * to];
+		for (int v = 0; v < n; v++) {
+			System.arraycopy(table, v * from, res, v * to, to);
+		}
+		return res;
+	}
+
+	private void addRoadEdges(RouteDataObject ro) {
+		int oneway = router.isOneWay(ro);
+		int prevNode = graph.findNode(ro, 0);
+		float dist = 0;
+		for (int i = 1; i < ro.getPointsLength(); i++) {
+			dist += BinaryRoutePlanner.squareRootDist(ro.getPoint31XTile(i - 1), ro.getPoint31YTile(i - 1),
+					ro.getPoint31XTile(i), ro.getPoint31YTile(i));
+			int node = graph.findNode(ro, i);
+			if (node < 0) {
+				continue;
+			}
+			if (node != prevNode) {
+				// moving time without obstacles (they are counted at different points by forward and backward search)
+				float w = BinaryRoutePlanner.calculateTimeWithObstacles(router, ro, dist, 0);
+				if (oneway >= 0) {
+					addEdge(prevNode, node, w);
+				}
+				if (oneway <= 0) {
+					addEdge(node, prevNode, w);
+				}
+			}
+			prevNode = node;
+			dist = 0;
+		}
+	}
+
+	private void addEdge(int from, int to, float weight) {
+		edgeFrom.add(from);
+		edgeTo.add(to);
+		edgeWeight.add(Float.floatToIntBits(weight));
+	}
+
+	/**
+	 * Adjacency arrays of graph in one direction
+	 */
+	private static class Graph {
+		private final int[] offsets;
+		private final int[] targets;
+		private final float[] weights;
+		private final NodeQueue queue = new NodeQueue();
+
+		public Graph(int n, int[] from, int[] to, float[] w) {
+			offsets = new int[n + 1];
+			for (int e = 0; e < from.length; e++) {
+				offsets[from[e] + 1]++;
+			}
+			for (int i = 0; i < n; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+			targets = new int[from.length];
+			weights = new float[from.length];
+			int[] fill = Arrays.copyOf(offsets, n);
+			for (int e = 0; e < from.length; e++) {
+				int p = fill[from[e]]++;
+				targets[p] = to[e];
+				weights[p] = w[e];
+			}
+		}
+
+		public void dijkstra(int source, float[] dist) {
+			Arrays.fill(dist, Float.POSITIVE_INFINITY);
+			queue.clear();
+			dist[source] = 0;
+			queue.push(0, source);
+			while (!queue.isEmpty()) {
+				float d = queue.peekKey();
+				int v = queue.poll();
+				if (d > dist[v]) {
+					continue;
+				}
+				for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+					int u = targets[i];
+					float nd = d + weights[i];
+					if (nd < dist[u]) {
+						dist[u] = nd;
+						queue.push(nd, u);
+					}
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		new ObfPreprocessingTool("Builds landmark tables of routing profile next to obf files.", "[-landmarks=16] ") {
+			private int landmarks = DEFAULT_LANDMARKS;
+
+			@Override
+			protected boolean parseArgument(String arg) {
+				if (arg.startsWith("-landmarks=")) {
+					landmarks = Integer.parseInt(arg.substring("-landmarks=".length()));
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			protected String process(RoutingConfiguration config, BinaryMapIndexReader reader) throws IOException {
+				Landmarks l = new LandmarksBuilder(config, landmarks).build(reader);
+				File out = Landmarks.getFile(reader.getFile(), l.getProfile());
+				l.write(out);
+				return out.getName() + " : " + l.getNodesCount() + " nodes, " + l.getLandmarksCount() + " landmarks";
+			}
+		}.run(args);
+	}
+}
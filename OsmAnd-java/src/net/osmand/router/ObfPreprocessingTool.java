@@ -0,0 +1,88 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Command line of offline preprocessing of obf files for one routing profile (data is stored next to obf files).
+ * Common arguments : [-routingXmlPath=PATH] [-vehicle=car] [-params=avoid_toll,...] file.obf ...
+ */
+abstract class ObfPreprocessingTool {
+
+	private final String description;
+	private final String options;
+
+	/**
+	 * @param options usage of tool specific arguments (empty if there are no such arguments)
+	 */
+	ObfPreprocessingTool(String description, String options) {
+		this.description = description;
+		this.options = options;
+	}
+
+	/**
+	 * Parses tool specific argument, returns false if argument is not known
+	 */
+	protected boolean parseArgument(String arg) {
+		return false;
+	}
+
+	/**
+	 * Preprocesses obf file and writes result next to it, returns description of written file
+	 */
+	protected abstract String process(RoutingConfiguration config, BinaryMapIndexReader reader) throws IOException;
+
+	public void run(String[] args) throws IOException, XmlPullParserException {
+		String routingXmlFile = null;
+		String vehicle = "car";
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		List<File> files = new ArrayList<File>();
+		for (String a : args) {
+			if (a.startsWith("-routingXmlPath=")) {
+				routingXmlFile = a.substring("-routingXmlPath=".length());
+			} else if (a.startsWith("-vehicle=")) {
+				vehicle = a.substring("-vehicle=".length());
+			} else if (a.startsWith("-params=")) {
+				for (String p : a.substring("-params=".length()).split(",")) {
+					params.put(p, "true");
+				}
+			} else if (!a.startsWith("-")) {
+				files.add(new File(a));
+			} else if (!parseArgument(a)) {
+				System.out.println("Unknown argument " + a);
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println(description + "\nUsage : [-routingXmlPath=PATH] [-vehicle=car] [-params=avoid_toll,...] "
+					+ options + "file.obf ...");
+			return;
+		}
+		RoutingConfiguration.Builder builder;
+		if (routingXmlFile == null) {
+			builder = RoutingConfiguration.getDefault();
+		} else {
+			builder = RoutingConfiguration.parseFromInputStream(new FileInputStream(routingXmlFile));
+		}
+		RoutingConfiguration config = builder.build(vehicle, 0, params.isEmpty() ? null : params);
+		for (File f : files) {
+			long now = System.currentTimeMillis();
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			try {
+				String res = process(config, reader);
+				System.out.println(res + ", " + (System.currentTimeMillis() - now) + " ms");
+			} finally {
+				reader.close();
+			}
+		}
+	}
+}
@@ -249,8 +249,21 @@ public class PrecalculatedRouteDirection {
 		return followNext;
 	}
 	
+	int getPointsCount() {
+		return pointsX.length;
+	}
+	
+	int getPointX(int ind) {
+		return pointsX[ind];
+	}
+	
+	int getPointY(int ind) {
+		return pointsY[ind];
+	}
+	
 	
-	public PrecalculatedRouteDirection adopt(RoutingContext ctx) {
+	// legs of route could be adopted in parallel
+	public synchronized PrecalculatedRouteDirection adopt(RoutingContext ctx) {
 		int ind1 = getIndex(ctx.startX, ctx.startY);
 		int ind2 = getIndex(ctx.targetX, ctx.targetY);
 		minSpeed = ctx.getRouter().getMinDefaultSpeed();
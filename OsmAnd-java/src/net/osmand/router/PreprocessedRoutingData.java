@@ -0,0 +1,204 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Keeps data preprocessed offline for obf files (contraction hierarchies, landmarks, speed profiles) between route calculations,
+ * so files next to obf are read once per obf file and routing profile. Files are read again when they are changed.
+ */
+public class PreprocessedRoutingData {
+
+	private final static Log log = PlatformUtil.getLog(PreprocessedRoutingData.class);
+
+	private final Map<String, LoadedFile> hierarchies = new HashMap<String, LoadedFile>();
+	private final Map<String, LoadedFile> landmarks = new HashMap<String, LoadedFile>();
+	private final Map<String, LoadedFile> speedProfiles = new HashMap<String, LoadedFile>();
+	// profiles of several files merged for the last set of files
+	private List<SpeedProfiles> mergedSpeedProfilesSources;
+	private SpeedProfiles mergedSpeedProfiles;
+
+	private static class LoadedFile {
+		final long lastModified;
+		final long length;
+		// null - file is outdated
+		final Object data;
+
+		public LoadedFile(File f, Object data) {
+			this.lastModified = f.lastModified();
+			this.length = f.length();
+			this.data = data;
+		}
+
+		public boolean isActual(File f) {
+			return f.lastModified() == lastModified && f.length() == length;
+		}
+	}
+
+	private interface FileLoader {
+		Object load() throws IOException;
+	}
+
+	private static Object getData(Map<String, LoadedFile> loaded, File f, FileLoader loader) {
+		if (!f.exists()) {
+			loaded.remove(f.getAbsolutePath());
+			return null;
+		}
+		LoadedFile lf = loaded.get(f.getAbsolutePath());
+		if (lf == null || !lf.isActual(f)) {
+			Object data = null;
+			try {
+				data = loader.load();
+			} catch (IOException e) {
+				log.error("File " + f.getName() + " could not be read", e);
+			}
+			lf = new LoadedFile(f, data);
+			loaded.put(f.getAbsolutePath(), lf);
+		}
+		return lf.data;
+	}
+
+	/**
+	 * Hierarchy of obf file for routing profile of config, null if it is not built or outdated
+	 */
+	public synchronized ContractionHierarchy getContractionHierarchy(final BinaryMapIndexReader reader,
+			final RoutingConfiguration config) {
+		if (reader.getFile() == null) {
+			return null;
+		}
+		File f = ContractionHierarchy.getFile(reader.getFile(), ContractionHierarchy.getProfileKey(config));
+		return (ContractionHierarchy) getData(hierarchies, f, new FileLoader() {
+			@Override
+			public Object load() throws IOException {
+				return ContractionHierarchy.load(reader, config);
+			}
+		});
+	}
+
+	/**
+	 * Landmarks of obf file for routing profile of config, null if they are not built, outdated
+	 * or too large for memory limit of config
+	 */
+	public synchronized Landmarks getLandmarks(final BinaryMapIndexReader reader, final RoutingConfiguration config) {
+		if (reader.getFile() == null) {
+			return null;
+		}
+		File f = Landmarks.getFile(reader.getFile(), ContractionHierarchy.getProfileKey(config));
+		// tables are kept in memory together with route search graph (file has the same size as tables)
+		if (f.length() > config.memoryLimitation / 4) {
+			landmarks.remove(f.getAbsolutePath());
+			if (f.exists()) {
+				log.info("Landmarks " + f.getName() + " are too large for memory limit "
+						+ config.memoryLimitation / (1 << 20) + " Mb");
+			}
+			return null;
+		}
+		return (Landmarks) getData(landmarks, f, new FileLoader() {
+			@Override
+			public Object load() throws IOException {
+				return Landmarks.load(reader, config);
+			}
+		});
+	}
+
+	/**
+	 * Speed profiles of all files (merged if several files have them), null if no file has speed profiles
+	 */
+	public synchronized SpeedProfiles getSpeedProfiles(BinaryMapIndexReader[] files) {
+		List<SpeedProfiles> sources = new ArrayList<SpeedProfiles>();
+		for (BinaryMapIndexReader reader : files) {
+			if (reader.getFile() == null) {
+				continue;
+			}
+			final File f = SpeedProfiles.getFile(reader.getFile());
+			SpeedProfiles sp = (SpeedProfiles) getData(speedProfiles, f, new FileLoader() {
+				@Override
+				public Object load() throws IOException {
+					return SpeedProfiles.read(f);
+				}
+			});
+			if (sp != null) {
+				sources.add(sp);
+			}
+		}
+		if (sources.size() <= 1) {
+			return sources.isEmpty() ? null : sources.get(0);
+		}
+		if (!sources.equals(mergedSpeedProfilesSources)) {
+			SpeedProfiles merged = new SpeedProfiles();
+			for (SpeedProfiles sp : sources) {
+				merged.addProfiles(sp);
+			}
+			mergedSpeedProfiles = merged;
+			mergedSpeedProfilesSources = sources;
+		}
+		return mergedSpeedProfiles;
+	}
+
+	/**
+	 * Sets to context contraction hierarchy and landmarks of file which covers all route points (if they are built
+	 * for routing profile of the context)
+	 */
+	public void attach(RoutingContext ctx, BinaryMapIndexReader[] files, LatLon start, LatLon end,
+			List<LatLon> intermediates) {
+		List<LatLon> points = new ArrayList<LatLon>();
+		points.add(start);
+		points.add(end);
+		if (intermediates != null) {
+			points.addAll(intermediates);
+		}
+		for (BinaryMapIndexReader reader : files) {
+			if (ctx.contractionHierarchy == null) {
+				ContractionHierarchy ch = getContractionHierarchy(reader, ctx.config);
+				if (ch != null && containsPoints(ch, points)) {
+					ctx.contractionHierarchy = ch;
+				}
+			}
+			if (ctx.landmarks == null) {
+				Landmarks l = getLandmarks(reader, ctx.config);
+				if (l != null && containsPoints(reader, points)) {
+					ctx.landmarks = l;
+				}
+			}
+		}
+	}
+
+	private static boolean containsPoints(ContractionHierarchy ch, List<LatLon> points) {
+		for (LatLon l : points) {
+			if (!ch.containsPoint(MapUtils.get31TileNumberX(l.getLongitude()), MapUtils.get31TileNumberY(l.getLatitude()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsPoints(BinaryMapIndexReader reader, List<LatLon> points) {
+		for (LatLon l : points) {
+			int x31 = MapUtils.get31TileNumberX(l.getLongitude());
+			int y31 = MapUtils.get31TileNumberY(l.getLatitude());
+			if (!reader.containsRouteData(x31, y31, x31, y31, 15)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public synchronized void clear() {
+		hierarchies.clear();
+		landmarks.clear();
+		speedProfiles.clear();
+		mergedSpeedProfiles = null;
+		mergedSpeedProfilesSources = null;
+	}
+}
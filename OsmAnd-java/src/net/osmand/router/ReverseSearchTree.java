@@ -0,0 +1,75 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+
+/**
+ * Segments visited by backward graph of finished route calculation (distances to target point are final for them).
+ * When driver deviates and route is recalculated to the same target with the same profile and maps,
+ * only forward graph is expanded from new position until it reaches the saved tree
+ * (see {@link RoutingConfiguration#incrementalRecalculation}).
+ * Tree keeps visited segments and their road objects, so it should be released together with calculated route.
+ */
+public class ReverseSearchTree {
+
+	private final VisitedSegments visitedSegments;
+	private final long targetRoadId;
+	private final int targetSegmentStart;
+	private final int targetX;
+	private final int targetY;
+	private final String profileKey;
+	private final long[] impassableRoads;
+	private final float heuristicCoefficient;
+	private final Set<RouteRegion> regions;
+
+	ReverseSearchTree(RoutingContext ctx, RouteSegmentPoint end, VisitedSegments visitedSegments) {
+		this.visitedSegments = visitedSegments;
+		this.targetRoadId = end.getRoad().getId();
+		this.targetSegmentStart = end.getSegmentStart();
+		this.targetX = end.preciseX;
+		this.targetY = end.preciseY;
+		this.profileKey = ContractionHierarchy.getProfileKey(ctx.config);
+		this.impassableRoads = getImpassableRoads(ctx);
+		this.heuristicCoefficient = ctx.config.heuristicCoefficient;
+		this.regions = new HashSet<RouteRegion>(ctx.reverseMap.keySet());
+	}
+
+	VisitedSegments getVisitedSegments() {
+		return visitedSegments;
+	}
+
+	/**
+	 * Number of visited road intervals
+	 */
+	public int size() {
+		return visitedSegments.size();
+	}
+
+	/**
+	 * Tree is calculated with the same routing profile (parameters, avoided roads) and the same maps
+	 */
+	public boolean isApplicable(RoutingContext ctx) {
+		return ctx.config.heuristicCoefficient == heuristicCoefficient
+				&& regions.equals(new HashSet<RouteRegion>(ctx.reverseMap.keySet()))
+				&& profileKey.equals(ContractionHierarchy.getProfileKey(ctx.config))
+				&& Arrays.equals(impassableRoads, getImpassableRoads(ctx));
+	}
+
+	/**
+	 * Tree is applicable to context and calculated to the same target point
+	 */
+	public boolean isApplicable(RoutingContext ctx, RouteSegmentPoint end) {
+		return end.getRoad().getId() == targetRoadId && end.getSegmentStart() == targetSegmentStart
+				&& end.preciseX == targetX && end.preciseY == targetY && isApplicable(ctx);
+	}
+
+	private static long[] getImpassableRoads(RoutingContext ctx) {
+		long[] ids = ctx.config.router.getImpassableRoadIds();
+		Arrays.sort(ids);
+		return ids;
+	}
+}
@@ -0,0 +1,88 @@
+package net.osmand.router;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Routing graph of obf file for offline preprocessing ({@link ObfPreprocessingTool}) : nodes are road points
+ * shared by several roads and road ends (sorted by {@link ContractionHierarchy#nodeKey}), edges are built by
+ * tool from roads accepted by router between consecutive nodes of road.
+ */
+class RoadGraphExtractor {
+
+	public interface RoadVisitor {
+		void visitRoad(RouteDataObject road);
+	}
+
+	private final VehicleRouter router;
+	private long[] nodeKeys;
+
+	RoadGraphExtractor(VehicleRouter router) {
+		this.router = router;
+	}
+
+	/**
+	 * Reads all roads of file and returns sorted node keys
+	 */
+	public long[] extractNodes(BinaryMapIndexReader reader) throws IOException {
+		final TLongHashSet pointsSeen = new TLongHashSet();
+		final TLongHashSet nodes = new TLongHashSet();
+		processRoads(reader, new RoadVisitor() {
+			@Override
+			public void visitRoad(RouteDataObject ro) {
+				int last = ro.getPointsLength() - 1;
+				for (int i = 0; i <= last; i++) {
+					long key = ContractionHierarchy.nodeKey(ro.getPoint31XTile(i), ro.getPoint31YTile(i));
+					if (!pointsSeen.add(key) || i == 0 || i == last) {
+						nodes.add(key);
+					}
+				}
+			}
+		});
+		nodeKeys = nodes.toArray();
+		Arrays.sort(nodeKeys);
+		return nodeKeys;
+	}
+
+	/**
+	 * Visits every road of file accepted by router once
+	 */
+	public void processRoads(BinaryMapIndexReader reader, RoadVisitor visitor) throws IOException {
+		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, null);
+		TLongHashSet visitedRoads = new TLongHashSet();
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			// copies, so loaded boxes are not kept in reader
+			List<RouteSubregion> roots = new ArrayList<RouteSubregion>();
+			for (RouteSubregion rs : reg.getSubregions()) {
+				roots.add(new RouteSubregion(rs));
+			}
+			for (RouteSubregion sub : reader.searchRouteIndexTree(request, roots)) {
+				for (RouteDataObject ro : reader.loadRouteIndexData(sub)) {
+					if (ro == null || ro.getPointsLength() < 2 || !router.acceptLine(ro) || !visitedRoads.add(ro.getId())) {
+						continue;
+					}
+					visitor.visitRoad(ro);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Node of road point, -1 if point is not a node (nodes should be extracted before)
+	 */
+	public int findNode(RouteDataObject ro, int i) {
+		int ind = Arrays.binarySearch(nodeKeys, ContractionHierarchy.nodeKey(ro.getPoint31XTile(i), ro.getPoint31YTile(i)));
+		return ind < 0 ? -1 : ind;
+	}
+}
@@ -0,0 +1,130 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Selects alternative routes among meeting points of forward and backward graphs of one bidirectional search
+ * (BinaryRoutePlanner.searchRouteAlternatives). Meetings are checked in order of route time, route is accepted if
+ * <ul>
+ * <li>it doesn't go back along the road it came (forward and backward parts share no road interval),
+ * so route is locally optimal around the meeting point;</li>
+ * <li>it shares not more than {@link #MAX_SHARING} of its length with already accepted routes.</li>
+ * </ul>
+ * Time of routes is limited by search (maximum stretch of the best route).
+ */
+class RouteAlternatives {
+
+	// maximum time of alternative route relative to the best one
+	public static final float MAX_STRETCH = 1.3f;
+	// maximum part of alternative route length shared with better routes
+	public static final float MAX_SHARING = 0.6f;
+
+	private final List<RouteFootprint> selected = new ArrayList<RouteFootprint>();
+	// road intervals of all selected routes
+	private final TLongHashSet union = new TLongHashSet();
+
+	/**
+	 * Returns the best route and up to count - 1 alternatives
+	 */
+	public static List<FinalRouteSegment> select(List<FinalRouteSegment> meetings, int count) {
+		RouteAlternatives alternatives = new RouteAlternatives();
+		for (FinalRouteSegment f : meetings) {
+			if (alternatives.selected.size() >= count) {
+				break;
+			}
+			alternatives.add(f);
+		}
+		List<FinalRouteSegment> res = new ArrayList<FinalRouteSegment>(alternatives.selected.size());
+		for (RouteFootprint fp : alternatives.selected) {
+			res.add(fp.meeting);
+		}
+		return res;
+	}
+
+	private boolean add(FinalRouteSegment meeting) {
+		if (!selected.isEmpty()) {
+			// route through the point of selected route mostly follows it
+			RouteDataObject road = meeting.getRoad();
+			int point = meeting.getSegmentStart();
+			if ((point > 0 && union.contains(intervalId(road, point - 1)))
+					|| (point < road.getPointsLength() - 1 && union.contains(intervalId(road, point)))) {
+				return false;
+			}
+		}
+		RouteFootprint fp = new RouteFootprint(meeting);
+		if (!selected.isEmpty()) {
+			if (fp.turnsBack) {
+				return false;
+			}
+			long shared = 0;
+			for (int i = 0; i < fp.intervals.size(); i++) {
+				if (union.contains(fp.intervals.get(i))) {
+					shared += fp.lengths.get(i);
+				}
+			}
+			if (shared > MAX_SHARING * fp.length) {
+				return false;
+			}
+		}
+		selected.add(fp);
+		union.addAll(fp.intervals);
+		return true;
+	}
+
+	private static long intervalId(RouteDataObject road, int interval) {
+		// direction is not important for sharing
+		return BinaryRoutePlanner.calculateRoutePointId(road, interval, true);
+	}
+
+	private static class RouteFootprint {
+		private final FinalRouteSegment meeting;
+		private final TLongArrayList intervals = new TLongArrayList();
+		// meters
+		private final TIntArrayList lengths = new TIntArrayList();
+		private long length = 0;
+		private boolean turnsBack = false;
+
+		public RouteFootprint(FinalRouteSegment f) {
+			this.meeting = f;
+			// the same parts of search trees as RouteResultPreparation restores
+			TLongHashSet firstPart = new TLongHashSet();
+			addPart(f.reverseWaySearch ? f : f.opposite.getParentRoute(),
+					f.reverseWaySearch ? f.opposite.getSegmentStart() : f.opposite.getParentSegmentEnd(), firstPart, null);
+			addPart(f.reverseWaySearch ? f.opposite.getParentRoute() : f,
+					f.reverseWaySearch ? f.opposite.getParentSegmentEnd() : f.opposite.getSegmentStart(), null, firstPart);
+		}
+
+		private void addPart(RouteSegment segment, int end, TLongHashSet fill, TLongHashSet check) {
+			while (segment != null) {
+				RouteDataObject road = segment.getRoad();
+				int st = Math.min(segment.getSegmentStart(), end);
+				int en = Math.max(segment.getSegmentStart(), end);
+				for (int i = st; i < en; i++) {
+					long id = intervalId(road, i);
+					int len = (int) BinaryRoutePlanner.squareRootDist(road.getPoint31XTile(i), road.getPoint31YTile(i),
+							road.getPoint31XTile(i + 1), road.getPoint31YTile(i + 1));
+					intervals.add(id);
+					lengths.add(len);
+					length += len;
+					if (fill != null) {
+						fill.add(id);
+					}
+					if (check != null && check.contains(id)) {
+						turnsBack = true;
+					}
+				}
+				end = segment.getParentSegmentEnd();
+				segment = segment.getParentRoute();
+			}
+		}
+	}
+}
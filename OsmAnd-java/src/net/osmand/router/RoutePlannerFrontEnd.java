@@ -7,6 +7,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.osmand.NativeLibrary;
 import net.osmand.PlatformUtil;
@@ -16,6 +24,7 @@ import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.LatLon;
 import net.osmand.data.QuadPoint;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.util.MapUtils;
@@ -26,6 +35,8 @@ public class RoutePlannerFrontEnd {
 	
 	private boolean useOldVersion;
 	protected static final Log log = PlatformUtil.getLog(RoutePlannerFrontEnd.class);
+	// progress of legs calculated in parallel is collected with this interval
+	private static final int LEGS_PROGRESS_INTERVAL_MS = 100;
 	public boolean useSmartRouteRecalculation = true; 
 
 	public RoutePlannerFrontEnd(boolean useOldVersion) {
@@ -98,6 +109,14 @@ public class RoutePlannerFrontEnd {
 	}
 	
 	
+	/**
+	 * Routing times between every source and target (see RouteTimeMatrix)
+	 */
+	public float[][] calculateRouteTimeMatrix(RoutingConfiguration config, BinaryMapIndexReader[] map, List<LatLon> sources,
+			List<LatLon> targets) throws IOException, InterruptedException {
+		return new RouteTimeMatrix(this, config, map).calculate(sources, targets);
+	}
+
 	public List<RouteSegmentResult> searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates) throws IOException, InterruptedException {
 		return searchRoute(ctx, start, end, intermediates, null);
 	}
@@ -122,7 +141,8 @@ public class RoutePlannerFrontEnd {
 			}
 		}
 		if(ctx.calculationMode == RouteCalculationMode.COMPLEX && routeDirection == null
-				&& maxDistance > ctx.config.DEVIATION_RADIUS * 6) {
+				&& maxDistance > ctx.config.DEVIATION_RADIUS * 6 && !isCoveredByContractionHierarchy(ctx, start, end, intermediates)
+				&& !(intermediatesEmpty && ctx.reverseSearchTree != null && ctx.reverseSearchTree.isApplicable(ctx))) {
 			RoutingContext nctx = buildRoutingContext(ctx.config, ctx.nativeLib, ctx.getMaps(), RouteCalculationMode.BASE);
 			nctx.calculationProgress = ctx.calculationProgress ;
 			List<RouteSegmentResult> ls = searchRoute(nctx, start, end, intermediates);
@@ -171,6 +191,65 @@ public class RoutePlannerFrontEnd {
 		return res;
 	}
 
+	/**
+	 * Best route and up to maxAlternatives alternative routes between start and end found by one bidirectional
+	 * search (see RouteAlternatives). Precalculated route direction (COMPLEX mode) is not used, 
+	 * native library or one direction search return only the best route.
+	 * Returns empty list if route is not found.
+	 */
+	public List<List<RouteSegmentResult>> searchAlternativeRoutes(final RoutingContext ctx, LatLon start, LatLon end,
+			int maxAlternatives) throws IOException, InterruptedException {
+		if(ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		List<List<RouteSegmentResult>> routes = new ArrayList<List<RouteSegmentResult>>();
+		if (ctx.nativeLib != null || !ctx.planRouteIn2Directions() || useOldVersion) {
+			List<RouteSegmentResult> res = searchRoute(ctx, start, end, null);
+			if (res != null && !res.isEmpty()) {
+				routes.add(res);
+			}
+			return routes;
+		}
+		List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
+		if (!addSegment(start, ctx, 0, points) || !addSegment(end, ctx, 1, points)) {
+			return routes;
+		}
+		ctx.initStartAndTargetPoints(points.get(0), points.get(1));
+		refreshProgressDistance(ctx);
+		List<FinalRouteSegment> meetings = new BinaryRoutePlanner().searchRouteAlternatives(ctx, points.get(0),
+				points.get(1), RouteAlternatives.MAX_STRETCH);
+		for (FinalRouteSegment f : RouteAlternatives.select(meetings, maxAlternatives + 1)) {
+			List<RouteSegmentResult> res = new RouteResultPreparation().prepareResult(ctx, f);
+			makeStartEndPointsPrecise(res, start, end, null);
+			routes.add(res);
+		}
+		if (!meetings.isEmpty()) {
+			ctx.finalRouteSegment = meetings.get(0);
+			ctx.routingTime = meetings.get(0).distanceFromStart;
+		}
+		return routes;
+	}
+
+	private boolean isCoveredByContractionHierarchy(RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates) {
+		ContractionHierarchy ch = ctx.contractionHierarchy;
+		// hierarchy is built with static speeds
+		if (ch == null || ctx.nativeLib != null || ctx.config.speedProfiles != null) {
+			return false;
+		}
+		List<LatLon> points = new ArrayList<LatLon>();
+		points.add(start);
+		points.add(end);
+		if (intermediates != null) {
+			points.addAll(intermediates);
+		}
+		for (LatLon l : points) {
+			if (!ch.containsPoint(MapUtils.get31TileNumberX(l.getLongitude()), MapUtils.get31TileNumberY(l.getLatitude()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	protected void makeStartEndPointsPrecise(List<RouteSegmentResult> res, LatLon start, LatLon end, List<LatLon> intermediates) {
 		if (res.size() > 0) {
 			updateResult(res.get(0), start, true);
@@ -256,6 +335,9 @@ public class RoutePlannerFrontEnd {
 		}		
 		
 		if (insert != 0) {
+			// road object could be shared with other routing contexts (tile cache), so precise point is inserted into copy
+			r = new RouteDataObject(r);
+			routeSegmentResult.setObject(r);
 			if (st && routeSegmentResult.getStartPointIndex() < routeSegmentResult.getEndPointIndex()) {
 				routeSegmentResult.setEndPointIndex(routeSegmentResult.getEndPointIndex() + 1);
 			}
@@ -293,7 +375,10 @@ public class RoutePlannerFrontEnd {
 	
 	private List<RouteSegmentResult> searchRouteInternalPrepare(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
 			PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
-		RouteSegment recalculationEnd = getRecalculationEnd(ctx);
+		// saved backward graph to the same target replaces the tail of previous route
+		boolean incremental = ctx.nativeLib == null && routeDirection == null && ctx.reverseSearchTree != null
+				&& ctx.reverseSearchTree.isApplicable(ctx, end);
+		RouteSegment recalculationEnd = incremental ? null : getRecalculationEnd(ctx);
 		if(recalculationEnd != null) {
 			ctx.initStartAndTargetPoints(start, recalculationEnd);
 		} else {
@@ -306,11 +391,27 @@ public class RoutePlannerFrontEnd {
 			return runNativeRouting(ctx, recalculationEnd);
 		} else {
 			refreshProgressDistance(ctx);
+			if (ctx.contractionHierarchy != null && ctx.calculationMode != RouteCalculationMode.BASE
+					&& ctx.config.speedProfiles == null) {
+				// previously calculated route is not needed
+				List<RouteSegmentResult> result = ctx.contractionHierarchy.searchRoute(ctx, start, end);
+				if (result != null) {
+					return new RouteResultPreparation().prepareResult(ctx, result);
+				}
+				log.info("Route is not found with contraction hierarchy, use A*");
+			}
 			// Split into 2 methods to let GC work in between
-			if(useOldVersion) {
-				new BinaryRoutePlannerOld().searchRouteInternal(ctx, start, end);
-			} else {
-				ctx.finalRouteSegment = new BinaryRoutePlanner().searchRouteInternal(ctx, start, end, recalculationEnd);
+			RoutingTilePrefetcher prefetcher = RoutingTilePrefetcher.start(ctx);
+			try {
+				if(useOldVersion) {
+					new BinaryRoutePlannerOld().searchRouteInternal(ctx, start, end);
+				} else {
+					ctx.finalRouteSegment = new BinaryRoutePlanner().searchRouteInternal(ctx, start, end, recalculationEnd);
+				}
+			} finally {
+				if (prefetcher != null) {
+					prefetcher.stop();
+				}
 			}
 			// 4. Route is found : collect all segments and prepare result
 			return new RouteResultPreparation().prepareResult(ctx, ctx.finalRouteSegment);
@@ -341,6 +442,8 @@ public class RoutePlannerFrontEnd {
 						previous.setParentRoute(segment);
 						previous.setParentSegmentEnd(rr.getStartPointIndex());
 					} else {
+						// reverse search goes from the end of segment to its start
+						segment.assignDirection((byte) (rr.getStartPointIndex() > rr.getEndPointIndex() ? 1 : -1));
 						recalculationEnd = segment;
 					}
 					previous = segment;
@@ -364,7 +467,8 @@ public class RoutePlannerFrontEnd {
 		
 	}
 
-	private List<RouteSegmentResult> runNativeRouting(final RoutingContext ctx, RouteSegment recalculationEnd) throws IOException {
+	private List<RouteSegmentResult> runNativeRouting(final RoutingContext ctx, RouteSegment recalculationEnd) throws IOException,
+			InterruptedException {
 		refreshProgressDistance(ctx);
 		RouteRegion[] regions = ctx.reverseMap.keySet().toArray(new BinaryMapRouteReaderAdapter.RouteRegion[ctx.reverseMap.size()]);
 		ctx.checkOldRoutingFiles(ctx.startX, ctx.startY);
@@ -428,6 +532,10 @@ public class RoutePlannerFrontEnd {
 				}
 			}
 		}
+		if (restPartRecalculatedRoute == null && ctx.config.legThreads > 1 && ctx.nativeLib == null
+				&& ctx.visitor == null) {
+			return searchLegsInParallel(ctx, points, routeDirection);
+		}
 		List<RouteSegmentResult> results = new ArrayList<RouteSegmentResult>();
 		for (int i = 0; i < points.size() - 1; i++) {
 			RoutingContext local = new RoutingContext(ctx);
@@ -441,15 +549,7 @@ public class RoutePlannerFrontEnd {
 			List<RouteSegmentResult> res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
 
 			results.addAll(res);
-			ctx.distinctLoadedTiles += local.distinctLoadedTiles;
-			ctx.loadedTiles += local.loadedTiles;
-			ctx.visitedSegments += local.visitedSegments;
-			ctx.loadedPrevUnloadedTiles += local.loadedPrevUnloadedTiles;
-			ctx.timeToCalculate += local.timeToCalculate;
-			ctx.timeToLoad += local.timeToLoad;
-			ctx.timeToLoadHeaders += local.timeToLoadHeaders;
-			ctx.relaxedSegments += local.relaxedSegments;
-			ctx.routingTime += local.routingTime;
+			addLegStatistics(ctx, local);
 
 			local.unloadAllData(ctx);
 			if (restPartRecalculatedRoute != null) {
@@ -461,6 +561,125 @@ public class RoutePlannerFrontEnd {
 		return results;
 
 	}
+
+	private void addLegStatistics(RoutingContext ctx, RoutingContext local) {
+		ctx.distinctLoadedTiles += local.distinctLoadedTiles;
+		ctx.loadedTiles += local.loadedTiles;
+		ctx.visitedSegments += local.visitedSegments;
+		ctx.loadedPrevUnloadedTiles += local.loadedPrevUnloadedTiles;
+		ctx.timeToCalculate += local.timeToCalculate;
+		ctx.timeToLoad += local.timeToLoad;
+		ctx.timeToLoadHeaders += local.timeToLoadHeaders;
+		ctx.relaxedSegments += local.relaxedSegments;
+		ctx.routingTime += local.routingTime;
+	}
+
+	/**
+	 * Calculates legs between intermediate points on config.legThreads threads. Every leg has own routing context
+	 * within memory limit (decoded tiles are shared through RoutingTileCache), prepared legs are joined in order.
+	 * Every leg has own calculation progress, they are summed up into progress of context by calling thread
+	 * (cancellation is passed to legs the same way).
+	 */
+	private List<RouteSegmentResult> searchLegsInParallel(final RoutingContext ctx, final List<RouteSegmentPoint> points,
+			final PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		int legs = points.size() - 1;
+		final RoutingContext[] locals = new RoutingContext[legs];
+		RouteCalculationProgress[] progress = new RouteCalculationProgress[legs];
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(ctx.config.legThreads, legs), new ThreadFactory() {
+			private int cnt = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Route leg " + (cnt++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<RouteSegmentResult> results = new ArrayList<RouteSegmentResult>();
+		try {
+			List<Future<List<RouteSegmentResult>>> futures = new ArrayList<Future<List<RouteSegmentResult>>>();
+			for (int i = 0; i < legs; i++) {
+				final int leg = i;
+				locals[leg] = new RoutingContext(ctx);
+				progress[leg] = new RouteCalculationProgress();
+				locals[leg].calculationProgress = progress[leg];
+				futures.add(executor.submit(new Callable<List<RouteSegmentResult>>() {
+					@Override
+					public List<RouteSegmentResult> call() throws Exception {
+						try {
+							return searchRouteInternalPrepare(locals[leg], points.get(leg), points.get(leg + 1),
+									routeDirection);
+						} finally {
+							locals[leg].unloadAllData();
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < legs; i++) {
+				try {
+					List<RouteSegmentResult> res = null;
+					while (res == null) {
+						try {
+							res = futures.get(i).get(LEGS_PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+						} catch (TimeoutException e) {
+							updateLegsProgress(ctx.calculationProgress, progress, futures);
+						}
+					}
+					results.addAll(res);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof InterruptedException) {
+						throw (InterruptedException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+				addLegStatistics(ctx, locals[i]);
+			}
+			updateLegsProgress(ctx.calculationProgress, progress, futures);
+		} finally {
+			// legs which are still running are stopped by cancellation (interrupt closes file channel shared by readers)
+			for (RouteCalculationProgress p : progress) {
+				p.isCancelled = true;
+			}
+			executor.shutdown();
+		}
+		ctx.unloadAllData();
+		return results;
+	}
+
+	private void updateLegsProgress(RouteCalculationProgress total, RouteCalculationProgress[] progress,
+			List<Future<List<RouteSegmentResult>>> futures) {
+		float estimated = 0;
+		float passed = 0;
+		int directQueue = 0;
+		int reverseQueue = 0;
+		for (int i = 0; i < progress.length; i++) {
+			RouteCalculationProgress p = progress[i];
+			if (total != null && total.isCancelled) {
+				p.isCancelled = true;
+			}
+			estimated += p.totalEstimatedDistance;
+			if (futures.get(i).isDone()) {
+				// the same as the end of sequential calculation (progress is shown as part of 1.25 estimated distance)
+				passed += p.totalEstimatedDistance * 1.25f;
+			} else {
+				passed += Math.max(p.distanceFromBegin, p.distanceFromEnd);
+				directQueue += p.directSegmentQueueSize;
+				reverseQueue += p.reverseSegmentQueueSize;
+			}
+		}
+		if (total != null) {
+			total.totalEstimatedDistance = estimated;
+			total.distanceFromBegin = passed;
+			total.distanceFromEnd = 0;
+			total.directSegmentQueueSize = directQueue;
+			total.reverseSegmentQueueSize = reverseQueue;
+		}
+	}
 	
 	@SuppressWarnings("static-access")
 	private List<RouteSegmentResult> searchRoute(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
@@ -10,6 +10,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader;
@@ -27,24 +33,32 @@ public class RouteResultPreparation {
 
 	public static boolean PRINT_TO_CONSOLE_ROUTE_INFORMATION_TO_TEST = false;
 	private static final float TURN_DEGREE_MIN = 45;
+	// minimal number of route segments per slice prepared on separate thread
+	private static final int MIN_SLICE_SEGMENTS = 100;
 	private Log log = PlatformUtil.getLog(RouteResultPreparation.class);
 	/**
 	 * Helper method to prepare final result 
 	 */
-	List<RouteSegmentResult> prepareResult(RoutingContext ctx, FinalRouteSegment finalSegment) throws IOException {
+	List<RouteSegmentResult> prepareResult(RoutingContext ctx, FinalRouteSegment finalSegment) throws IOException,
+			InterruptedException {
 		List<RouteSegmentResult> result  = convertFinalSegmentToResults(ctx, finalSegment);
 		prepareResult(ctx, result);
 		return result;
 	}
 
-	List<RouteSegmentResult> prepareResult(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
+	List<RouteSegmentResult> prepareResult(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException,
+			InterruptedException {
 		validateAllPointsConnected(result);
-		splitRoadsAndAttachRoadSegments(ctx, result);
-		calculateTimeSpeed(ctx, result);
-		
-		for (int i = 0; i < result.size(); i ++) {
-			TurnType turnType = getTurnInfo(result, i, ctx.leftSideNavigation);
-			result.get(i).setTurnType(turnType);
+		int threads = Math.min(ctx.config.preparationThreads, result.size() / MIN_SLICE_SEGMENTS);
+		if (threads > 1 && ctx.nativeLib == null) {
+			prepareSlicesInParallel(ctx, result, threads);
+		} else {
+			splitRoadsAndAttachRoadSegments(ctx, result, 0);
+			calculateTimeSpeed(ctx, result, 0, result.size());
+			calculateTurnInfo(ctx, result, 0, result.size());
+		}
+		if (ctx.config.speedProfiles != null) {
+			applySpeedProfiles(ctx, result);
 		}
 		
 		determineTurnsToMerge(ctx.leftSideNavigation, result);
@@ -69,8 +83,120 @@ public class RouteResultPreparation {
 		}
 	}
 
-	private void calculateTimeSpeed(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
-		for (int i = 0; i < result.size(); i++) {
+	/**
+	 * Segment local stages run on slices of route : roads are split and attached in slice contexts
+	 * (tiles are shared through RoutingTileCache), then turns are calculated by ranges of joined route.
+	 * Merging of turn lanes and the following stages depend on neighbour turns and stay sequential.
+	 */
+	private void prepareSlicesInParallel(final RoutingContext ctx, final List<RouteSegmentResult> result, int threads)
+			throws IOException, InterruptedException {
+		List<Callable<List<RouteSegmentResult>>> sliceTasks = new ArrayList<Callable<List<RouteSegmentResult>>>();
+		for (int t = 0; t < threads; t++) {
+			int from = result.size() * t / threads;
+			int to = result.size() * (t + 1) / threads;
+			final List<RouteSegmentResult> slice = new ArrayList<RouteSegmentResult>(to - from + 1);
+			if (from > 0) {
+				// copy of previous segment is attached to the first one, original could be split by other slice
+				RouteSegmentResult prev = result.get(from - 1);
+				slice.add(new RouteSegmentResult(prev.getObject(), prev.getStartPointIndex(), prev.getEndPointIndex()));
+			}
+			slice.addAll(result.subList(from, to));
+			final int start = from > 0 ? 1 : 0;
+			sliceTasks.add(new Callable<List<RouteSegmentResult>>() {
+				@Override
+				public List<RouteSegmentResult> call() throws Exception {
+					RoutingContext local = new RoutingContext(ctx);
+					try {
+						splitRoadsAndAttachRoadSegments(local, slice, start);
+						calculateTimeSpeed(local, slice, start, slice.size());
+						return slice.subList(start, slice.size());
+					} finally {
+						local.unloadAllData();
+					}
+				}
+			});
+		}
+		List<RouteSegmentResult> joined = new ArrayList<RouteSegmentResult>(result.size());
+		for (List<RouteSegmentResult> slice : runInParallel(sliceTasks, threads)) {
+			joined.addAll(slice);
+		}
+		result.clear();
+		result.addAll(joined);
+
+		List<Callable<Void>> turnTasks = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int from = result.size() * t / threads;
+			final int to = result.size() * (t + 1) / threads;
+			turnTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					calculateTurnInfo(ctx, result, from, to);
+					return null;
+				}
+			});
+		}
+		runInParallel(turnTasks, threads);
+	}
+
+	/**
+	 * Runs tasks and returns their results in order of tasks. Running tasks are not interrupted on failure
+	 * (interrupt closes file channel shared by readers), tasks which are not started are cancelled.
+	 */
+	private <T> List<T> runInParallel(List<Callable<T>> tasks, int threads) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int cnt = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Route preparation " + (cnt++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>();
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			List<T> res = new ArrayList<T>(tasks.size());
+			for (Future<T> f : futures) {
+				try {
+					res.add(f.get());
+				} catch (ExecutionException e) {
+					cancel(futures);
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IllegalStateException(cause);
+				} catch (InterruptedException e) {
+					cancel(futures);
+					throw e;
+				}
+			}
+			return res;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static <T> void cancel(List<Future<T>> futures) {
+		for (Future<T> f : futures) {
+			f.cancel(false);
+		}
+	}
+
+	private void calculateTurnInfo(RoutingContext ctx, List<RouteSegmentResult> result, int from, int to) {
+		for (int i = from; i < to; i ++) {
+			TurnType turnType = getTurnInfo(result, i, ctx.leftSideNavigation);
+			result.get(i).setTurnType(turnType);
+		}
+	}
+
+	private void calculateTimeSpeed(RoutingContext ctx, List<RouteSegmentResult> result, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
 			RouteSegmentResult rr = result.get(i);
 			RouteDataObject road = rr.getObject();
 			double distOnRoadToPass = 0;
@@ -107,8 +233,26 @@ public class RouteResultPreparation {
 		}
 	}
 
-	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
-		for (int i = 0; i < result.size(); i++) {
+	/**
+	 * Changes moving time of segments by factors of speed profiles at time segment is passed (obstacles time is kept),
+	 * so segments are processed sequentially
+	 */
+	private void applySpeedProfiles(RoutingContext ctx, List<RouteSegmentResult> result) {
+		float time = 0;
+		for (RouteSegmentResult rr : result) {
+			float factor = ctx.getSpeedFactor(rr.getObject(), time);
+			if (factor > 0 && factor != 1 && rr.getSegmentSpeed() > 0) {
+				float moving = rr.getDistance() / rr.getSegmentSpeed();
+				float obstacles = rr.getSegmentTime() - moving;
+				rr.setSegmentSpeed(rr.getSegmentSpeed() * factor);
+				rr.setSegmentTime(obstacles + moving / factor);
+			}
+			time += rr.getSegmentTime();
+		}
+	}
+
+	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, int from) throws IOException {
+		for (int i = from; i < result.size(); i++) {
 			if (ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
 				ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
 			}
@@ -169,7 +313,10 @@ public class RouteResultPreparation {
 	private void checkAndInitRouteRegion(RoutingContext ctx, RouteDataObject road) throws IOException {
 		BinaryMapIndexReader reader = ctx.reverseMap.get(road.region);
 		if(reader != null) {
-			reader.initRouteRegion(road.region);
+			// reader could be shared with other slices of route
+			synchronized (reader) {
+				reader.initRouteRegion(road.region);
+			}
 		}
 	}
 
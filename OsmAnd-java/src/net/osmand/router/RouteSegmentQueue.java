@@ -0,0 +1,159 @@
+package net.osmand.router;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.Arrays;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Frontier of route search : indexed 4-ary min heap of route segments by f(x) = g(x) + heuristicCoefficient * h(x).
+ * Keys are kept in primitive array (no comparator calls) and every segment knows its position in heap,
+ * so segment added with id is unique in the queue and better route to it updates it in place (decrease key)
+ * instead of adding one more entry.
+ */
+public class RouteSegmentQueue {
+
+	public static final long NO_ID = Long.MIN_VALUE;
+	private static final int ARITY_BITS = 2;
+	private static final int ARITY = 1 << ARITY_BITS;
+
+	private final float heuristicCoefficient;
+	private RouteSegment[] segments;
+	private float[] keys;
+	private long[] ids;
+	private int size = 0;
+	private final TLongObjectHashMap<RouteSegment> queued = new TLongObjectHashMap<RouteSegment>();
+
+	public RouteSegmentQueue(float heuristicCoefficient, int capacity) {
+		this.heuristicCoefficient = heuristicCoefficient;
+		capacity = Math.max(capacity, ARITY);
+		segments = new RouteSegment[capacity];
+		keys = new float[capacity];
+		ids = new long[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	/**
+	 * Returns queued segment with id (null if it is not in the queue)
+	 */
+	public RouteSegment get(long id) {
+		return queued.get(id);
+	}
+
+	public void add(RouteSegment s) {
+		add(NO_ID, s);
+	}
+
+	public void add(long id, RouteSegment s) {
+		if (s.queueIndex >= 0) {
+			throw new IllegalStateException("Segment is already in queue");
+		}
+		if (size == segments.length) {
+			int capacity = size + (size >> 1);
+			segments = Arrays.copyOf(segments, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+		}
+		if (id != NO_ID) {
+			queued.put(id, s);
+		}
+		siftUp(size++, s, key(s), id);
+	}
+
+	/**
+	 * Restores heap order after distances of queued segment were decreased
+	 */
+	public void decreaseKey(RouteSegment s) {
+		int i = s.queueIndex;
+		if (i < 0 || segments[i] != s) {
+			throw new IllegalStateException("Segment is not in queue");
+		}
+		siftUp(i, s, key(s), ids[i]);
+	}
+
+	public RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment res = segments[0];
+		if (ids[0] != NO_ID) {
+			queued.remove(ids[0]);
+		}
+		res.queueIndex = -1;
+		size--;
+		RouteSegment last = segments[size];
+		float lastKey = keys[size];
+		long lastId = ids[size];
+		segments[size] = null;
+		if (size > 0) {
+			siftDown(0, last, lastKey, lastId);
+		}
+		return res;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			segments[i].queueIndex = -1;
+			segments[i] = null;
+		}
+		size = 0;
+		queued.clear();
+	}
+
+	private float key(RouteSegment s) {
+		return s.distanceFromStart + heuristicCoefficient * s.distanceToEnd;
+	}
+
+	private void siftUp(int i, RouteSegment s, float key, long id) {
+		while (i > 0) {
+			int p = (i - 1) >> ARITY_BITS;
+			if (keys[p] <= key) {
+				break;
+			}
+			set(i, segments[p], keys[p], ids[p]);
+			i = p;
+		}
+		set(i, s, key, id);
+	}
+
+	private void siftDown(int i, RouteSegment s, float key, long id) {
+		while (true) {
+			int c = (i << ARITY_BITS) + 1;
+			if (c >= size) {
+				break;
+			}
+			int end = Math.min(c + ARITY, size);
+			int min = c;
+			for (int k = c + 1; k < end; k++) {
+				if (keys[k] < keys[min]) {
+					min = k;
+				}
+			}
+			if (key <= keys[min]) {
+				break;
+			}
+			set(i, segments[min], keys[min], ids[min]);
+			i = min;
+		}
+		set(i, s, key, id);
+	}
+
+	private void set(int i, RouteSegment s, float key, long id) {
+		segments[i] = s;
+		keys[i] = key;
+		ids[i] = id;
+		s.queueIndex = i;
+	}
+}
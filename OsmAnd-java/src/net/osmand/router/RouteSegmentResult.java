@@ -11,7 +11,7 @@ import net.osmand.util.MapUtils;
 
 
 public class RouteSegmentResult {
-	private final RouteDataObject object;
+	private RouteDataObject object;
 	private int startPointIndex;
 	private int endPointIndex;
 	private List<RouteSegmentResult>[] attachedRoutes;
@@ -88,6 +88,10 @@ public class RouteSegmentResult {
 		return object;
 	}
 	
+	void setObject(RouteDataObject object) {
+		this.object = object;
+	}
+	
 	public float getSegmentTime() {
 		return segmentTime;
 	}
@@ -0,0 +1,306 @@
+package net.osmand.router;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Many to many matrix of routing times (seconds, same measure as route time of BinaryRoutePlanner).
+ * For every source single Dijkstra expansion over road graph is done till all targets are settled,
+ * sources are split between threads, every thread keeps its own routing context with tiles loaded for previous sources.
+ * Speeds, obstacles, oneways and turn times are taken into account, turn restrictions are not.
+ * Expansion from source stops when memory limit of routing config is reached, targets which are not settled
+ * by then are unreachable (expansion is not limited by time by default, so unreachable target expands the whole graph).
+ */
+public class RouteTimeMatrix {
+	private final static Log log = PlatformUtil.getLog(RouteTimeMatrix.class);
+
+	public static final float UNREACHABLE = -1;
+
+	private final RoutePlannerFrontEnd frontEnd;
+	private final RoutingConfiguration config;
+	private final BinaryMapIndexReader[] map;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	// 0 - not limited
+	private float maxRoutingTime = 0;
+	private RouteCalculationProgress calculationProgress;
+
+	private static class Target {
+		final int index;
+		final long roadId;
+		final int preciseX;
+		final int preciseY;
+
+		public Target(int index, long roadId, int preciseX, int preciseY) {
+			this.index = index;
+			this.roadId = roadId;
+			this.preciseX = preciseX;
+			this.preciseY = preciseY;
+		}
+	}
+
+	public RouteTimeMatrix(RoutePlannerFrontEnd frontEnd, RoutingConfiguration config, BinaryMapIndexReader[] map) {
+		this.frontEnd = frontEnd;
+		this.config = config;
+		this.map = map;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Limits expansion from source (targets further than limit are unreachable)
+	 */
+	public void setMaxRoutingTime(float maxRoutingTime) {
+		this.maxRoutingTime = maxRoutingTime;
+	}
+
+	public void setCalculationProgress(RouteCalculationProgress calculationProgress) {
+		this.calculationProgress = calculationProgress;
+	}
+
+	public float[] calculate(LatLon source, List<LatLon> targets) throws IOException, InterruptedException {
+		return calculate(Collections.singletonList(source), targets)[0];
+	}
+
+	/**
+	 * Returns times [source][target], UNREACHABLE if there is no route or point is too far from roads
+	 */
+	public float[][] calculate(final List<LatLon> sources, List<LatLon> targets) throws IOException,
+			InterruptedException {
+		long now = System.currentTimeMillis();
+		final float[][] res = new float[sources.size()][];
+		RoutingContext targetsCtx = frontEnd.buildRoutingContext(config, null, map, RouteCalculationMode.NORMAL);
+		final TLongObjectHashMap<List<Target>> targetIntervals = new TLongObjectHashMap<List<Target>>();
+		int found = 0;
+		for (int i = 0; i < targets.size(); i++) {
+			LatLon l = targets.get(i);
+			RouteSegmentPoint p = frontEnd.findRouteSegment(l.getLatitude(), l.getLongitude(), targetsCtx);
+			if (p != null) {
+				// point is projected between segmentStart - 1 and segmentStart
+				long key = BinaryRoutePlanner.calculateRoutePointId(p.getRoad(), p.getSegmentStart() - 1, false);
+				List<Target> list = targetIntervals.get(key);
+				if (list == null) {
+					list = new ArrayList<Target>(1);
+					targetIntervals.put(key, list);
+				}
+				list.add(new Target(i, p.getRoad().getId(), p.preciseX, p.preciseY));
+				found++;
+			}
+		}
+		final int targetsSize = targets.size();
+		final int foundTargets = found;
+		final AtomicInteger nextSource = new AtomicInteger();
+		int threadsCount = Math.min(threads, sources.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threadsCount, 1), new ThreadFactory() {
+			private int cnt = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Route matrix " + (cnt++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threadsCount; t++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						RoutingContext ctx = frontEnd.buildRoutingContext(config, null, map, RouteCalculationMode.NORMAL);
+						RouteSegmentQueue queue = new RouteSegmentQueue(0, 256);
+						TLongHashSet visited = new TLongHashSet();
+						int s;
+						while ((s = nextSource.getAndIncrement()) < sources.size()) {
+							res[s] = new float[targetsSize];
+							Arrays.fill(res[s], UNREACHABLE);
+							LatLon l = sources.get(s);
+							RouteSegmentPoint p = frontEnd.findRouteSegment(l.getLatitude(), l.getLongitude(), ctx);
+							if (p != null && foundTargets > 0) {
+								searchFromSource(ctx, p, targetIntervals, foundTargets, res[s], queue, visited);
+								queue.clear();
+								visited.clear();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof InterruptedException) {
+						throw (InterruptedException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("Route time matrix " + sources.size() + "x" + targets.size() + " is calculated in "
+				+ (System.currentTimeMillis() - now) + " ms on " + threadsCount + " threads");
+		return res;
+	}
+
+	private void searchFromSource(RoutingContext ctx, RouteSegmentPoint source,
+			TLongObjectHashMap<List<Target>> targetIntervals, int targets, float[] times, RouteSegmentQueue queue,
+			TLongHashSet visited) throws InterruptedException {
+		VehicleRouter router = ctx.getRouter();
+		RouteDataObject road = source.getRoad();
+		int start = source.getSegmentStart() - 1;
+		int end = source.getSegmentStart();
+		// start in the middle of segment : time before precise point is subtracted
+		float toStart = BinaryRoutePlanner.calculateTimeWithObstacles(router, road, (float) BinaryRoutePlanner.squareRootDist(
+				road.getPoint31XTile(start), road.getPoint31YTile(start), source.preciseX, source.preciseY), 0);
+		float toEnd = BinaryRoutePlanner.calculateTimeWithObstacles(router, road, (float) BinaryRoutePlanner.squareRootDist(
+				road.getPoint31XTile(end), road.getPoint31YTile(end), source.preciseX, source.preciseY), 0);
+		addSegment(ctx, queue, visited, new RouteSegment(road, start).initRouteSegment(true), -toStart);
+		addSegment(ctx, queue, visited, new RouteSegment(road, end).initRouteSegment(false), -toEnd);
+
+		int settled = 0;
+		float maxTime = 0;
+		while (!queue.isEmpty()) {
+			RouteSegment segment = queue.poll();
+			// all next routes are longer than found ones
+			if (settled == targets && maxTime <= segment.distanceFromStart) {
+				break;
+			}
+			if (maxRoutingTime > 0 && segment.distanceFromStart > maxRoutingTime) {
+				break;
+			}
+			ctx.memoryOverhead = visited.size() * BinaryRoutePlanner.STANDARD_ROAD_VISITED_OVERHEAD + queue.size()
+					* BinaryRoutePlanner.STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+				// f.e. unreachable target expands the whole graph : targets not settled yet stay unreachable
+				log.warn("Route time matrix : there is no enough memory " + ctx.config.memoryLimitation / (1 << 20)
+						+ " Mb, " + (targets - settled) + " targets are not reached");
+				break;
+			}
+			if (calculationProgress != null && calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+			ctx.visitedSegments++;
+			road = segment.getRoad();
+			boolean positive = segment.isPositive();
+			float dist = 0;
+			float obstacles = 0;
+			int prev = segment.getSegmentStart();
+			while (true) {
+				int pnt = positive ? prev + 1 : prev - 1;
+				if (pnt < 0 || pnt >= road.getPointsLength()) {
+					break;
+				}
+				int interval = positive ? prev : pnt;
+				if (!visited.add(BinaryRoutePlanner.calculateRoutePointId(road, interval, positive))) {
+					break;
+				}
+				int prevX = road.getPoint31XTile(prev);
+				int prevY = road.getPoint31YTile(prev);
+				List<Target> list = targetIntervals.get(BinaryRoutePlanner.calculateRoutePointId(road, interval, false));
+				if (list != null) {
+					for (Target t : list) {
+						if (t.roadId != road.getId()) {
+							continue;
+						}
+						float d = (float) BinaryRoutePlanner.squareRootDist(prevX, prevY, t.preciseX, t.preciseY);
+						float time = segment.distanceFromStart
+								+ BinaryRoutePlanner.calculateTimeWithObstacles(router, road, dist + d, obstacles);
+						// negative time : target is behind source point on the same segment
+						if (time >= 0 && (times[t.index] == UNREACHABLE || time < times[t.index])) {
+							if (times[t.index] == UNREACHABLE) {
+								settled++;
+							}
+							times[t.index] = time;
+							maxTime = 0;
+							for (float tm : times) {
+								maxTime = Math.max(maxTime, tm);
+							}
+						}
+					}
+				}
+				int x = road.getPoint31XTile(pnt);
+				int y = road.getPoint31YTile(pnt);
+				dist += BinaryRoutePlanner.squareRootDist(prevX, prevY, x, y);
+				double obstacle = router.defineRoutingObstacle(road, pnt);
+				if (obstacle < 0) {
+					break;
+				}
+				obstacles += obstacle;
+				float time = segment.distanceFromStart
+						+ BinaryRoutePlanner.calculateTimeWithObstacles(router, road, dist, obstacles);
+				RouteSegment next = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - ctx.memoryOverhead);
+				while (next != null) {
+					if (next.getRoad().getId() != road.getId() || next.getSegmentStart() != pnt) {
+						addTurn(ctx, queue, visited, next.initRouteSegment(true), segment, pnt, time);
+						addTurn(ctx, queue, visited, next.initRouteSegment(false), segment, pnt, time);
+					}
+					next = next.getNext();
+				}
+				prev = pnt;
+			}
+		}
+	}
+
+	private void addTurn(RoutingContext ctx, RouteSegmentQueue queue, TLongHashSet visited, RouteSegment next,
+			RouteSegment segment, int segmentPoint, float time) {
+		if (next != null) {
+			float turnTime = (float) ctx.getRouter().calculateTurnTime(next,
+					next.isPositive() ? next.getRoad().getPointsLength() - 1 : 0, segment, segmentPoint);
+			addSegment(ctx, queue, visited, next, time + turnTime);
+		}
+	}
+
+	private void addSegment(RoutingContext ctx, RouteSegmentQueue queue, TLongHashSet visited, RouteSegment next,
+			float time) {
+		if (next == null) {
+			return;
+		}
+		int oneway = ctx.getRouter().isOneWay(next.getRoad());
+		if ((oneway > 0 && !next.isPositive()) || (oneway < 0 && next.isPositive())) {
+			return;
+		}
+		long id = BinaryRoutePlanner.calculateRoutePointId(next, next.isPositive());
+		if (visited.contains(id)) {
+			return;
+		}
+		RouteSegment queued = queue.get(id);
+		if (queued == null) {
+			next.distanceFromStart = time;
+			queue.add(id, next);
+		} else if (time < queued.distanceFromStart) {
+			queued.distanceFromStart = time;
+			queue.decreaseKey(queued);
+		}
+	}
+}
@@ -37,6 +37,23 @@ public class RoutingConfiguration {
 	// 1.2 Build A* graph in backward/forward direction (can affect results)
 	// 0 - 2 ways, 1 - direct way, -1 - reverse way
 	public int planRoadDirection = 0;
+	// expand forward and backward graphs on 2 threads (each direction loads own tiles within half of memory limit)
+	public boolean parallelBidirectional = false;
+	// keep backward graph of calculated route, recalculation to the same target expands only forward graph
+	// (enabled by incrementalRecalculation attribute of router in routing.xml, graph is kept only when it is small)
+	public boolean incrementalRecalculation = false;
+	// read tiles along expected route on background thread (RoutingTilePrefetcher)
+	// (enabled by prefetchTiles attribute of router in routing.xml, prefetched tiles are limited by shared tile cache)
+	public boolean prefetchTiles = false;
+	// legs between intermediate points are calculated on several threads (every leg within memory limit)
+	public int legThreads = 1;
+	// slices of long route are prepared (roads attached, turns calculated) on several threads
+	public int preparationThreads = 1;
+	// time dependent factors of routing speed (null - speed doesn't depend on time), not used by native routing
+	// and contraction hierarchy
+	public SpeedProfiles speedProfiles;
+	// departure time in milliseconds for speed profiles (0 - time of route calculation)
+	public long departureTime = 0;
 
 	// 1.3 Router specific coefficients and restrictions
 	// use GeneralRouter and not interface to simplify native access !
@@ -99,6 +116,11 @@ public class RoutingConfiguration {
 				i.memoryLimitation = memoryLimitMB * (1 << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.parallelBidirectional = parseSilentBoolean(getAttribute(i.router, "parallelBidirectional"), i.parallelBidirectional);
+			i.incrementalRecalculation = parseSilentBoolean(getAttribute(i.router, "incrementalRecalculation"), i.incrementalRecalculation);
+			i.prefetchTiles = parseSilentBoolean(getAttribute(i.router, "prefetchTiles"), i.prefetchTiles);
+			i.legThreads = parseSilentInt(getAttribute(i.router, "legThreads"), i.legThreads);
+			i.preparationThreads = parseSilentInt(getAttribute(i.router, "preparationThreads"), i.preparationThreads);
 //			i.planRoadDirection = 1;
 			
 			return i;
@@ -153,6 +175,13 @@ public class RoutingConfiguration {
 	}
 
 
+	private static boolean parseSilentBoolean(String t, boolean v) {
+		if (t == null || t.length() == 0) {
+			return v;
+		}
+		return Boolean.parseBoolean(t);
+	}
+
 	private static float parseSilentFloat(String t, float v) {
 		if (t == null || t.length() == 0) {
 			return v;
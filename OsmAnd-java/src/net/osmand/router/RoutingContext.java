@@ -53,6 +53,8 @@ public class RoutingContext {
 	public final NativeLibrary nativeLib;
 	public final Map<BinaryMapIndexReader, List<RouteSubregion>> map = new LinkedHashMap<BinaryMapIndexReader, List<RouteSubregion>>();
 	public final Map<RouteRegion, BinaryMapIndexReader> reverseMap = new LinkedHashMap<RouteRegion, BinaryMapIndexReader>();
+	// departure time (second of week) for speed profiles
+	public final int departureSecondOfWeek;
 	
 	// 1. Initial variables
 	public int startX;
@@ -67,6 +69,17 @@ public class RoutingContext {
 	public boolean leftSideNavigation;
 	public List<RouteSegmentResult> previouslyCalculatedRoute;
 	public PrecalculatedRouteDirection precalculatedRouteDirection;
+	// optional preprocessed graph of routing profile (used instead of A* when route is inside it)
+	public ContractionHierarchy contractionHierarchy;
+	// optional landmark tables of routing profile (ALT heuristic of A*)
+	public Landmarks landmarks;
+	// decoded tiles shared with other contexts (null - tiles are read by context only)
+	public RoutingTileCache tileCache = RoutingTileCache.getDefault();
+	// backward graph of previous calculation to the same target (used instead of previouslyCalculatedRoute)
+	public ReverseSearchTree reverseSearchTree;
+	// landmark nodes of start and target point (null - landmarks are not used)
+	int[] landmarkStartNodes;
+	int[] landmarkTargetNodes;
 
 	// 2. Routing memory cache (big objects)
 	TLongObjectHashMap<List<RoutingSubregionTile>> indexedSubregions = new TLongObjectHashMap<List<RoutingSubregionTile>>();
@@ -116,6 +129,12 @@ public class RoutingContext {
 		this.leftSideNavigation = cp.leftSideNavigation;
 		this.reverseMap.putAll(cp.reverseMap);
 		this.nativeLib = cp.nativeLib;
+		this.contractionHierarchy = cp.contractionHierarchy;
+		this.landmarks = cp.landmarks;
+		this.landmarkStartNodes = cp.landmarkStartNodes;
+		this.landmarkTargetNodes = cp.landmarkTargetNodes;
+		this.tileCache = cp.tileCache;
+		this.departureSecondOfWeek = cp.departureSecondOfWeek;
 		// copy local data and clear caches
 		for(RoutingSubregionTile tl : subregionTiles) {
 			if(tl.isLoaded()) {
@@ -151,6 +170,18 @@ public class RoutingContext {
 		}
 		this.config = config;
 		this.nativeLib = nativeLibrary;
+		this.departureSecondOfWeek = SpeedProfiles.getSecondOfWeek(config.departureTime != 0 ? config.departureTime
+				: System.currentTimeMillis());
+	}
+	
+	/**
+	 * Factor of routing speed of road passed given seconds after departure (1 if there are no speed profiles)
+	 */
+	public float getSpeedFactor(RouteDataObject road, float secondsFromDeparture) {
+		if (config.speedProfiles == null) {
+			return 1;
+		}
+		return config.speedProfiles.getSpeedFactor(road, departureSecondOfWeek + (int) secondsFromDeparture);
 	}
 	
 	
@@ -315,7 +346,15 @@ public class RoutingContext {
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
 				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				List<RouteDataObject> res;
+				if (tileCache != null) {
+					res = tileCache.loadRouteIndexData(reader, ts.subregion);
+				} else {
+					// reader could be shared with context searching in parallel
+					synchronized (reader) {
+						res = reader.loadRouteIndexData(ts.subregion);
+					}
+				}
 //				System.out.println(ts.subregion.shiftToData + " " + res);
 				if(toLoad != null) {
 					toLoad.addAll(res);
@@ -405,7 +444,10 @@ public class RoutingContext {
 				if (r.getValue().size() > 0) {
 					long now = System.nanoTime();
 					// int rg = r.getValue().get(0).routeReg.regionsRead;
-					List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					List<RouteSubregion> subregs;
+					synchronized (r.getKey()) {
+						subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					}
 					if(subregs.size() > 0) {
 						checkOldRoutingFiles(r.getKey());
 					}
@@ -0,0 +1,229 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingContext.TileStatistics;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Process wide cache of decoded route subregion tiles shared by routing contexts
+ * (route calculation, recalculation, current position lookups, BASE and COMPLEX passes of one route).
+ * Tiles are cached as they are read from file (before filtering by router), so the same tile is reused by
+ * all routing profiles. Route data objects are immutable, every context builds its own index of tile points.
+ * Cache is bounded by estimated size of tiles (TileStatistics) and evicts least recently used tiles first.
+ */
+public class RoutingTileCache {
+
+	private final static Log log = PlatformUtil.getLog(RoutingTileCache.class);
+	public static final int DEFAULT_MEMORY_LIMIT = 24 * (1 << 20);
+
+	private static final RoutingTileCache DEFAULT = new RoutingTileCache(DEFAULT_MEMORY_LIMIT);
+
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<TileKey, CachedTile>(64, 0.75f, true);
+	// tiles being read by some context (other contexts wait for them instead of reading the same tile)
+	private final Set<TileKey> loading = new HashSet<TileKey>();
+	private long memoryLimit;
+	private long size = 0;
+
+	private int hits = 0;
+	private int misses = 0;
+	private int evicted = 0;
+
+	public RoutingTileCache(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	public static RoutingTileCache getDefault() {
+		return DEFAULT;
+	}
+
+	public synchronized long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * Sets limit of estimated size in bytes, 0 disables caching
+	 */
+	public synchronized void setMemoryLimit(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+		evict();
+	}
+
+	/**
+	 * Estimated size of cached tiles in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized void clear() {
+		tiles.clear();
+		size = 0;
+	}
+
+	/**
+	 * Removes tiles of route region (file is closed or replaced)
+	 */
+	public synchronized void clear(RouteRegion region) {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (it.hasNext()) {
+			CachedTile t = it.next();
+			if (t.key.region == region) {
+				size -= t.statistics.size;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns all route data objects of subregion tile (not filtered by router), loads them from reader if tile is not cached.
+	 * Returned list must not be modified.
+	 */
+	public List<RouteDataObject> loadRouteIndexData(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		TileKey key = new TileKey(subregion.routeReg, subregion.filePointer);
+		synchronized (this) {
+			while (memoryLimit > 0 && loading.contains(key)) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// read tile by itself
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			CachedTile t = tiles.get(key);
+			if (t != null) {
+				hits++;
+				return t.objects;
+			}
+			misses++;
+			if (memoryLimit > 0) {
+				loading.add(key);
+			}
+		}
+		CachedTile loaded = null;
+		try {
+			List<RouteDataObject> res;
+			// reader could be shared with contexts searching in parallel
+			synchronized (reader) {
+				res = reader.loadRouteIndexData(subregion);
+			}
+			loaded = new CachedTile(key, res);
+		} finally {
+			if (loaded == null) {
+				loadingFinished(key);
+			}
+		}
+		synchronized (this) {
+			loadingFinished(key);
+			if (memoryLimit <= 0) {
+				return loaded.objects;
+			}
+			// tile could be loaded by other context meanwhile
+			CachedTile t = tiles.get(key);
+			if (t != null) {
+				return t.objects;
+			}
+			tiles.put(key, loaded);
+			size += loaded.statistics.size;
+			evict();
+		}
+		return loaded.objects;
+	}
+
+	private synchronized void loadingFinished(TileKey key) {
+		if (loading.remove(key)) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Tile is cached or being read
+	 */
+	public synchronized boolean contains(RouteSubregion subregion) {
+		TileKey key = new TileKey(subregion.routeReg, subregion.filePointer);
+		return tiles.containsKey(key) || loading.contains(key);
+	}
+
+	private void evict() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (size > memoryLimit && it.hasNext()) {
+			CachedTile t = it.next();
+			size -= t.statistics.size;
+			evicted++;
+			it.remove();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Routing tile cache " + tiles.size() + " tiles " + size / (1 << 20) + " of " + memoryLimit / (1 << 20)
+				+ " MB, hits " + hits + " misses " + misses + " evicted " + evicted;
+	}
+
+	public synchronized void printStatistics() {
+		log.info(toString());
+	}
+
+	private static class TileKey {
+		private final RouteRegion region;
+		private final int filePointer;
+
+		public TileKey(RouteRegion region, int filePointer) {
+			this.region = region;
+			this.filePointer = filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(region) * 31 + filePointer;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return region == other.region && filePointer == other.filePointer;
+		}
+	}
+
+	private static class CachedTile {
+		private final TileKey key;
+		private final List<RouteDataObject> objects;
+		private final TileStatistics statistics = new TileStatistics();
+
+		public CachedTile(TileKey key, List<RouteDataObject> res) {
+			this.key = key;
+			List<RouteDataObject> objects = new ArrayList<RouteDataObject>(res.size());
+			for (RouteDataObject ro : res) {
+				if (ro != null) {
+					objects.add(ro);
+					statistics.addObject(ro);
+				}
+			}
+			this.objects = Collections.unmodifiableList(objects);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingContext.TileStatistics;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Reads route tiles (ZOOM_TO_LOAD_TILES) along expected route into {@link RoutingTileCache} on background thread,
+ * so route search finds them decoded when its frontier reaches them instead of waiting for file.
+ * Expected route is precalculated route direction (COMPLEX mode) or straight line between start and target,
+ * tiles are read from both ends when search goes in 2 directions. Prefetch stops when it takes half of cache
+ * memory limit (tiles used by search should not be evicted) or when route calculation is finished.
+ * Single thread is enough as tiles of one file are read and decoded under lock of reader.
+ */
+public class RoutingTilePrefetcher implements Runnable {
+
+	private final static Log log = PlatformUtil.getLog(RoutingTilePrefetcher.class);
+	// tiles around expected route on each side
+	private static final int CORRIDOR_TILES = 1;
+
+	private final RoutingTileCache cache;
+	private final Map<BinaryMapIndexReader, List<RouteSubregion>> map;
+	private final int zoom;
+	private final TLongArrayList tiles;
+	private volatile boolean stopped = false;
+	// accessed only by prefetch thread
+	private int prefetchedTiles = 0;
+	private long prefetchedSize = 0;
+
+	RoutingTilePrefetcher(RoutingContext ctx) {
+		this.cache = ctx.tileCache;
+		this.map = ctx.map;
+		this.zoom = ctx.config.ZOOM_TO_LOAD_TILES;
+		this.tiles = calculateCorridor(ctx, zoom);
+	}
+
+	/**
+	 * Starts prefetch of tiles between initialized start and target points of context,
+	 * returns null if prefetch is disabled or tiles are not cached
+	 */
+	public static RoutingTilePrefetcher start(RoutingContext ctx) {
+		if (!ctx.config.prefetchTiles || ctx.nativeLib != null || ctx.tileCache == null
+				|| ctx.tileCache.getMemoryLimit() <= 0) {
+			return null;
+		}
+		RoutingTilePrefetcher prefetcher = new RoutingTilePrefetcher(ctx);
+		Thread t = new Thread(prefetcher, "Route tiles prefetch");
+		t.setDaemon(true);
+		t.start();
+		return prefetcher;
+	}
+
+	public void stop() {
+		stopped = true;
+	}
+
+	public int getTilesCount() {
+		return tiles.size();
+	}
+
+	@Override
+	public void run() {
+		long limit = cache.getMemoryLimit() / 2;
+		try {
+			for (int i = 0; i < tiles.size() && !stopped && prefetchedSize < limit; i++) {
+				prefetchTile(tiles.get(i));
+			}
+		} catch (IOException e) {
+			// file could be closed after route is calculated
+			log.warn("Route tiles prefetch is stopped : " + e.getMessage());
+		} catch (RuntimeException e) {
+			log.warn("Route tiles prefetch is stopped : " + e.getMessage(), e);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Prefetched " + prefetchedTiles + " subregion tiles (" + prefetchedSize / (1 << 20) + " MB) of "
+					+ tiles.size() + " tiles around route");
+		}
+	}
+
+	private void prefetchTile(long tileId) throws IOException {
+		int shift = 31 - zoom;
+		int tileX = (int) (tileId >> zoom);
+		int tileY = (int) (tileId & ((1 << zoom) - 1));
+		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(tileX << shift,
+				(tileX + 1) << shift, tileY << shift, (tileY + 1) << shift, null);
+		for (Entry<BinaryMapIndexReader, List<RouteSubregion>> r : map.entrySet()) {
+			if (r.getValue().isEmpty()) {
+				continue;
+			}
+			List<RouteSubregion> subregs;
+			// subregions tree is shared with routing context
+			synchronized (r.getKey()) {
+				subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+			}
+			for (RouteSubregion sr : subregs) {
+				if (stopped) {
+					return;
+				}
+				if (!cache.contains(sr)) {
+					TileStatistics statistics = new TileStatistics();
+					for (RouteDataObject ro : cache.loadRouteIndexData(r.getKey(), sr)) {
+						statistics.addObject(ro);
+					}
+					prefetchedSize += statistics.size;
+					prefetchedTiles++;
+				}
+			}
+		}
+	}
+
+	private static TLongArrayList calculateCorridor(RoutingContext ctx, int zoom) {
+		TIntArrayList px = new TIntArrayList();
+		TIntArrayList py = new TIntArrayList();
+		px.add(ctx.startX);
+		py.add(ctx.startY);
+		PrecalculatedRouteDirection direction = ctx.precalculatedRouteDirection;
+		if (direction != null) {
+			for (int i = 0; i < direction.getPointsCount(); i++) {
+				px.add(direction.getPointX(i));
+				py.add(direction.getPointY(i));
+			}
+		}
+		px.add(ctx.targetX);
+		py.add(ctx.targetY);
+
+		int shift = 31 - zoom;
+		// check every half of tile
+		int step = 1 << (shift - 1);
+		TLongArrayList line = new TLongArrayList();
+		TLongHashSet added = new TLongHashSet();
+		for (int i = 0; i < px.size() - 1; i++) {
+			int dx = px.get(i + 1) - px.get(i);
+			int dy = py.get(i + 1) - py.get(i);
+			int steps = Math.max(Math.abs(dx), Math.abs(dy)) / step + 1;
+			for (int s = 0; s <= steps; s++) {
+				int x = px.get(i) + (int) ((long) dx * s / steps);
+				int y = py.get(i) + (int) ((long) dy * s / steps);
+				for (int tx = (x >> shift) - CORRIDOR_TILES; tx <= (x >> shift) + CORRIDOR_TILES; tx++) {
+					for (int ty = (y >> shift) - CORRIDOR_TILES; ty <= (y >> shift) + CORRIDOR_TILES; ty++) {
+						if (tx < 0 || ty < 0 || tx >= (1 << zoom) || ty >= (1 << zoom)) {
+							continue;
+						}
+						long tileId = (((long) tx) << zoom) + ty;
+						if (added.add(tileId)) {
+							line.add(tileId);
+						}
+					}
+				}
+			}
+		}
+		if (ctx.getPlanRoadDirection() > 0) {
+			return line;
+		} else if (ctx.getPlanRoadDirection() < 0) {
+			line.reverse();
+			return line;
+		}
+		// both frontiers grow at the same time
+		TLongArrayList ordered = new TLongArrayList(line.size());
+		for (int i = 0, j = line.size() - 1; i <= j; i++, j--) {
+			ordered.add(line.get(i));
+			if (i != j) {
+				ordered.add(line.get(j));
+			}
+		}
+		return ordered;
+	}
+}
@@ -0,0 +1,252 @@
+package net.osmand.router;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Time dependent speeds : factors of routing speed (defined by router) for every hour of week (Monday 00:00 local time
+ * is hour 0). Profile is assigned to highway class (highway tag value) or to road id, road profile has priority.
+ * Profiles are read from binary sidecar file (big endian) :
+ * <pre>
+ * int magic, int version, int hours (168)
+ * int profiles, for every profile 168 unsigned bytes - speed in percents of routing speed (100 - not changed)
+ * int classes, for every class UTF highway value, int profile
+ * int roads, for every road long road id, int profile
+ * </pre>
+ * Lookup of factor is done for every relaxed segment, so it doesn't allocate objects : profile of highway class
+ * is resolved once per route type of region and kept in array indexed by type.
+ */
+public class SpeedProfiles {
+
+	public static final String FILE_EXT = ".speeds";
+	public static final int MAGIC = 0x53504446;
+	public static final int VERSION = 1;
+	public static final int HOURS_OF_WEEK = 7 * 24;
+	public static final int SECONDS_OF_WEEK = HOURS_OF_WEEK * 3600;
+
+	private static final float[] NO_PROFILE = new float[0];
+
+	private final Map<String, float[]> classProfiles = new HashMap<String, float[]>();
+	private final TLongObjectHashMap<float[]> roadProfiles = new TLongObjectHashMap<float[]>();
+	// profiles of route types of region (copy on write, NO_PROFILE - type is resolved without profile)
+	private volatile Map<RouteRegion, float[][]> regionTypes = new IdentityHashMap<RouteRegion, float[][]>();
+
+	/**
+	 * Speed profiles of obf file are stored next to it (they are factors of routing speed, so they are the same
+	 * for all routing profiles)
+	 */
+	public static File getFile(File obf) {
+		return new File(obf.getParentFile(), obf.getName() + FILE_EXT);
+	}
+
+	public static SpeedProfiles read(File file) throws IOException {
+		FileInputStream is = new FileInputStream(file);
+		try {
+			return read(new BufferedInputStream(is));
+		} finally {
+			is.close();
+		}
+	}
+
+	public static SpeedProfiles read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a speed profiles file");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version of speed profiles " + version);
+		}
+		int hours = in.readInt();
+		if (hours != HOURS_OF_WEEK) {
+			throw new IOException("Unsupported number of hours in speed profile " + hours);
+		}
+		float[][] profiles = new float[in.readInt()][];
+		for (int i = 0; i < profiles.length; i++) {
+			profiles[i] = new float[HOURS_OF_WEEK];
+			for (int h = 0; h < HOURS_OF_WEEK; h++) {
+				profiles[i][h] = in.readUnsignedByte() / 100f;
+			}
+		}
+		SpeedProfiles sp = new SpeedProfiles();
+		int classes = in.readInt();
+		for (int i = 0; i < classes; i++) {
+			String highway = in.readUTF();
+			sp.classProfiles.put(highway, profile(profiles, in.readInt()));
+		}
+		int roads = in.readInt();
+		for (int i = 0; i < roads; i++) {
+			long id = in.readLong();
+			sp.roadProfiles.put(id, profile(profiles, in.readInt()));
+		}
+		return sp;
+	}
+
+	private static float[] profile(float[][] profiles, int ind) throws IOException {
+		if (ind < 0 || ind >= profiles.length) {
+			throw new IOException("Wrong speed profile " + ind);
+		}
+		return profiles[ind];
+	}
+
+	/**
+	 * Sets factors (168 values) of highway class, should be called before profiles are used by routing
+	 */
+	public void setClassProfile(String highway, float[] factors) {
+		classProfiles.put(highway, checkFactors(factors));
+	}
+
+	/**
+	 * Sets factors (168 values) of road, should be called before profiles are used by routing
+	 */
+	public void setRoadProfile(long roadId, float[] factors) {
+		roadProfiles.put(roadId, checkFactors(factors));
+	}
+
+	/**
+	 * Adds profiles of other file (road ids are unique for map, profiles of highway classes which are
+	 * already set are kept), should be called before profiles are used by routing
+	 */
+	public void addProfiles(SpeedProfiles other) {
+		for (Entry<String, float[]> e : other.classProfiles.entrySet()) {
+			if (!classProfiles.containsKey(e.getKey())) {
+				classProfiles.put(e.getKey(), e.getValue());
+			}
+		}
+		roadProfiles.putAll(other.roadProfiles);
+	}
+
+	private static float[] checkFactors(float[] factors) {
+		if (factors.length != HOURS_OF_WEEK) {
+			throw new IllegalArgumentException("Speed profile should have " + HOURS_OF_WEEK + " hours");
+		}
+		return factors;
+	}
+
+	public void write(OutputStream os) throws IOException {
+		// equal profiles are written once
+		Map<float[], Integer> profiles = new IdentityHashMap<float[], Integer>();
+		for (float[] p : classProfiles.values()) {
+			addProfile(profiles, p);
+		}
+		for (float[] p : roadProfiles.valueCollection()) {
+			addProfile(profiles, p);
+		}
+		float[][] ordered = new float[profiles.size()][];
+		for (Entry<float[], Integer> e : profiles.entrySet()) {
+			ordered[e.getValue()] = e.getKey();
+		}
+		DataOutputStream out = new DataOutputStream(os);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(HOURS_OF_WEEK);
+		out.writeInt(ordered.length);
+		for (float[] p : ordered) {
+			for (int h = 0; h < HOURS_OF_WEEK; h++) {
+				out.writeByte(Math.max(0, Math.min(255, Math.round(p[h] * 100))));
+			}
+		}
+		out.writeInt(classProfiles.size());
+		for (Entry<String, float[]> e : classProfiles.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeInt(profiles.get(e.getValue()));
+		}
+		out.writeInt(roadProfiles.size());
+		long[] ids = roadProfiles.keys();
+		for (long id : ids) {
+			out.writeLong(id);
+			out.writeInt(profiles.get(roadProfiles.get(id)));
+		}
+		out.flush();
+	}
+
+	private static void addProfile(Map<float[], Integer> profiles, float[] p) {
+		if (!profiles.containsKey(p)) {
+			profiles.put(p, profiles.size());
+		}
+	}
+
+	/**
+	 * Factor of routing speed of road at given second of week (1 if road doesn't have profile)
+	 */
+	public float getSpeedFactor(RouteDataObject road, int secondOfWeek) {
+		int second = secondOfWeek % SECONDS_OF_WEEK;
+		if (second < 0) {
+			second += SECONDS_OF_WEEK;
+		}
+		int hour = second / 3600;
+		if (!roadProfiles.isEmpty()) {
+			float[] p = roadProfiles.get(road.getId());
+			if (p != null) {
+				return p[hour];
+			}
+		}
+		if (!classProfiles.isEmpty()) {
+			int[] types = road.getTypes();
+			for (int i = 0; i < types.length; i++) {
+				float[] p = getTypeProfile(road.region, types[i]);
+				if (p != NO_PROFILE) {
+					return p[hour];
+				}
+			}
+		}
+		return 1;
+	}
+
+	private float[] getTypeProfile(RouteRegion region, int type) {
+		float[][] types = regionTypes.get(region);
+		if (types == null || type >= types.length || types[type] == null) {
+			return resolveTypeProfile(region, type);
+		}
+		return types[type];
+	}
+
+	private synchronized float[] resolveTypeProfile(RouteRegion region, int type) {
+		float[][] types = regionTypes.get(region);
+		if (types != null && type < types.length && types[type] != null) {
+			return types[type];
+		}
+		float[][] resolved = types == null ? new float[type + 1][] : Arrays.copyOf(types, Math.max(type + 1,
+				types.length));
+		RouteTypeRule rule = region.quickGetEncodingRule(type);
+		float[] p = null;
+		if (rule != null && "highway".equals(rule.getTag())) {
+			p = classProfiles.get(rule.getValue());
+		}
+		resolved[type] = p == null ? NO_PROFILE : p;
+		Map<RouteRegion, float[][]> copy = new IdentityHashMap<RouteRegion, float[][]>(regionTypes);
+		copy.put(region, resolved);
+		regionTypes = copy;
+		return resolved[type];
+	}
+
+	/**
+	 * Second of week (from Monday 00:00) of time in local time zone
+	 */
+	public static int getSecondOfWeek(long timeMillis) {
+		Calendar c = Calendar.getInstance();
+		c.setTimeInMillis(timeMillis);
+		// Calendar.MONDAY = 2
+		int day = (c.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+		return day * 24 * 3600 + c.get(Calendar.HOUR_OF_DAY) * 3600 + c.get(Calendar.MINUTE) * 60
+				+ c.get(Calendar.SECOND);
+	}
+}
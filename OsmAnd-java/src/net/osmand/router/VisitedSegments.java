@@ -0,0 +1,157 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Visited state of one direction of route search.
+ * Every visited interval of road (point id calculated by BinaryRoutePlanner.calculateRoutePointId,
+ * direction is encoded in the lowest bit) is stored in open addressing table of primitive keys and refers
+ * to dense record of segment it was reached by. Records keep segment object only once for all intervals passed by it,
+ * segment object is needed to restore route.
+ */
+public class VisitedSegments {
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	// open addressing table : point id -> record index + 1 (0 - empty slot)
+	private long[] keys;
+	private int[] slots;
+	private int mask;
+	private int size = 0;
+
+	// dense records
+	private RouteSegment[] segments;
+	private int records = 0;
+
+	public VisitedSegments() {
+		this(1 << 10);
+	}
+
+	public VisitedSegments(int capacity) {
+		int tableSize = Integer.highestOneBit(Math.max(16, (int) (capacity / LOAD_FACTOR)) - 1) << 1;
+		keys = new long[tableSize];
+		slots = new int[tableSize];
+		mask = tableSize - 1;
+		segments = new RouteSegment[Math.max(16, capacity / 2)];
+	}
+
+	/**
+	 * Number of visited intervals
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of distinct segments stored
+	 */
+	public int getRecordsCount() {
+		return records;
+	}
+
+	public boolean containsKey(long id) {
+		return slots[indexOf(id)] != 0;
+	}
+
+	public RouteSegment get(long id) {
+		int r = slots[indexOf(id)];
+		return r == 0 ? null : segments[r - 1];
+	}
+
+	public void put(long id, RouteSegment segment) {
+		int r = recordOf(segment);
+		int i = indexOf(id);
+		if (slots[i] == 0) {
+			keys[i] = id;
+			size++;
+			slots[i] = r + 1;
+			if (size > keys.length * LOAD_FACTOR) {
+				rehash(keys.length << 1);
+			}
+		} else {
+			slots[i] = r + 1;
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(slots, 0);
+		Arrays.fill(segments, 0, records, null);
+		size = 0;
+		records = 0;
+	}
+
+	private int recordOf(RouteSegment segment) {
+		// intervals of one road are put one by one by the same segment
+		if (records > 0 && segments[records - 1] == segment) {
+			return records - 1;
+		}
+		if (records == segments.length) {
+			int capacity = records + (records >> 1);
+			segments = Arrays.copyOf(segments, capacity);
+		}
+		segments[records] = segment;
+		return records++;
+	}
+
+	private int indexOf(long id) {
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		int i = (h ^ (h >>> 16)) & mask;
+		while (slots[i] != 0 && keys[i] != id) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void rehash(int tableSize) {
+		long[] oldKeys = keys;
+		int[] oldSlots = slots;
+		keys = new long[tableSize];
+		slots = new int[tableSize];
+		mask = tableSize - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldSlots[j] != 0) {
+				int i = indexOf(oldKeys[j]);
+				keys[i] = oldKeys[j];
+				slots[i] = oldSlots[j];
+			}
+		}
+	}
+
+	/**
+	 * Visited segments of search direction running in parallel with the opposite one
+	 */
+	public static class Synchronized extends VisitedSegments {
+
+		@Override
+		public synchronized int size() {
+			return super.size();
+		}
+
+		@Override
+		public synchronized int getRecordsCount() {
+			return super.getRecordsCount();
+		}
+
+		@Override
+		public synchronized boolean containsKey(long id) {
+			return super.containsKey(id);
+		}
+
+		@Override
+		public synchronized RouteSegment get(long id) {
+			return super.get(id);
+		}
+
+		@Override
+		public synchronized void put(long id, RouteSegment segment) {
+			super.put(id, segment);
+		}
+
+		@Override
+		public synchronized void clear() {
+			super.clear();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package net.osmand.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.router.RoutingConfiguration;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Synthetic files shared by benchmarks (OsmAnd-java-bench) and tests. Files are generated once into temp directory
+ * (osmand.bench.dir system property) and reused by next runs, so benchmarks don't need any downloaded maps.
+ */
+public class BenchmarkData {
+
+	public static final double LAT = 52.5;
+	public static final double LON = 13.4;
+
+	// poi_types.xml is copied from resources repository by the full build only
+	private static final String MINIMAL_POI_TYPES = "<poi_types>\n"
+			+ "<poi_category name=\"shop\"><poi_type name=\"supermarket\" tag=\"shop\" value=\"supermarket\"/></poi_category>\n"
+			+ "<poi_category name=\"sustenance\"><poi_type name=\"cafe\" tag=\"amenity\" value=\"cafe\"/></poi_category>\n"
+			+ "<poi_category name=\"user_defined_other\"/>\n" + "</poi_types>\n";
+
+	// routing.xml is copied from resources repository by the full build only
+	private static final String MINIMAL_ROUTING = "<osmand_routing_config defaultProfile=\"car\">\n"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\" restrictionsAware=\"true\" minDefaultSpeed=\"30\" maxDefaultSpeed=\"130\">\n"
+			+ "<way attribute=\"access\">\n"
+			+ "	<select value=\"1\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "	<select value=\"1\" t=\"highway\" v=\"primary\"/>\n"
+			+ "	<select value=\"1\" t=\"highway\" v=\"residential\"/>\n"
+			+ "	<select value=\"-1\"/>\n"
+			+ "</way>\n"
+			+ "<way attribute=\"speed\" type=\"speed\">\n"
+			+ "	<select value=\"120\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "	<select value=\"80\" t=\"highway\" v=\"primary\"/>\n"
+			+ "	<select value=\"30\" t=\"highway\" v=\"residential\"/>\n"
+			+ "</way>\n"
+			+ "<way attribute=\"priority\">\n"
+			+ "	<select value=\"1.3\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "	<select value=\"1.2\" t=\"highway\" v=\"primary\"/>\n"
+			+ "	<select value=\"1\"/>\n"
+			+ "</way>\n"
+			+ "<way attribute=\"oneway\">\n"
+			+ "	<select value=\"0\"/>\n"
+			+ "</way>\n"
+			+ "</routingProfile>\n" + "</osmand_routing_config>\n";
+
+	private static boolean poiTypesInit = false;
+	private static RoutingConfiguration.Builder routingConfig = null;
+
+	public static File getDirectory() {
+		File dir = new File(System.getProperty("osmand.bench.dir", System.getProperty("java.io.tmpdir")), "osmand-bench");
+		dir.mkdirs();
+		return dir;
+	}
+
+	public static SyntheticObfGenerator createGenerator(int regionZoom) {
+		return createGenerator(regionZoom, false);
+	}
+
+	public static SyntheticObfGenerator createGenerator(int regionZoom, boolean hierarchical) {
+		SyntheticObfGenerator gen = new SyntheticObfGenerator(LAT, LON, regionZoom);
+		gen.setHierarchical(hierarchical);
+		return gen;
+	}
+
+	/**
+	 * Returns file of region with size of tile at regionZoom (9 is ~ 50x50 km) generating it if needed.
+	 */
+	public static File getObf(int regionZoom) throws IOException {
+		return getObf(regionZoom, false);
+	}
+
+	public static synchronized File getObf(int regionZoom, boolean hierarchical) throws IOException {
+		File f = new File(getDirectory(), "Synthetic_" + regionZoom + (hierarchical ? "_hierarchical" : "") + "_v"
+				+ SyntheticObfGenerator.VERSION + "_" + SyntheticObfGenerator.REVISION + ".obf");
+		if (!f.exists()) {
+			File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+			createGenerator(regionZoom, hierarchical).generate(tmp);
+			if (!tmp.renameTo(f)) {
+				throw new IOException("Can't create " + f.getAbsolutePath());
+			}
+		}
+		return f;
+	}
+
+	public static synchronized void initPoiTypes() throws IOException {
+		if (poiTypesInit) {
+			return;
+		}
+		if (MapPoiTypes.class.getResource("poi_types.xml") == null) {
+			File f = new File(getDirectory(), "poi_types.xml");
+			Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+			try {
+				w.write(MINIMAL_POI_TYPES);
+			} finally {
+				w.close();
+			}
+			MapPoiTypes.setDefault(new MapPoiTypes(f.getAbsolutePath()));
+		}
+		poiTypesInit = true;
+	}
+
+	/**
+	 * Routing profiles of routing.xml from classpath or minimal car profile for synthetic roads.
+	 */
+	public static synchronized RoutingConfiguration.Builder getRoutingConfig() throws IOException {
+		if (routingConfig == null) {
+			if (RoutingConfiguration.class.getResource("routing.xml") != null) {
+				routingConfig = RoutingConfiguration.getDefault();
+			} else {
+				try {
+					routingConfig = RoutingConfiguration.parseFromInputStream(new ByteArrayInputStream(MINIMAL_ROUTING
+							.getBytes("UTF-8")));
+				} catch (XmlPullParserException e) {
+					throw new IOException(e);
+				}
+			}
+		}
+		return routingConfig;
+	}
+
+	public static BinaryMapIndexReader openReader(File f) throws IOException {
+		initPoiTypes();
+		return new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+	}
+}
@@ -0,0 +1,180 @@
+package net.osmand.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Growable in-memory obf writer.
+ * Protobuf builders can't write obf sections (they have big endian fixed32 lengths and offsets
+ * which are known only after the data is written), so sections are written here
+ * and patched when their content is written. Positions are offsets from the start of the output.
+ */
+class ObfOutput {
+	private static final int TAG_TYPE_BITS = 3;
+	// wire types of protobuf (not public in WireFormat)
+	static final int WIRETYPE_VARINT = 0;
+	static final int WIRETYPE_LENGTH_DELIMITED = 2;
+	static final int WIRETYPE_FIXED32 = 5;
+
+	private byte[] buf;
+	private int pos = 0;
+
+	ObfOutput(int capacity) {
+		buf = new byte[Math.max(capacity, 16)];
+	}
+
+	ObfOutput() {
+		this(256);
+	}
+
+	int position() {
+		return pos;
+	}
+
+	byte[] toByteArray() {
+		byte[] r = new byte[pos];
+		System.arraycopy(buf, 0, r, 0, pos);
+		return r;
+	}
+
+	void writeTo(File f) throws IOException {
+		FileOutputStream fous = new FileOutputStream(f);
+		try {
+			fous.write(buf, 0, pos);
+		} finally {
+			fous.close();
+		}
+	}
+
+	private void ensure(int n) {
+		if (pos + n > buf.length) {
+			byte[] b = new byte[Math.max(buf.length * 2, pos + n)];
+			System.arraycopy(buf, 0, b, 0, pos);
+			buf = b;
+		}
+	}
+
+	void writeRawByte(int b) {
+		ensure(1);
+		buf[pos++] = (byte) b;
+	}
+
+	void writeRawBytes(byte[] b) {
+		ensure(b.length);
+		System.arraycopy(b, 0, buf, pos, b.length);
+		pos += b.length;
+	}
+
+	void writeVarint(long v) {
+		while ((v & ~0x7FL) != 0) {
+			writeRawByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		writeRawByte((int) v);
+	}
+
+	void writeSVarint(int v) {
+		writeVarint(((v << 1) ^ (v >> 31)) & 0xffffffffL);
+	}
+
+	void writeSVarint64(long v) {
+		writeVarint((v << 1) ^ (v >> 63));
+	}
+
+	void writeTag(int field, int wireType) {
+		writeVarint((field << TAG_TYPE_BITS) | wireType);
+	}
+
+	void writeUInt32(int field, int v) {
+		writeTag(field, WIRETYPE_VARINT);
+		writeVarint(v & 0xffffffffL);
+	}
+
+	void writeInt32(int field, int v) {
+		writeTag(field, WIRETYPE_VARINT);
+		// negative int32 are encoded as 64 bit varint
+		writeVarint(v);
+	}
+
+	void writeInt64(int field, long v) {
+		writeTag(field, WIRETYPE_VARINT);
+		writeVarint(v);
+	}
+
+	void writeSInt32(int field, int v) {
+		writeTag(field, WIRETYPE_VARINT);
+		writeSVarint(v);
+	}
+
+	void writeString(int field, String s) {
+		try {
+			writeBytes(field, s.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	void writeBytes(int field, byte[] b) {
+		writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+		writeVarint(b.length);
+		writeRawBytes(b);
+	}
+
+	void writeMessage(int field, MessageLite m) {
+		writeBytes(field, m.toByteArray());
+	}
+
+	/**
+	 * Writes length delimited field and returns position of its varint length
+	 * (obf offsets to data blocks point there).
+	 */
+	int writeMessageWithOffset(int field, byte[] b) {
+		writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+		int p = pos;
+		writeVarint(b.length);
+		writeRawBytes(b);
+		return p;
+	}
+
+	/**
+	 * Starts section with fixed 4 bytes length, returns position of section content
+	 * (file pointer of section as reader sees it).
+	 */
+	int beginSection(int field) {
+		writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		writeInt(0);
+		return pos;
+	}
+
+	void endSection(int start) {
+		patchInt(start - 4, pos - start);
+	}
+
+	/**
+	 * Writes fixed32 field with zero value to patch it later, returns position of value.
+	 */
+	int writeFixed32Placeholder(int field) {
+		writeTag(field, WIRETYPE_FIXED32);
+		int p = pos;
+		writeInt(0);
+		return p;
+	}
+
+	void writeInt(int v) {
+		ensure(4);
+		patchInt(pos, v);
+		pos += 4;
+	}
+
+	void patchInt(int at, int v) {
+		buf[at] = (byte) (v >>> 24);
+		buf[at + 1] = (byte) (v >>> 16);
+		buf[at + 2] = (byte) (v >>> 8);
+		buf[at + 3] = (byte) v;
+	}
+}
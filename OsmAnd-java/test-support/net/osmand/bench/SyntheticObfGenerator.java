@@ -0,0 +1,621 @@
+package net.osmand.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.binary.OsmandOdb.CityBlockIndex;
+import net.osmand.binary.OsmandOdb.CityIndex;
+import net.osmand.binary.OsmandOdb.IdTable;
+import net.osmand.binary.OsmandOdb.MapData;
+import net.osmand.binary.OsmandOdb.MapDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex.CitiesIndex;
+import net.osmand.binary.OsmandOdb.OsmAndCategoryTable;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapRootLevel;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBox;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxData;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxDataAtom;
+import net.osmand.binary.OsmandOdb.OsmAndPoiIndex;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndStructure;
+import net.osmand.binary.OsmandOdb.OsmAndTileBox;
+import net.osmand.binary.OsmandOdb.RouteData;
+import net.osmand.binary.OsmandOdb.StreetIndex;
+import net.osmand.binary.OsmandOdb.StringTable;
+import net.osmand.util.MapUtils;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Generates obf file with synthetic data of square region : lattice of roads
+ * (every {@link #PRIMARY_EACH}th road is primary and named), buildings and pois spread randomly in every leaf box
+ * and cities with streets. File contains map (2 levels), poi, address and routing sections
+ * with the same structure as produced by map creator, so all sections could be read by BinaryMapIndexReader.
+ * Routing section has base boxes with primary roads (used by BASE route calculation). Hierarchical road network
+ * additionally has every {@link #MOTORWAY_EACH}th road as motorway connected only to primary roads.
+ * Generation is deterministic for the same parameters.
+ */
+public class SyntheticObfGenerator {
+
+	public static final int VERSION = 2;
+	// increment when generated data changes, so cached files are generated again
+	public static final int REVISION = 3;
+	public static final int PRIMARY_EACH = 8;
+	public static final int MOTORWAY_EACH = PRIMARY_EACH * PRIMARY_EACH;
+	public static final String REGION_NAME = "Synthetic";
+	// 01-01-2015
+	public static final long DATE_CREATED = 1420070400000l;
+
+	private static final int MAP_SHIFT = 5;
+	private static final int ROUTE_SHIFT = 4;
+	private static final int POI_SHIFT = 7;
+	private static final int SHIFT_BITS_CATEGORY = 7;
+
+	// map rules (ids start from 1 as in file)
+	private static final int MAP_PRIMARY = 1;
+	private static final int MAP_RESIDENTIAL = 2;
+	private static final int MAP_BUILDING = 3;
+	private static final int MAP_NAME = 4;
+	// route rules
+	private static final int ROUTE_PRIMARY = 1;
+	private static final int ROUTE_RESIDENTIAL = 2;
+	private static final int ROUTE_NAME = 3;
+	private static final int ROUTE_MOTORWAY = 4;
+
+	private static final String[] POI_CATEGORIES = new String[] { "shop", "sustenance" };
+	private static final String[][] POI_SUBCATEGORIES = new String[][] { { "supermarket", "bakery", "convenience" },
+			{ "restaurant", "cafe", "fast_food" } };
+
+	private final int left31;
+	private final int top31;
+	private final int size31;
+
+	private int leafSize31 = 1 << 16;
+	private int coarseLeafSize31 = 1 << 18;
+	private int roadSpacing31 = 1 << 14;
+	private int buildingsPerLeaf = 8;
+	private int poisPerLeaf = 8;
+	private int cities = 16;
+	private int streetsPerCity = 64;
+	private long seed = 1;
+	private boolean hierarchical = false;
+
+	/**
+	 * Region is aligned to tile grid of its size : tile of zoom (31 - regionZoom) containing lat, lon.
+	 */
+	public SyntheticObfGenerator(double lat, double lon, int regionZoom) {
+		this.size31 = 1 << (31 - regionZoom);
+		this.left31 = (MapUtils.get31TileNumberX(lon) / size31) * size31;
+		this.top31 = (MapUtils.get31TileNumberY(lat) / size31) * size31;
+	}
+
+	public int getLeft31() {
+		return left31;
+	}
+
+	public int getTop31() {
+		return top31;
+	}
+
+	public int getRight31() {
+		return left31 + size31 - 1;
+	}
+
+	public int getBottom31() {
+		return top31 + size31 - 1;
+	}
+
+	public int getSize31() {
+		return size31;
+	}
+
+	public int getRoadSpacing31() {
+		return roadSpacing31;
+	}
+
+	public void setRoadSpacing31(int roadSpacing31) {
+		this.roadSpacing31 = roadSpacing31;
+	}
+
+	public void setLeafSize31(int leafSize31) {
+		this.leafSize31 = leafSize31;
+	}
+
+	public void setBuildingsPerLeaf(int buildingsPerLeaf) {
+		this.buildingsPerLeaf = buildingsPerLeaf;
+	}
+
+	public void setPoisPerLeaf(int poisPerLeaf) {
+		this.poisPerLeaf = poisPerLeaf;
+	}
+
+	public void setCities(int cities, int streetsPerCity) {
+		this.cities = cities;
+		this.streetsPerCity = streetsPerCity;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public boolean isHierarchical() {
+		return hierarchical;
+	}
+
+	public void setHierarchical(boolean hierarchical) {
+		this.hierarchical = hierarchical;
+	}
+
+	private int roads() {
+		return size31 / roadSpacing31;
+	}
+
+	// motorway segments go from one primary road to the next one
+	private int maxRoadLength31() {
+		return hierarchical ? PRIMARY_EACH * roadSpacing31 : roadSpacing31;
+	}
+
+	public void generate(File file) throws IOException {
+		ObfOutput out = new ObfOutput(1 << 20);
+		out.writeUInt32(OsmAndStructure.VERSION_FIELD_NUMBER, VERSION);
+		// fixed date (routing rejects BASE data of files created before 2014)
+		out.writeInt64(OsmAndStructure.DATECREATED_FIELD_NUMBER, DATE_CREATED);
+		writeMapIndex(out);
+		writeAddressIndex(out);
+		writePoiIndex(out);
+		writeRoutingIndex(out);
+		out.writeUInt32(OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, VERSION);
+		out.writeTo(file);
+	}
+
+	/**
+	 * Data block of leaf box, null if box is empty.
+	 */
+	private interface LeafBlocks {
+		byte[] createBlock(int left, int top, int right, int bottom) throws IOException;
+	}
+
+	private static class PendingBlock {
+		final int shiftPos;
+		final int boxStart;
+		final byte[] block;
+
+		PendingBlock(int shiftPos, int boxStart, byte[] block) {
+			this.shiftPos = shiftPos;
+			this.boxStart = boxStart;
+			this.block = block;
+		}
+	}
+
+	// map & route boxes have the same fields (coordinates are relative to parent, shift is relative to box).
+	// Roads starting in the box end in the next ones, so written bounds cover them as map creator does.
+	private void writeBox(ObfOutput out, int field, int left, int top, int size, int leafSize, int pleft, int ptop,
+			int pright, int pbottom, LeafBlocks blocks, List<PendingBlock> pending) throws IOException {
+		byte[] block = null;
+		if (size <= leafSize) {
+			block = blocks.createBlock(left, top, left + size - 1, top + size - 1);
+			if (block == null) {
+				return;
+			}
+		}
+		int right = left + size - 1 + maxRoadLength31();
+		int bottom = top + size - 1 + maxRoadLength31();
+		int start = out.beginSection(field);
+		out.writeSInt32(MapDataBox.LEFT_FIELD_NUMBER, left - pleft);
+		out.writeSInt32(MapDataBox.RIGHT_FIELD_NUMBER, right - pright);
+		out.writeSInt32(MapDataBox.TOP_FIELD_NUMBER, top - ptop);
+		out.writeSInt32(MapDataBox.BOTTOM_FIELD_NUMBER, bottom - pbottom);
+		if (block != null) {
+			int shiftPos = out.writeFixed32Placeholder(MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER);
+			pending.add(new PendingBlock(shiftPos, start, block));
+		} else {
+			int half = size >> 1;
+			for (int i = 0; i < 4; i++) {
+				writeBox(out, MapDataBox.BOXES_FIELD_NUMBER, left + (i & 1) * half, top + (i >> 1) * half, half,
+						leafSize, left, top, right, bottom, blocks, pending);
+			}
+		}
+		out.endSection(start);
+	}
+
+	private void writePendingBlocks(ObfOutput out, int field, List<PendingBlock> pending) {
+		for (PendingBlock p : pending) {
+			int pos = out.writeMessageWithOffset(field, p.block);
+			out.patchInt(p.shiftPos, pos - p.boxStart);
+		}
+	}
+
+	/*
+	 * Map
+	 */
+	private void writeMapIndex(ObfOutput out) throws IOException {
+		int start = out.beginSection(OsmAndStructure.MAPINDEX_FIELD_NUMBER);
+		out.writeString(OsmAndMapIndex.NAME_FIELD_NUMBER, REGION_NAME);
+		writeMapRule(out, "highway", "primary");
+		writeMapRule(out, "highway", "residential");
+		writeMapRule(out, "building", "yes");
+		writeMapRule(out, "name", "");
+		writeMapLevel(out, 14, 21, leafSize31, false);
+		writeMapLevel(out, 9, 13, coarseLeafSize31, true);
+		out.endSection(start);
+	}
+
+	private void writeMapRule(ObfOutput out, String tag, String value) {
+		out.writeMessage(OsmAndMapIndex.RULES_FIELD_NUMBER, MapEncodingRule.newBuilder().setTag(tag).setValue(value)
+				.build());
+	}
+
+	private void writeMapLevel(ObfOutput out, int minZoom, int maxZoom, int leafSize, final boolean coarse)
+			throws IOException {
+		int start = out.beginSection(OsmAndMapIndex.LEVELS_FIELD_NUMBER);
+		out.writeInt32(MapRootLevel.MAXZOOM_FIELD_NUMBER, maxZoom);
+		out.writeInt32(MapRootLevel.MINZOOM_FIELD_NUMBER, minZoom);
+		out.writeInt32(MapRootLevel.LEFT_FIELD_NUMBER, getLeft31());
+		out.writeInt32(MapRootLevel.RIGHT_FIELD_NUMBER, getRight31());
+		out.writeInt32(MapRootLevel.TOP_FIELD_NUMBER, getTop31());
+		out.writeInt32(MapRootLevel.BOTTOM_FIELD_NUMBER, getBottom31());
+		List<PendingBlock> pending = new ArrayList<PendingBlock>();
+		writeBox(out, MapRootLevel.BOXES_FIELD_NUMBER, left31, top31, size31, leafSize, getLeft31(), getTop31(),
+				getRight31(), getBottom31(), new LeafBlocks() {
+					@Override
+					public byte[] createBlock(int left, int top, int right, int bottom) {
+						return createMapBlock(left, top, right, bottom, coarse);
+					}
+				}, pending);
+		writePendingBlocks(out, MapRootLevel.BLOCKS_FIELD_NUMBER, pending);
+		out.endSection(start);
+	}
+
+	private byte[] createMapBlock(int left, int top, int right, int bottom, boolean coarse) {
+		MapDataBlock.Builder block = MapDataBlock.newBuilder();
+		StringTable.Builder table = StringTable.newBuilder();
+		int n = roads();
+		int from = (left - left31) / roadSpacing31;
+		int to = Math.min(n - 1, (right - left31) / roadSpacing31);
+		int fromY = (top - top31) / roadSpacing31;
+		int toY = Math.min(n - 1, (bottom - top31) / roadSpacing31);
+		// ids in block are relative to base id
+		long baseId = roadId(from, fromY, 0);
+		block.setBaseId(baseId);
+		for (int i = from; i <= to; i++) {
+			for (int j = fromY; j <= toY; j++) {
+				int x = left31 + i * roadSpacing31;
+				int y = top31 + j * roadSpacing31;
+				// horizontal segment belongs to road j, vertical one to road i
+				if (i + 1 < n && (!coarse || j % PRIMARY_EACH == 0)) {
+					block.addDataObjects(createRoad(left, top, x, y, x + roadSpacing31, y, j, table,
+							roadId(i, j, 0) - baseId));
+				}
+				if (j + 1 < n && (!coarse || i % PRIMARY_EACH == 0)) {
+					block.addDataObjects(createRoad(left, top, x, y, x, y + roadSpacing31, i, table,
+							roadId(i, j, 1) - baseId));
+				}
+			}
+		}
+		if (!coarse) {
+			Random rnd = random(left, top);
+			int bsize = Math.max(1 << MAP_SHIFT, roadSpacing31 / 8) & ~((1 << MAP_SHIFT) - 1);
+			for (int k = 0; k < buildingsPerLeaf; k++) {
+				int bx = align(left + rnd.nextInt(right - left - bsize), MAP_SHIFT);
+				int by = align(top + rnd.nextInt(bottom - top - bsize), MAP_SHIFT);
+				int[] coordinates = new int[] { bx, by, bx + bsize, by, bx + bsize, by + bsize, bx, by + bsize, bx, by };
+				MapData.Builder b = MapData.newBuilder();
+				b.setAreaCoordinates(mapCoordinates(left, top, coordinates));
+				b.setTypes(varints(MAP_BUILDING));
+				b.setId((1L << 40) + (baseId << 10) + k - baseId);
+				block.addDataObjects(b);
+			}
+		}
+		if (block.getDataObjectsCount() == 0) {
+			return null;
+		}
+		if (table.getSCount() > 0) {
+			block.setStringTable(table);
+		}
+		return block.build().toByteArray();
+	}
+
+	private static long roadId(int i, int j, int dir) {
+		return (((long) i << 16) | j) << 1 | dir;
+	}
+
+	private MapData.Builder createRoad(int left, int top, int x1, int y1, int x2, int y2, int road,
+			StringTable.Builder table, long id) {
+		MapData.Builder b = MapData.newBuilder();
+		b.setCoordinates(mapCoordinates(left, top, new int[] { x1, y1, x2, y2 }));
+		if (road % PRIMARY_EACH == 0) {
+			b.setTypes(varints(MAP_PRIMARY));
+			table.addS(roadName(road));
+			b.setStringNames(varints(MAP_NAME, table.getSCount() - 1));
+		} else {
+			b.setTypes(varints(MAP_RESIDENTIAL));
+		}
+		b.setId(id);
+		return b;
+	}
+
+	private static String roadName(int road) {
+		return "Primary road " + road;
+	}
+
+	private static ByteString mapCoordinates(int left, int top, int[] xy) {
+		ObfOutput o = new ObfOutput();
+		int px = left >> MAP_SHIFT;
+		int py = top >> MAP_SHIFT;
+		for (int i = 0; i < xy.length; i += 2) {
+			int x = xy[i] >> MAP_SHIFT;
+			int y = xy[i + 1] >> MAP_SHIFT;
+			o.writeSVarint(x - px);
+			o.writeSVarint(y - py);
+			px = x;
+			py = y;
+		}
+		return ByteString.copyFrom(o.toByteArray());
+	}
+
+	private static ByteString varints(int... vs) {
+		ObfOutput o = new ObfOutput();
+		for (int v : vs) {
+			o.writeVarint(v);
+		}
+		return ByteString.copyFrom(o.toByteArray());
+	}
+
+	private static int align(int v, int shift) {
+		return v & ~((1 << shift) - 1);
+	}
+
+	private Random random(int x, int y) {
+		return new Random(seed * 31 + (((long) x) << 32 | y));
+	}
+
+	/*
+	 * Address
+	 */
+	private void writeAddressIndex(ObfOutput out) {
+		int start = out.beginSection(OsmAndStructure.ADDRESSINDEX_FIELD_NUMBER);
+		out.writeString(OsmAndAddressIndex.NAME_FIELD_NUMBER, REGION_NAME);
+		int cstart = out.beginSection(OsmAndAddressIndex.CITIES_FIELD_NUMBER);
+		// cities type should go first
+		out.writeUInt32(CitiesIndex.TYPE_FIELD_NUMBER, CitiesIndex.CitiesType.CitiesOrTowns.getNumber());
+		Random rnd = new Random(seed);
+		int n = roads();
+		int[] cityX = new int[cities];
+		int[] cityY = new int[cities];
+		int[] shiftPos = new int[cities];
+		int[] cityPos = new int[cities];
+		for (int c = 0; c < cities; c++) {
+			cityX[c] = left31 + rnd.nextInt(n) * roadSpacing31;
+			cityY[c] = top31 + rnd.nextInt(n) * roadSpacing31;
+			ObfOutput city = new ObfOutput();
+			city.writeUInt32(CityIndex.CITY_TYPE_FIELD_NUMBER, c % 2);
+			city.writeString(CityIndex.NAME_FIELD_NUMBER, "City " + c);
+			city.writeInt64(CityIndex.ID_FIELD_NUMBER, c + 1);
+			city.writeUInt32(CityIndex.X_FIELD_NUMBER, cityX[c]);
+			city.writeUInt32(CityIndex.Y_FIELD_NUMBER, cityY[c]);
+			int shift = city.writeFixed32Placeholder(CityIndex.SHIFTTOCITYBLOCKINDEX_FIELD_NUMBER);
+			byte[] cityBytes = city.toByteArray();
+			out.writeTag(CitiesIndex.CITIES_FIELD_NUMBER, ObfOutput.WIRETYPE_LENGTH_DELIMITED);
+			cityPos[c] = out.position();
+			out.writeVarint(cityBytes.length);
+			shiftPos[c] = out.position() + shift;
+			out.writeRawBytes(cityBytes);
+		}
+		for (int c = 0; c < cities; c++) {
+			CityBlockIndex.Builder block = CityBlockIndex.newBuilder();
+			for (int s = 0; s < streetsPerCity; s++) {
+				StreetIndex.Builder street = StreetIndex.newBuilder();
+				street.setName("Street " + c + "-" + s);
+				// location is relative to city (24th zoom tiles)
+				street.setX(rnd.nextInt(1 << 12) - (1 << 11));
+				street.setY(rnd.nextInt(1 << 12) - (1 << 11));
+				street.setId(((long) c << 20) + s);
+				block.addStreets(street);
+			}
+			int pos = out.writeMessageWithOffset(CitiesIndex.BLOCKS_FIELD_NUMBER, block.build().toByteArray());
+			out.patchInt(shiftPos[c], pos - cityPos[c]);
+		}
+		out.endSection(cstart);
+		out.endSection(start);
+	}
+
+	/*
+	 * Poi
+	 */
+	private void writePoiIndex(ObfOutput out) {
+		int start = out.beginSection(OsmAndStructure.POIINDEX_FIELD_NUMBER);
+		out.writeString(OsmAndPoiIndex.NAME_FIELD_NUMBER, REGION_NAME);
+		out.writeMessage(OsmAndPoiIndex.BOUNDARIES_FIELD_NUMBER, OsmAndTileBox.newBuilder().setLeft(getLeft31())
+				.setRight(getRight31()).setTop(getTop31()).setBottom(getBottom31()).build());
+		for (int i = 0; i < POI_CATEGORIES.length; i++) {
+			OsmAndCategoryTable.Builder cat = OsmAndCategoryTable.newBuilder().setCategory(POI_CATEGORIES[i]);
+			for (String s : POI_SUBCATEGORIES[i]) {
+				cat.addSubcategories(s);
+			}
+			out.writeMessage(OsmAndPoiIndex.CATEGORIESTABLE_FIELD_NUMBER, cat.build());
+		}
+		int rootZoom = 31 - Integer.numberOfTrailingZeros(size31);
+		int leafZoom = 31 - Integer.numberOfTrailingZeros(leafSize31);
+		List<PendingBlock> pending = new ArrayList<PendingBlock>();
+		int bstart = out.beginSection(OsmAndPoiIndex.BOXES_FIELD_NUMBER);
+		writePoiBox(out, left31 >> (31 - rootZoom), top31 >> (31 - rootZoom), rootZoom, 0, 0, 0, leafZoom, pending);
+		out.endSection(bstart);
+		for (PendingBlock p : pending) {
+			out.writeTag(OsmAndPoiIndex.POIDATA_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+			// offset is relative to the poi section and points to the length of data
+			out.patchInt(p.shiftPos, out.position() - start);
+			out.writeInt(p.block.length);
+			out.writeRawBytes(p.block);
+		}
+		out.endSection(start);
+	}
+
+	private void writePoiBox(ObfOutput out, int x, int y, int zoom, int px, int py, int pzoom, int leafZoom,
+			List<PendingBlock> pending) {
+		out.writeUInt32(OsmAndPoiBox.ZOOM_FIELD_NUMBER, zoom - pzoom);
+		out.writeSInt32(OsmAndPoiBox.LEFT_FIELD_NUMBER, x - (px << (zoom - pzoom)));
+		out.writeSInt32(OsmAndPoiBox.TOP_FIELD_NUMBER, y - (py << (zoom - pzoom)));
+		if (zoom >= leafZoom) {
+			int shiftPos = out.writeFixed32Placeholder(OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER);
+			pending.add(new PendingBlock(shiftPos, 0, createPoiData(x, y, zoom)));
+		} else {
+			for (int i = 0; i < 4; i++) {
+				int start = out.beginSection(OsmAndPoiBox.SUBBOXES_FIELD_NUMBER);
+				writePoiBox(out, (x << 1) + (i & 1), (y << 1) + (i >> 1), zoom + 1, x, y, zoom, leafZoom, pending);
+				out.endSection(start);
+			}
+		}
+	}
+
+	private byte[] createPoiData(int x, int y, int zoom) {
+		OsmAndPoiBoxData.Builder data = OsmAndPoiBoxData.newBuilder();
+		data.setZoom(zoom);
+		data.setX(x);
+		data.setY(y);
+		int size = 1 << (31 - zoom);
+		int left = x << (31 - zoom);
+		int top = y << (31 - zoom);
+		Random rnd = random(left, top + 1);
+		for (int k = 0; k < poisPerLeaf; k++) {
+			int px = left + rnd.nextInt(size);
+			int py = top + rnd.nextInt(size);
+			int cat = rnd.nextInt(POI_CATEGORIES.length);
+			int subcat = rnd.nextInt(POI_SUBCATEGORIES[cat].length);
+			OsmAndPoiBoxDataAtom.Builder atom = OsmAndPoiBoxDataAtom.newBuilder();
+			atom.setDx((px >> POI_SHIFT) - (x << (24 - zoom)));
+			atom.setDy((py >> POI_SHIFT) - (y << (24 - zoom)));
+			atom.addCategories(cat | (subcat << SHIFT_BITS_CATEGORY));
+			atom.setId((((long) x) << 32 | ((long) y) << 8) + k);
+			atom.setName(POI_SUBCATEGORIES[cat][subcat] + " " + x + "-" + y + "-" + k);
+			data.addPoiData(atom);
+		}
+		return data.build().toByteArray();
+	}
+
+	/*
+	 * Routing
+	 */
+	private void writeRoutingIndex(ObfOutput out) throws IOException {
+		int start = out.beginSection(OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER);
+		out.writeString(OsmAndRoutingIndex.NAME_FIELD_NUMBER, REGION_NAME);
+		writeRouteRule(out, "highway", "primary");
+		writeRouteRule(out, "highway", "residential");
+		writeRouteRule(out, "name", "");
+		writeRouteRule(out, "highway", "motorway");
+		List<PendingBlock> pending = new ArrayList<PendingBlock>();
+		// root boxes are not relative to anything
+		writeBox(out, OsmAndRoutingIndex.ROOTBOXES_FIELD_NUMBER, left31, top31, size31, leafSize31, 0, 0, 0, 0,
+				new LeafBlocks() {
+					@Override
+					public byte[] createBlock(int left, int top, int right, int bottom) {
+						return createRouteBlock(left, top, right, bottom, false);
+					}
+				}, pending);
+		writeBox(out, OsmAndRoutingIndex.BASEMAPBOXES_FIELD_NUMBER, left31, top31, size31, coarseLeafSize31, 0, 0, 0, 0,
+				new LeafBlocks() {
+					@Override
+					public byte[] createBlock(int left, int top, int right, int bottom) {
+						return createRouteBlock(left, top, right, bottom, true);
+					}
+				}, pending);
+		writePendingBlocks(out, OsmAndRoutingIndex.BLOCKS_FIELD_NUMBER, pending);
+		out.endSection(start);
+	}
+
+	private void writeRouteRule(ObfOutput out, String tag, String value) {
+		out.writeMessage(OsmAndRoutingIndex.RULES_FIELD_NUMBER, RouteEncodingRule.newBuilder().setTag(tag)
+				.setValue(value).build());
+	}
+
+	private byte[] createRouteBlock(int left, int top, int right, int bottom, boolean base) {
+		RouteDataBlock.Builder block = RouteDataBlock.newBuilder();
+		IdTable.Builder ids = IdTable.newBuilder();
+		StringTable.Builder table = StringTable.newBuilder();
+		int n = roads();
+		int from = (left - left31) / roadSpacing31;
+		int to = Math.min(n - 1, (right - left31) / roadSpacing31);
+		int fromY = (top - top31) / roadSpacing31;
+		int toY = Math.min(n - 1, (bottom - top31) / roadSpacing31);
+		long lastId = 0;
+		for (int i = from; i <= to; i++) {
+			for (int j = fromY; j <= toY; j++) {
+				int x = left31 + i * roadSpacing31;
+				int y = top31 + j * roadSpacing31;
+				for (int dir = 0; dir < 2; dir++) {
+					int along = dir == 0 ? i : j;
+					if (along + 1 >= n) {
+						continue;
+					}
+					int road = dir == 0 ? j : i;
+					if (base && road % PRIMARY_EACH != 0) {
+						continue;
+					}
+					boolean motorway = hierarchical && road % MOTORWAY_EACH == 0;
+					int length = 1;
+					if (motorway) {
+						// residential roads pass under motorway
+						if (along % PRIMARY_EACH != 0) {
+							continue;
+						}
+						length = Math.min(PRIMARY_EACH, n - 1 - along);
+					}
+					RouteData.Builder b = RouteData.newBuilder();
+					ObfOutput points = new ObfOutput();
+					int px = left >> ROUTE_SHIFT;
+					int py = top >> ROUTE_SHIFT;
+					int x2 = dir == 0 ? x + length * roadSpacing31 : x;
+					int y2 = dir == 0 ? y : y + length * roadSpacing31;
+					points.writeSVarint((x >> ROUTE_SHIFT) - px);
+					points.writeSVarint((y >> ROUTE_SHIFT) - py);
+					points.writeSVarint((x2 - x) >> ROUTE_SHIFT);
+					points.writeSVarint((y2 - y) >> ROUTE_SHIFT);
+					b.setPoints(ByteString.copyFrom(points.toByteArray()));
+					if (road % PRIMARY_EACH == 0) {
+						b.setTypes(varints(motorway ? ROUTE_MOTORWAY : ROUTE_PRIMARY));
+						table.addS(roadName(road));
+						b.setStringNames(varints(ROUTE_NAME, table.getSCount() - 1));
+					} else {
+						b.setTypes(varints(ROUTE_RESIDENTIAL));
+					}
+					long id = roadId(i, j, dir);
+					b.setRouteId(ids.getRouteIdCount());
+					ids.addRouteId(id - lastId);
+					lastId = id;
+					block.addDataObjects(b);
+				}
+			}
+		}
+		if (block.getDataObjectsCount() == 0) {
+			return null;
+		}
+		block.setIdTable(ids);
+		if (table.getSCount() > 0) {
+			block.setStringTable(table);
+		}
+		return block.build().toByteArray();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage : <output obf> [region zoom, default 9] [hierarchical, default false]");
+			return;
+		}
+		int zoom = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		SyntheticObfGenerator gen = new SyntheticObfGenerator(52.5, 13.4, zoom);
+		gen.setHierarchical(args.length > 2 && Boolean.parseBoolean(args[2]));
+		long time = System.currentTimeMillis();
+		File f = new File(args[0]);
+		gen.generate(f);
+		System.out.println("Generated " + f.getName() + " " + (f.length() >> 10) + " KB in "
+				+ (System.currentTimeMillis() - time) + " ms");
+	}
+}
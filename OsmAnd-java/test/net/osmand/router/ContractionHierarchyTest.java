@@ -0,0 +1,166 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.bench.BenchmarkData;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapRenderingTypes;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ContractionHierarchyTest {
+
+	// RouteDataObject.RESTRICTION_SHIFT
+	private static final int RESTRICTION_SHIFT = 3;
+
+	private static ContractionHierarchy ch;
+
+	@BeforeClass
+	public static void buildHierarchy() throws Exception {
+		ch = new ContractionHierarchyBuilder(RoutingTestData.getConfig()).build(RoutingTestData.getReader());
+	}
+
+	private static RoutingContext buildContext(RoutePlannerFrontEnd fe, RoutingConfiguration config) throws Exception {
+		RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+		ctx.contractionHierarchy = ch;
+		return ctx;
+	}
+
+	@Test
+	public void testHierarchyRouteEqualsAStar() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 10, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		for (int i = 0; i < points.size(); i += 2) {
+			RoutingContext astar = RoutingTestData.buildContext(fe, config);
+			float expected = RoutingTestData.getRouteTime(fe.searchRoute(astar, points.get(i), points.get(i + 1), null));
+			RoutingContext ctx = buildContext(fe, config);
+			float time = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(i), points.get(i + 1), null));
+			// hierarchy route is the shortest one without turn times, A* route is not the shortest 
+			// with heuristic coefficient > 1
+			assertTrue(time <= expected * 1.01f);
+			assertTrue(time >= expected * 0.95f);
+			assertTrue(ctx.routingTime <= astar.routingTime * 1.01f);
+			assertTrue(ctx.routingTime >= astar.routingTime * 0.95f);
+			// few nodes are settled in hierarchy
+			assertTrue(ctx.visitedSegments < astar.visitedSegments);
+		}
+	}
+
+	@Test
+	public void testAvoidedRoadFallsBackToAStar() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		List<RouteSegmentResult> route = fe.searchRoute(buildContext(fe, RoutingTestData.getConfig()), points.get(0),
+				points.get(1), null);
+		long avoided = route.get(route.size() / 2).getObject().getId();
+
+		// router of its own (avoided roads are not added to shared router of profile)
+		RoutingConfiguration config = BenchmarkData.getRoutingConfig().build("car", 256,
+				new LinkedHashMap<String, String>());
+		TLongHashSet ids = new TLongHashSet();
+		ids.add(avoided);
+		config.router.addImpassableRoads(ids);
+		RoutingContext astar = RoutingTestData.buildContext(fe, config);
+		float expected = RoutingTestData.getRouteTime(fe.searchRoute(astar, points.get(0), points.get(1), null));
+		RoutingContext ctx = buildContext(fe, config);
+		List<RouteSegmentResult> res = fe.searchRoute(ctx, points.get(0), points.get(1), null);
+		assertEquals(expected, RoutingTestData.getRouteTime(res), 0);
+		for (RouteSegmentResult r : res) {
+			assertTrue(r.getObject().getId() != avoided);
+		}
+	}
+
+	@Test
+	public void testRestrictedTurnFallsBackToAStar() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingContext ctx = buildContext(fe, RoutingTestData.getConfig());
+		RouteSegmentPoint start = fe.findRouteSegment(points.get(0).getLatitude(), points.get(0).getLongitude(), ctx);
+		RouteSegmentPoint end = fe.findRouteSegment(points.get(1).getLatitude(), points.get(1).getLongitude(), ctx);
+		List<RouteSegmentResult> route = ch.searchRoute(ctx, start, end);
+		assertNotNull(route);
+		RouteDataObject road = null;
+		RouteDataObject next = null;
+		for (int i = route.size() / 2; i < route.size() - 2 && road == null; i++) {
+			if (route.get(i).getObject().getId() != route.get(i + 1).getObject().getId()) {
+				road = route.get(i).getObject();
+				next = route.get(i + 1).getObject();
+			}
+		}
+		assertNotNull(road);
+		// restriction is added to road loaded by context (and restored, as road could be shared with other contexts)
+		long[] restrictions = road.restrictions;
+		road.restrictions = new long[] { (next.getId() << RESTRICTION_SHIFT) | MapRenderingTypes.RESTRICTION_NO_LEFT_TURN };
+		try {
+			assertNull(ch.searchRoute(ctx, start, end));
+			List<RouteSegmentResult> res = fe.searchRoute(ctx, points.get(0), points.get(1), null);
+			assertNotNull(res);
+			for (int i = 0; i < res.size() - 1; i++) {
+				assertTrue(res.get(i).getObject().getId() != road.getId()
+						|| res.get(i + 1).getObject().getId() != next.getId());
+			}
+		} finally {
+			road.restrictions = restrictions;
+		}
+	}
+
+	@Test
+	public void testPointOutsideOfGraphIsNotRouted() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingContext ctx = buildContext(fe, RoutingTestData.getConfig());
+		RouteSegmentPoint start = fe.findRouteSegment(points.get(0).getLatitude(), points.get(0).getLongitude(), ctx);
+		RouteSegmentPoint end = fe.findRouteSegment(points.get(1).getLatitude(), points.get(1).getLongitude(), ctx);
+		// road which is not part of the graph (moved from its place)
+		RouteDataObject moved = new RouteDataObject(start.getRoad());
+		moved.pointsX = new int[moved.getPointsLength()];
+		for (int k = 0; k < moved.pointsX.length; k++) {
+			moved.pointsX[k] = start.getRoad().getPoint31XTile(k) + 1;
+		}
+		assertNull(ch.searchRoute(ctx, new RouteSegmentPoint(moved, start.getSegmentStart(), 0), end));
+		assertNotNull(ch.searchRoute(ctx, start, end));
+	}
+
+	@Test
+	public void testHierarchyIsLoadedNextToObf() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		File f = ContractionHierarchy.getFile(reader.getFile(), ch.getProfile());
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		ch.write(f);
+		try {
+			ContractionHierarchy read = ContractionHierarchy.load(reader, config);
+			assertNotNull(read);
+			assertEquals(ch.getNodesCount(), read.getNodesCount());
+			assertEquals(ch.getEdgesCount(), read.getEdgesCount());
+
+			RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+			new PreprocessedRoutingData().attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+			assertNotNull(ctx.contractionHierarchy);
+			float time = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(0), points.get(1), null));
+			RoutingContext astar = RoutingTestData.buildContext(fe, config);
+			float expected = RoutingTestData.getRouteTime(fe.searchRoute(astar, points.get(0), points.get(1), null));
+			assertTrue(time <= expected * 1.01f);
+		} finally {
+			f.delete();
+		}
+		RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+		new PreprocessedRoutingData().attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+		assertNull(ctx.contractionHierarchy);
+	}
+}
@@ -0,0 +1,95 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+import org.junit.Test;
+
+public class GeneralRouterTest {
+
+	private static List<RouteDataObject> getRoads(int tilesCount) throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		List<RouteSubregion> roots = new ArrayList<RouteSubregion>();
+		for (RouteSubregion rs : reg.getSubregions()) {
+			roots.add(new RouteSubregion(rs));
+		}
+		List<RouteSubregion> tiles = reader.searchRouteIndexTree(BinaryMapIndexReader.buildSearchRouteRequest(0,
+				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null), roots);
+		List<RouteDataObject> res = new ArrayList<RouteDataObject>();
+		for (int i = 0; i < tiles.size() && i < tilesCount; i++) {
+			res.addAll(reader.loadRouteIndexData(tiles.get(i)));
+		}
+		return res;
+	}
+
+	private static float[] evaluate(GeneralRouter router, RouteDataObject road) {
+		float[] res = new float[4 + road.getPointsLength()];
+		res[0] = router.acceptLine(road) ? 1 : 0;
+		res[1] = router.defineRoutingSpeed(road);
+		res[2] = router.defineSpeedPriority(road);
+		res[3] = router.isOneWay(road);
+		for (int k = 0; k < road.getPointsLength(); k++) {
+			res[4 + k] = router.defineRoutingObstacle(road, k);
+		}
+		return res;
+	}
+
+	@Test
+	public void testMemoizedEvaluationEqualsUncached() throws Exception {
+		final List<RouteDataObject> roads = getRoads(8);
+		assertTrue(roads.size() > 100);
+		GeneralRouter profile = RoutingTestData.getConfig().router;
+		final List<float[]> expected = new ArrayList<float[]>();
+		for (RouteDataObject road : roads) {
+			// every road is evaluated by new router which has nothing evaluated yet
+			expected.add(evaluate(new GeneralRouter(profile, new LinkedHashMap<String, String>()), road));
+		}
+
+		// memoized router is shared by several threads
+		final GeneralRouter router = new GeneralRouter(profile, new LinkedHashMap<String, String>());
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int t = 0; t < 4; t++) {
+				final long seed = t;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						List<Integer> order = new ArrayList<Integer>();
+						for (int i = 0; i < roads.size(); i++) {
+							order.add(i);
+						}
+						Collections.shuffle(order, new Random(seed));
+						for (int pass = 0; pass < 2; pass++) {
+							for (int i : order) {
+								assertArrayEquals(expected.get(i), evaluate(router, roads.get(i)), 0);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
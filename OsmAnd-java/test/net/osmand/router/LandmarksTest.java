@@ -0,0 +1,138 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LandmarksTest {
+
+	private static Landmarks landmarks;
+
+	@BeforeClass
+	public static void buildLandmarks() throws Exception {
+		landmarks = new LandmarksBuilder(RoutingTestData.getConfig(), 4).build(RoutingTestData.getReader());
+	}
+
+	private static RoutingContext buildContext(RoutePlannerFrontEnd fe, RoutingConfiguration config,
+			Landmarks landmarks) throws Exception {
+		RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+		ctx.landmarks = landmarks;
+		return ctx;
+	}
+
+	@Test
+	public void testLandmarksKeepRouteTime() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(9), 8, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		int visited = 0;
+		int visitedWithLandmarks = 0;
+		for (int i = 0; i < points.size(); i += 2) {
+			RoutingContext ctx = buildContext(fe, config, null);
+			float expected = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(i), points.get(i + 1), null));
+			RoutingContext alt = buildContext(fe, config, landmarks);
+			assertTrue(landmarks.isApplicable(alt));
+			float time = RoutingTestData.getRouteTime(fe.searchRoute(alt, points.get(i), points.get(i + 1), null));
+			// estimate is lower bound, so route is as good as with straight line estimate
+			assertEquals(expected, time, expected * 0.001f);
+			visited += ctx.visitedSegments;
+			visitedWithLandmarks += alt.visitedSegments;
+		}
+		assertTrue(visitedWithLandmarks < visited);
+	}
+
+	@Test
+	public void testParallelSearchUsesLandmarks() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(21), 4, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutingConfiguration parallelConfig = RoutingTestData.getConfig();
+		parallelConfig.parallelBidirectional = true;
+		for (int i = 0; i < points.size(); i += 2) {
+			RoutingContext sequential = buildContext(fe, config, landmarks);
+			float expected = RoutingTestData.getRouteTime(fe.searchRoute(sequential, points.get(i), points.get(i + 1),
+					null));
+			RoutingContext parallel = buildContext(fe, parallelConfig, landmarks);
+			float time = RoutingTestData.getRouteTime(fe.searchRoute(parallel, points.get(i), points.get(i + 1), null));
+			assertEquals(expected, time, expected * 0.001f);
+			assertNotNull(parallel.landmarkTargetNodes);
+			RoutingContext reverse = new RoutingContext(parallel);
+			assertSame(parallel.landmarkStartNodes, reverse.landmarkStartNodes);
+			assertSame(parallel.landmarkTargetNodes, reverse.landmarkTargetNodes);
+		}
+	}
+
+	@Test
+	public void testLandmarksAreLoadedNextToObf() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		File f = Landmarks.getFile(reader.getFile(), landmarks.getProfile());
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(9), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		landmarks.write(f);
+		try {
+			Landmarks read = Landmarks.read(f);
+			assertEquals(landmarks.getNodesCount(), read.getNodesCount());
+			assertEquals(landmarks.getLandmarksCount(), read.getLandmarksCount());
+			Random r = new Random(1);
+			for (int i = 0; i < 1000; i++) {
+				int from = r.nextInt(landmarks.getNodesCount());
+				int to = r.nextInt(landmarks.getNodesCount());
+				assertEquals(landmarks.lowerBound(from, to), read.lowerBound(from, to), 0);
+			}
+
+			RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+			new PreprocessedRoutingData().attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+			assertNotNull(ctx.landmarks);
+			assertTrue(ctx.landmarks.isApplicable(ctx));
+		} finally {
+			f.delete();
+		}
+		RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+		new PreprocessedRoutingData().attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+		assertNull(ctx.landmarks);
+	}
+
+	@Test
+	public void testLandmarksOverMemoryLimitAreNotLoaded() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		File f = Landmarks.getFile(reader.getFile(), landmarks.getProfile());
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(9), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		landmarks.write(f);
+		try {
+			PreprocessedRoutingData data = new PreprocessedRoutingData();
+			RoutingConfiguration config = RoutingTestData.getConfig();
+			config.memoryLimitation = (int) f.length() * 2;
+			RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+			data.attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+			assertNull(ctx.landmarks);
+
+			ctx = RoutingTestData.buildContext(fe, RoutingTestData.getConfig());
+			data.attach(ctx, RoutingTestData.getFiles(), points.get(0), points.get(1), null);
+			assertNotNull(ctx.landmarks);
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testLandmarksAreNotApplicableWithSpeedProfiles() throws Exception {
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		config.speedProfiles = new SpeedProfiles();
+		assertFalse(landmarks.isApplicable(RoutingTestData.buildContext(new RoutePlannerFrontEnd(false), config)));
+	}
+}
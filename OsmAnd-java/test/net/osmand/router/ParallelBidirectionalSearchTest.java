@@ -0,0 +1,63 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class ParallelBidirectionalSearchTest {
+
+	private static RoutingConfiguration getParallelConfig() throws Exception {
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		config.parallelBidirectional = true;
+		return config;
+	}
+
+	@Test
+	public void testParallelSearchEqualsSequential() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(11), 8, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		for (int i = 0; i < points.size(); i += 2) {
+			RoutingContext sequential = RoutingTestData.buildContext(fe, RoutingTestData.getConfig());
+			List<RouteSegmentResult> expected = fe.searchRoute(sequential, points.get(i), points.get(i + 1), null);
+			RoutingContext parallel = RoutingTestData.buildContext(fe, getParallelConfig());
+			List<RouteSegmentResult> actual = fe.searchRoute(parallel, points.get(i), points.get(i + 1), null);
+			float expectedTime = RoutingTestData.getRouteTime(expected);
+			// directions could meet on another segment of route with the same cost
+			assertEquals(expectedTime, RoutingTestData.getRouteTime(actual), expectedTime * 0.001f);
+			assertEquals(expected.get(0).getObject().getId(), actual.get(0).getObject().getId());
+			assertEquals(expected.get(expected.size() - 1).getObject().getId(), actual.get(actual.size() - 1)
+					.getObject().getId());
+			assertTrue(parallel.memoryOverhead <= parallel.config.memoryLimitation);
+		}
+	}
+
+	@Test
+	public void testEachDirectionIsLimitedByHalfOfMemory() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(11), 2, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingContext ctx = RoutingTestData.buildContext(fe, getParallelConfig());
+		fe.searchRoute(ctx, points.get(0), points.get(1), null);
+		// overhead of both directions, the larger one takes at least half of it
+		int overhead = ctx.memoryOverhead;
+
+		RoutingConfiguration config = getParallelConfig();
+		config.memoryLimitation = overhead * 5 / 2;
+		fe.searchRoute(RoutingTestData.buildContext(fe, config), points.get(0), points.get(1), null);
+
+		config = getParallelConfig();
+		config.memoryLimitation = overhead * 9 / 10;
+		try {
+			fe.searchRoute(RoutingTestData.buildContext(fe, config), points.get(0), points.get(1), null);
+			fail("Direction exceeded its half of memory limit");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().startsWith("There is no enough memory"));
+		}
+	}
+}
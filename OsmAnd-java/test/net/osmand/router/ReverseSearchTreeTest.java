@@ -0,0 +1,66 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class ReverseSearchTreeTest {
+
+	/**
+	 * Start point moved from original start towards the target (driver followed the route and deviated)
+	 */
+	private static LatLon deviate(LatLon start, LatLon end) {
+		return new LatLon(start.getLatitude() * 0.8 + end.getLatitude() * 0.2 + 0.001, start.getLongitude() * 0.8
+				+ end.getLongitude() * 0.2);
+	}
+
+	@Test
+	public void testTreeIsSavedOnlyWhenEnabled() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(3), 2, 2);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+		fe.searchRoute(ctx, points.get(0), points.get(1), null);
+		assertNull(ctx.reverseSearchTree);
+
+		config.incrementalRecalculation = true;
+		ctx = RoutingTestData.buildContext(fe, config);
+		fe.searchRoute(ctx, points.get(0), points.get(1), null);
+		assertNotNull(ctx.reverseSearchTree);
+		assertTrue(ctx.reverseSearchTree.size() > 0);
+		assertTrue(ctx.reverseSearchTree.isApplicable(RoutingTestData.buildContext(fe, config)));
+	}
+
+	@Test
+	public void testIncrementalRecalculationEqualsFullSearch() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(3), 6, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		config.incrementalRecalculation = true;
+		for (int i = 0; i < points.size(); i += 2) {
+			LatLon start = points.get(i);
+			LatLon end = points.get(i + 1);
+			RoutingContext first = RoutingTestData.buildContext(fe, config);
+			fe.searchRoute(first, start, end, null);
+			assertNotNull(first.reverseSearchTree);
+
+			LatLon deviated = deviate(start, end);
+			RoutingContext incremental = RoutingTestData.buildContext(fe, config);
+			incremental.reverseSearchTree = first.reverseSearchTree;
+			float incrementalTime = RoutingTestData.getRouteTime(fe.searchRoute(incremental, deviated, end, null));
+			RoutingContext full = RoutingTestData.buildContext(fe, RoutingTestData.getConfig());
+			float fullTime = RoutingTestData.getRouteTime(fe.searchRoute(full, deviated, end, null));
+			// meeting point of forward graph with saved tree could differ from meeting point of full search
+			assertEquals(fullTime, incrementalTime, fullTime * 0.001f);
+			assertTrue(incremental.visitedSegments < full.visitedSegments);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class RoutePlannerFrontEndTest {
+
+	@Test
+	public void testParallelLegsEqualSequentialLegs() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(19), 5, 2);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingContext sequential = RoutingTestData.buildContext(fe, RoutingTestData.getConfig());
+		List<RouteSegmentResult> expected = fe.searchRoute(sequential, points.get(0), points.get(1),
+				points.subList(2, 5));
+
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		config.legThreads = 3;
+		RoutingContext parallel = RoutingTestData.buildContext(fe, config);
+		List<RouteSegmentResult> actual = fe.searchRoute(parallel, points.get(0), points.get(1), points.subList(2, 5));
+		assertEquals(expected.size(), actual.size());
+		for (int k = 0; k < expected.size(); k++) {
+			RouteSegmentResult e = expected.get(k);
+			RouteSegmentResult a = actual.get(k);
+			assertEquals(e.getObject().getId(), a.getObject().getId());
+			assertEquals(e.getStartPointIndex(), a.getStartPointIndex());
+			assertEquals(e.getEndPointIndex(), a.getEndPointIndex());
+			assertEquals(e.getSegmentTime(), a.getSegmentTime(), 0);
+		}
+		assertEquals(sequential.routingTime, parallel.routingTime, sequential.routingTime * 0.0001f);
+		assertEquals(sequential.visitedSegments, parallel.visitedSegments);
+
+		// progress of legs is summed up, all legs are done
+		RouteCalculationProgress progress = parallel.calculationProgress;
+		assertTrue(progress.totalEstimatedDistance > 0);
+		assertEquals(progress.totalEstimatedDistance * 1.25f, progress.distanceFromBegin,
+				progress.totalEstimatedDistance * 0.0001f);
+	}
+}
@@ -0,0 +1,61 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class RouteResultPreparationTest {
+
+	private static String turn(RouteSegmentResult r) {
+		return r.getTurnType() == null ? null : r.getTurnType().toString();
+	}
+
+	/**
+	 * Route segments as they are converted from search result (without attached roads, times and turns)
+	 */
+	private static List<RouteSegmentResult> copyUnprepared(List<RouteSegmentResult> route) {
+		List<RouteSegmentResult> res = new ArrayList<RouteSegmentResult>();
+		for (RouteSegmentResult r : route) {
+			res.add(new RouteSegmentResult(r.getObject(), r.getStartPointIndex(), r.getEndPointIndex()));
+		}
+		return res;
+	}
+
+	@Test
+	public void testParallelSlicesEqualSequentialPreparation() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(17), 6, 1);
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		// route through intermediate points is long enough to be split into slices
+		List<RouteSegmentResult> route = fe.searchRoute(RoutingTestData.buildContext(fe, RoutingTestData.getConfig()),
+				points.get(0), points.get(1), points.subList(2, 6));
+		assertTrue(route.size() >= 400);
+
+		RoutingConfiguration sequentialConfig = RoutingTestData.getConfig();
+		List<RouteSegmentResult> expected = new RouteResultPreparation().prepareResult(
+				RoutingTestData.buildContext(fe, sequentialConfig), copyUnprepared(route));
+		RoutingConfiguration parallelConfig = RoutingTestData.getConfig();
+		parallelConfig.preparationThreads = 4;
+		List<RouteSegmentResult> actual = new RouteResultPreparation().prepareResult(
+				RoutingTestData.buildContext(fe, parallelConfig), copyUnprepared(route));
+		assertEquals(expected.size(), actual.size());
+		for (int k = 0; k < expected.size(); k++) {
+			RouteSegmentResult e = expected.get(k);
+			RouteSegmentResult a = actual.get(k);
+			assertEquals(e.getObject().getId(), a.getObject().getId());
+			assertEquals(e.getStartPointIndex(), a.getStartPointIndex());
+			assertEquals(e.getEndPointIndex(), a.getEndPointIndex());
+			assertEquals(e.getSegmentTime(), a.getSegmentTime(), 0);
+			assertEquals(e.getDistance(), a.getDistance(), 0);
+			assertEquals(turn(e), turn(a));
+			assertEquals(e.getAttachedRoutes(e.getStartPointIndex()).size(),
+					a.getAttachedRoutes(a.getStartPointIndex()).size());
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+import org.junit.Test;
+
+public class RouteSegmentQueueTest {
+
+	private static RouteSegment segment(float distanceFromStart, float distanceToEnd) {
+		RouteSegment s = new RouteSegment(null, 0);
+		s.distanceFromStart = distanceFromStart;
+		s.distanceToEnd = distanceToEnd;
+		return s;
+	}
+
+	private static float key(RouteSegment s) {
+		return s.distanceFromStart + 2 * s.distanceToEnd;
+	}
+
+	@Test
+	public void testPollOrderAfterDecreaseKey() {
+		Random r = new Random(7);
+		RouteSegmentQueue q = new RouteSegmentQueue(2, 4);
+		List<RouteSegment> segments = new ArrayList<RouteSegment>();
+		for (int i = 0; i < 1000; i++) {
+			RouteSegment s = segment(r.nextFloat() * 1000, r.nextFloat() * 1000);
+			q.add(i, s);
+			segments.add(s);
+		}
+		for (int i = 0; i < 1000; i += 3) {
+			RouteSegment s = q.get(i);
+			assertSame(segments.get(i), s);
+			s.distanceFromStart = r.nextFloat() * s.distanceFromStart;
+			q.decreaseKey(s);
+		}
+		assertEquals(1000, q.size());
+		float prev = Float.NEGATIVE_INFINITY;
+		while (!q.isEmpty()) {
+			RouteSegment s = q.poll();
+			assertTrue(key(s) >= prev);
+			prev = key(s);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertNull(q.get(i));
+		}
+	}
+
+	@Test
+	public void testDecreasedSegmentIsPolledFirst() {
+		RouteSegmentQueue q = new RouteSegmentQueue(1, 4);
+		RouteSegment a = segment(10, 0);
+		RouteSegment b = segment(20, 0);
+		RouteSegment c = segment(30, 0);
+		q.add(1, a);
+		q.add(2, b);
+		q.add(3, c);
+		c.distanceFromStart = 5;
+		q.decreaseKey(c);
+		assertSame(c, q.peek());
+		assertSame(c, q.poll());
+		assertSame(a, q.poll());
+		assertSame(b, q.poll());
+		assertNull(q.poll());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSegmentIsAddedOnce() {
+		RouteSegmentQueue q = new RouteSegmentQueue(1, 4);
+		RouteSegment a = segment(10, 0);
+		q.add(a);
+		q.add(a);
+	}
+}
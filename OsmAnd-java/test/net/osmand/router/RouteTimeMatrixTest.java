@@ -0,0 +1,80 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+import net.osmand.util.MapUtils;
+
+import org.junit.Test;
+
+public class RouteTimeMatrixTest {
+
+	@Test
+	public void testMatrixIsLowerBoundOfRoutes() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(7), 6, 6);
+		List<LatLon> sources = points.subList(0, 2);
+		List<LatLon> targets = points.subList(2, 6);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		float[][] matrix = fe.calculateRouteTimeMatrix(config, RoutingTestData.getFiles(), sources, targets);
+		assertEquals(sources.size(), matrix.length);
+		float maxSpeed = config.router.getMaxDefaultSpeed();
+		for (int i = 0; i < sources.size(); i++) {
+			for (int j = 0; j < targets.size(); j++) {
+				RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+				fe.searchRoute(ctx, sources.get(i), targets.get(j), null);
+				float straight = (float) MapUtils.getDistance(sources.get(i), targets.get(j)) / maxSpeed;
+				// Dijkstra time doesn't count turn restrictions, so it is not longer than A* route
+				assertTrue(matrix[i][j] > 0.9f * straight);
+				assertTrue(matrix[i][j] <= ctx.routingTime * 1.01f);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelMatrixEqualsSequential() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(3), 8, 6);
+		List<LatLon> sources = points.subList(0, 4);
+		List<LatLon> targets = points.subList(4, 8);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RouteTimeMatrix sequential = new RouteTimeMatrix(fe, config, RoutingTestData.getFiles());
+		sequential.setThreads(1);
+		RouteTimeMatrix parallel = new RouteTimeMatrix(fe, config, RoutingTestData.getFiles());
+		parallel.setThreads(3);
+		float[][] expected = sequential.calculate(sources, targets);
+		float[][] actual = parallel.calculate(sources, targets);
+		for (int i = 0; i < sources.size(); i++) {
+			assertArrayEquals(expected[i], actual[i], 0);
+		}
+	}
+
+	@Test
+	public void testLimitedTimeMakesFarTargetsUnreachable() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(5), 5, 6);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RouteTimeMatrix m = new RouteTimeMatrix(fe, config, RoutingTestData.getFiles());
+		float[] all = m.calculate(points.get(0), points.subList(1, 5));
+		float limit = 0;
+		for (float t : all) {
+			limit = Math.max(limit, t);
+		}
+		limit = limit / 2;
+		m.setMaxRoutingTime(limit);
+		float[] limited = m.calculate(points.get(0), points.subList(1, 5));
+		for (int i = 0; i < all.length; i++) {
+			if (all[i] <= limit) {
+				assertEquals(all[i], limited[i], 0);
+			} else if (all[i] > limit * 1.2f) {
+				// target is settled by its road segment, so time to the point could exceed limit a bit
+				assertEquals(RouteTimeMatrix.UNREACHABLE, limited[i], 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.bench.BenchmarkData;
+import net.osmand.bench.SyntheticObfGenerator;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.util.MapUtils;
+
+/**
+ * Synthetic road network (generated once by test-support BenchmarkData) shared by routing tests
+ */
+public class RoutingTestData {
+
+	public static final int REGION_ZOOM = 9;
+	private static BinaryMapIndexReader reader;
+
+	public static synchronized BinaryMapIndexReader getReader() throws IOException {
+		if (reader == null) {
+			reader = BenchmarkData.openReader(BenchmarkData.getObf(REGION_ZOOM));
+		}
+		return reader;
+	}
+
+	public static BinaryMapIndexReader[] getFiles() throws IOException {
+		return new BinaryMapIndexReader[] { getReader() };
+	}
+
+	public static RoutingConfiguration getConfig() throws IOException {
+		return BenchmarkData.getRoutingConfig().build("car", 256);
+	}
+
+	public static RoutingContext buildContext(RoutePlannerFrontEnd fe, RoutingConfiguration config) throws IOException {
+		return fe.buildRoutingContext(config, null, getFiles(), RouteCalculationMode.NORMAL);
+	}
+
+	/**
+	 * Random points in the part of region (1 / areaDivider of its side) near its top left corner
+	 */
+	public static List<LatLon> getRandomPoints(Random r, int count, int areaDivider) {
+		SyntheticObfGenerator gen = BenchmarkData.createGenerator(REGION_ZOOM);
+		int area = gen.getSize31() / areaDivider;
+		List<LatLon> res = new ArrayList<LatLon>();
+		for (int i = 0; i < count; i++) {
+			int x = gen.getLeft31() + r.nextInt(area);
+			int y = gen.getTop31() + r.nextInt(area);
+			res.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+		}
+		return res;
+	}
+
+	public static float getRouteTime(List<RouteSegmentResult> route) {
+		float time = 0;
+		for (RouteSegmentResult r : route) {
+			time += r.getSegmentTime();
+		}
+		return time;
+	}
+}
@@ -0,0 +1,90 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class RoutingTileCacheTest {
+
+	private static List<RouteSubregion> getTiles(BinaryMapIndexReader reader) throws Exception {
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		List<RouteSubregion> roots = new ArrayList<RouteSubregion>();
+		for (RouteSubregion rs : reg.getSubregions()) {
+			roots.add(new RouteSubregion(rs));
+		}
+		return reader.searchRouteIndexTree(BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, null), roots);
+	}
+
+	@Test
+	public void testCachedTileIsShared() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RoutingTileCache cache = new RoutingTileCache(RoutingTileCache.DEFAULT_MEMORY_LIMIT);
+		RouteSubregion tile = getTiles(reader).get(0);
+		List<RouteDataObject> first = cache.loadRouteIndexData(reader, tile);
+		assertSame(first, cache.loadRouteIndexData(reader, tile));
+		assertEquals(1, cache.getTilesCount());
+
+		cache.clear(tile.routeReg);
+		List<RouteDataObject> reloaded = cache.loadRouteIndexData(reader, tile);
+		assertNotSame(first, reloaded);
+		assertEquals(first.size(), reloaded.size());
+		for (int i = 0; i < first.size(); i++) {
+			assertEquals(first.get(i).getId(), reloaded.get(i).getId());
+		}
+	}
+
+	@Test
+	public void testCacheIsBoundedByMemoryLimit() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		List<RouteSubregion> tiles = getTiles(reader);
+		RoutingTileCache cache = new RoutingTileCache(RoutingTileCache.DEFAULT_MEMORY_LIMIT);
+		cache.loadRouteIndexData(reader, tiles.get(0));
+		long limit = cache.getSize() * 3;
+		cache.setMemoryLimit(limit);
+		List<RouteDataObject> last = null;
+		for (RouteSubregion tile : tiles) {
+			last = cache.loadRouteIndexData(reader, tile);
+			assertTrue(cache.getSize() <= limit);
+		}
+		// the most recently used tile is kept
+		assertSame(last, cache.loadRouteIndexData(reader, tiles.get(tiles.size() - 1)));
+		cache.setMemoryLimit(0);
+		assertEquals(0, cache.getTilesCount());
+	}
+
+	@Test
+	public void testRoutesWithSharedCacheAreSame() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(13), 6, 4);
+		RoutingConfiguration config = RoutingTestData.getConfig();
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		RoutingTileCache cache = new RoutingTileCache(RoutingTileCache.DEFAULT_MEMORY_LIMIT);
+		for (int i = 0; i < points.size(); i += 2) {
+			RoutingContext uncached = RoutingTestData.buildContext(fe, config);
+			uncached.tileCache = null;
+			float expected = RoutingTestData.getRouteTime(fe.searchRoute(uncached, points.get(i), points.get(i + 1),
+					null));
+			// the second context reads tiles cached by the first one
+			for (int k = 0; k < 2; k++) {
+				RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+				ctx.tileCache = cache;
+				float time = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(i), points.get(i + 1), null));
+				assertEquals(expected, time, 0);
+			}
+		}
+		assertTrue(cache.getTilesCount() > 0);
+	}
+}
@@ -0,0 +1,193 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+
+import org.junit.Test;
+
+public class SpeedProfilesTest {
+
+	private static String getHighway(RouteDataObject road) {
+		for (int type : road.getTypes()) {
+			RouteTypeRule rule = road.region.quickGetEncodingRule(type);
+			if ("highway".equals(rule.getTag())) {
+				return rule.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Roads of the first tile of synthetic map with given highway class
+	 */
+	private static List<RouteDataObject> getRoads(String highway) throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		List<RouteSubregion> roots = new ArrayList<RouteSubregion>();
+		for (RouteSubregion rs : reg.getSubregions()) {
+			roots.add(new RouteSubregion(rs));
+		}
+		List<RouteSubregion> tiles = reader.searchRouteIndexTree(BinaryMapIndexReader.buildSearchRouteRequest(0,
+				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null), roots);
+		List<RouteDataObject> res = new ArrayList<RouteDataObject>();
+		for (RouteSubregion tile : tiles) {
+			for (RouteDataObject ro : reader.loadRouteIndexData(tile)) {
+				if (highway.equals(getHighway(ro))) {
+					res.add(ro);
+				}
+			}
+			if (res.size() > 1) {
+				break;
+			}
+		}
+		return res;
+	}
+
+	private static float[] profile(float day, float rushHours) {
+		float[] p = new float[SpeedProfiles.HOURS_OF_WEEK];
+		for (int h = 0; h < p.length; h++) {
+			int hourOfDay = h % 24;
+			p[h] = hourOfDay >= 8 && hourOfDay < 10 ? rushHours : day;
+		}
+		return p;
+	}
+
+	private static long getTime(int dayOfWeek, int hour) {
+		Calendar c = Calendar.getInstance();
+		c.set(Calendar.DAY_OF_WEEK, dayOfWeek);
+		c.set(Calendar.HOUR_OF_DAY, hour);
+		c.set(Calendar.MINUTE, 0);
+		c.set(Calendar.SECOND, 0);
+		c.set(Calendar.MILLISECOND, 0);
+		return c.getTimeInMillis();
+	}
+
+	@Test
+	public void testWriteReadRoundTrip() throws Exception {
+		List<RouteDataObject> primary = getRoads("primary");
+		List<RouteDataObject> residential = getRoads("residential");
+		float[] roadProfile = new float[SpeedProfiles.HOURS_OF_WEEK];
+		for (int h = 0; h < roadProfile.length; h++) {
+			roadProfile[h] = (h % 50) / 100f + 0.5f;
+		}
+		SpeedProfiles sp = new SpeedProfiles();
+		sp.setClassProfile("primary", profile(1, 0.4f));
+		sp.setRoadProfile(residential.get(0).getId(), roadProfile);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		sp.write(out);
+		SpeedProfiles read = SpeedProfiles.read(new ByteArrayInputStream(out.toByteArray()));
+		for (int h = 0; h < SpeedProfiles.HOURS_OF_WEEK; h++) {
+			int second = h * 3600 + 1800;
+			assertEquals(sp.getSpeedFactor(primary.get(0), second), read.getSpeedFactor(primary.get(0), second), 0.001);
+			assertEquals(roadProfile[h], read.getSpeedFactor(residential.get(0), second), 0.001);
+			// residential class doesn't have profile
+			assertEquals(1, read.getSpeedFactor(residential.get(1), second), 0);
+		}
+		assertEquals(0.4f, read.getSpeedFactor(primary.get(0), 8 * 3600), 0.001);
+		assertEquals(1, read.getSpeedFactor(primary.get(0), 10 * 3600), 0.001);
+	}
+
+	@Test
+	public void testWeekWraparound() throws Exception {
+		RouteDataObject road = getRoads("primary").get(0);
+		float[] p = new float[SpeedProfiles.HOURS_OF_WEEK];
+		for (int h = 0; h < p.length; h++) {
+			p[h] = (h + 1) / 100f;
+		}
+		SpeedProfiles sp = new SpeedProfiles();
+		sp.setClassProfile("primary", p);
+		// route which departs on Sunday evening continues on Monday
+		int sundayEvening = SpeedProfiles.SECONDS_OF_WEEK - 2 * 3600;
+		assertEquals(p[SpeedProfiles.HOURS_OF_WEEK - 2], sp.getSpeedFactor(road, sundayEvening), 0);
+		assertEquals(p[1], sp.getSpeedFactor(road, sundayEvening + 3 * 3600), 0);
+		assertEquals(p[5], sp.getSpeedFactor(road, 2 * SpeedProfiles.SECONDS_OF_WEEK + 5 * 3600), 0);
+		assertEquals(p[SpeedProfiles.HOURS_OF_WEEK - 1], sp.getSpeedFactor(road, -1), 0);
+
+		assertEquals(0, SpeedProfiles.getSecondOfWeek(getTime(Calendar.MONDAY, 0)));
+		assertEquals(SpeedProfiles.SECONDS_OF_WEEK - 3600, SpeedProfiles.getSecondOfWeek(getTime(Calendar.SUNDAY, 23)));
+	}
+
+	@Test
+	public void testDepartureHourChangesRouteTime() throws Exception {
+		List<LatLon> points = RoutingTestData.getRandomPoints(new Random(5), 2, 4);
+		SpeedProfiles sp = new SpeedProfiles();
+		float[] rushHours = profile(1, 0.5f);
+		for (String highway : Arrays.asList("motorway", "primary", "residential")) {
+			sp.setClassProfile(highway, rushHours);
+		}
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd(false);
+		float[] times = new float[2];
+		int[] hours = new int[] { 3, 8 };
+		for (int i = 0; i < hours.length; i++) {
+			RoutingConfiguration config = RoutingTestData.getConfig();
+			config.speedProfiles = sp;
+			config.departureTime = getTime(Calendar.MONDAY, hours[i]);
+			RoutingContext ctx = RoutingTestData.buildContext(fe, config);
+			times[i] = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(0), points.get(1), null));
+		}
+		RoutingContext ctx = RoutingTestData.buildContext(fe, RoutingTestData.getConfig());
+		float withoutProfiles = RoutingTestData.getRouteTime(fe.searchRoute(ctx, points.get(0), points.get(1), null));
+		assertEquals(withoutProfiles, times[0], withoutProfiles * 0.001f);
+		// speed is half in rush hours, obstacles time is not changed
+		assertTrue(times[1] > withoutProfiles * 1.5f);
+	}
+
+	@Test
+	public void testProfilesAreLoadedNextToObf() throws Exception {
+		BinaryMapIndexReader reader = RoutingTestData.getReader();
+		RouteDataObject road = getRoads("primary").get(0);
+		PreprocessedRoutingData data = new PreprocessedRoutingData();
+		File f = SpeedProfiles.getFile(reader.getFile());
+		assertNull(data.getSpeedProfiles(RoutingTestData.getFiles()));
+		SpeedProfiles sp = new SpeedProfiles();
+		sp.setClassProfile("primary", profile(0.8f, 0.4f));
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			sp.write(out);
+		} finally {
+			out.close();
+		}
+		try {
+			SpeedProfiles loaded = data.getSpeedProfiles(RoutingTestData.getFiles());
+			assertNotNull(loaded);
+			assertEquals(0.8f, loaded.getSpeedFactor(road, 0), 0.001);
+		} finally {
+			f.delete();
+		}
+		assertNull(data.getSpeedProfiles(RoutingTestData.getFiles()));
+	}
+
+	@Test
+	public void testAddProfilesKeepsFirstClassProfile() throws Exception {
+		List<RouteDataObject> primary = getRoads("primary");
+		SpeedProfiles first = new SpeedProfiles();
+		first.setClassProfile("primary", profile(0.9f, 0.9f));
+		SpeedProfiles second = new SpeedProfiles();
+		second.setClassProfile("primary", profile(0.5f, 0.5f));
+		second.setRoadProfile(primary.get(1).getId(), profile(0.7f, 0.7f));
+		SpeedProfiles merged = new SpeedProfiles();
+		merged.addProfiles(first);
+		merged.addProfiles(second);
+		assertEquals(0.9f, merged.getSpeedFactor(primary.get(0), 0), 0);
+		assertEquals(0.7f, merged.getSpeedFactor(primary.get(1), 0), 0);
+	}
+}
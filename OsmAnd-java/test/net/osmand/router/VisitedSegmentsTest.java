@@ -0,0 +1,71 @@
+package net.osmand.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+import org.junit.Test;
+
+public class VisitedSegmentsTest {
+
+	@Test
+	public void testSameContentAsHashMap() {
+		Random r = new Random(11);
+		// small capacity, so table is rehashed several times
+		VisitedSegments visited = new VisitedSegments(16);
+		Map<Long, RouteSegment> expected = new HashMap<Long, RouteSegment>();
+		RouteSegment segment = null;
+		for (int i = 0; i < 20000; i++) {
+			if (segment == null || r.nextInt(4) == 0) {
+				segment = new RouteSegment(null, 0);
+			}
+			// ids of neighbour intervals differ in low bits, some ids are visited again
+			long id = r.nextInt(3) == 0 ? r.nextLong() : (r.nextInt(5000) << 1) + r.nextInt(2);
+			visited.put(id, segment);
+			expected.put(id, segment);
+		}
+		assertEquals(expected.size(), visited.size());
+		for (Entry<Long, RouteSegment> e : expected.entrySet()) {
+			assertTrue(visited.containsKey(e.getKey()));
+			assertSame(e.getValue(), visited.get(e.getKey()));
+		}
+		for (int i = 0; i < 1000; i++) {
+			long id = r.nextLong();
+			if (!expected.containsKey(id)) {
+				assertFalse(visited.containsKey(id));
+				assertNull(visited.get(id));
+			}
+		}
+	}
+
+	@Test
+	public void testIntervalsOfSegmentShareRecord() {
+		VisitedSegments visited = new VisitedSegments();
+		RouteSegment a = new RouteSegment(null, 0);
+		RouteSegment b = new RouteSegment(null, 0);
+		for (int i = 0; i < 10; i++) {
+			visited.put(i, a);
+		}
+		visited.put(10, b);
+		assertEquals(11, visited.size());
+		assertEquals(2, visited.getRecordsCount());
+		// better segment replaces interval
+		visited.put(0, b);
+		assertSame(b, visited.get(0));
+		assertEquals(11, visited.size());
+
+		visited.clear();
+		assertEquals(0, visited.size());
+		assertEquals(0, visited.getRecordsCount());
+		assertFalse(visited.containsKey(0));
+	}
+}
@@ -258,6 +258,7 @@ public class OsmandApplication extends Application {
 	@Override
 	public void onLowMemory() {
 		super.onLowMemory();
+		routingHelper.onLowMemory();
 		resourceManager.onLowMemory();
 	}
 
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import net.osmand.Location;
+import net.osmand.PlatformUtil;
 import net.osmand.TspAnt;
 import net.osmand.access.AccessibleAlertBuilder;
 import net.osmand.data.LatLon;
@@ -16,6 +17,9 @@ import net.osmand.plus.R;
 import net.osmand.plus.TargetPointsHelper;
 import net.osmand.plus.TargetPointsHelper.TargetPoint;
 import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.AlertDialog.Builder;
@@ -39,6 +43,7 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 public class IntermediatePointsDialog {
+	private static final Log log = PlatformUtil.getLog(IntermediatePointsDialog.class);
 
 	public static void openIntermediatePointsDialog(final Activity activity,
 			final OsmandApplication app, final boolean changeOrder){
@@ -163,7 +168,21 @@ public class IntermediatePointsDialog {
 								for(TargetPoint p : lt){
 									al.add(p.point);
 								}
-								return new TspAnt().readGraph(al, start.point, end.point).solve();
+								List<LatLon> points = new ArrayList<LatLon>();
+								points.add(start.point);
+								points.addAll(al);
+								points.add(end.point);
+								double[][] times = null;
+								try {
+									// order by route times, straight distances are used without offline routing
+									times = app.getRoutingHelper().calculateRouteTimeMatrix(points);
+								} catch (Exception e) {
+									log.error("Route time matrix could not be calculated", e);
+								}
+								if (times == null) {
+									return new TspAnt().readGraph(al, start.point, end.point).solve();
+								}
+								return new TspAnt().readGraph(times).solve();
 							};
 
 							protected void onPostExecute(int[] result) {
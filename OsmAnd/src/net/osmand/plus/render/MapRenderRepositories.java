@@ -28,12 +28,17 @@ import net.osmand.ResultMatcher;
 import net.osmand.access.AccessibleToast;
 import net.osmand.binary.BinaryMapDataObject;
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapParallelSearch;
+import net.osmand.binary.BinaryMapParallelSearch.FileSearchResult;
+import net.osmand.binary.BinaryMapParallelSearch.SearchFilterFactory;
 import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+import net.osmand.binary.MapDataBlockCache;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.QuadPointDouble;
 import net.osmand.data.QuadRect;
@@ -72,6 +77,7 @@ public class MapRenderRepositories {
 	private final static Log log = PlatformUtil.getLog(MapRenderRepositories.class);
 	private final OsmandApplication context;
 	private final static int zoomOnlyForBasemaps = 11;
+	private final static long BLOCK_CACHE_SIZE = 8 << 20;
 	static int zoomForBaseRouteRendering  = 14;
 	private Handler handler;
 	private Map<String, BinaryMapIndexReader> files = new LinkedHashMap<String, BinaryMapIndexReader>();
@@ -108,6 +114,9 @@ public class MapRenderRepositories {
 	private int renderedState = 0; 	// (1 (if basemap) + 2 (if normal map)
 	private RenderingContext currentRenderingContext;
 	private SearchRequest<BinaryMapDataObject> searchRequest;
+	private BinaryMapParallelSearch parallelSearch = new BinaryMapParallelSearch();
+	// decoded blocks reused while panning & zooming over the same area
+	private MapDataBlockCache blockCache = new MapDataBlockCache(BLOCK_CACHE_SIZE);
 	private OsmandSettings prefs;
 
 	public MapRenderRepositories(OsmandApplication context) {
@@ -156,6 +165,8 @@ public class MapRenderRepositories {
 			}
 		}
 		if (bmir != null) {
+			// cached blocks keep map indexes of closed file
+			blockCache.clear();
 			try {
 				bmir.close();
 			} catch (IOException e) {
@@ -466,6 +477,7 @@ public class MapRenderRepositories {
 			log.info(String.format("BLat=%s, TLat=%s, LLong=%s, RLong=%s, zoom=%s", //$NON-NLS-1$
 					cBottomLatitude, cTopLatitude, cLeftLongitude, cRightLongitude, zoom));
 			log.info(String.format("Searching: %s ms  %s (%s results found)", System.currentTimeMillis() - now, coastlineTime, count[0])); //$NON-NLS-1$
+			log.info(blockCache.toString());
 		}
 
 
@@ -482,47 +494,34 @@ public class MapRenderRepositories {
 			ArrayList<BinaryMapDataObject> tempResult, ArrayList<BinaryMapDataObject> basemapResult, 
 			TLongSet ids, int[] count, boolean[] ocean, boolean[] land, List<BinaryMapDataObject> coastLines,
 			List<BinaryMapDataObject> basemapCoastLines, int leftX, int rightX, int bottomY, int topY) {
-		BinaryMapIndexReader.SearchFilter searchFilter = new BinaryMapIndexReader.SearchFilter() {
+		// files are searched in parallel so every file needs its own copy of rendering request
+		// (filter only looks up dictionary of shared rendering storage)
+		SearchFilterFactory filterFactory = new SearchFilterFactory() {
 			@Override
-			public boolean accept(TIntArrayList types, BinaryMapIndexReader.MapIndex root) {
-				for (int j = 0; j < types.size(); j++) {
-					int type = types.get(j);
-					TagValuePair pair = root.decodeType(type);
-					if (pair != null) {
-						// TODO is it fast enough ?
-						for (int i = 1; i <= 3; i++) {
-							renderingReq.setIntFilter(renderingReq.ALL.R_MINZOOM, zoom);
-							renderingReq.setStringFilter(renderingReq.ALL.R_TAG, pair.tag);
-							renderingReq.setStringFilter(renderingReq.ALL.R_VALUE, pair.value);
-							if (renderingReq.search(i, false)) {
-								return true;
-							}
-						}
-						renderingReq.setStringFilter(renderingReq.ALL.R_TAG, pair.tag);
-						renderingReq.setStringFilter(renderingReq.ALL.R_VALUE, pair.value);
-						if (renderingReq.search(RenderingRulesStorage.TEXT_RULES, false)) {
-							return true;
-						}
-					}
+			public SearchFilter createSearchFilter() {
+				if (zoom > 16) {
+					return null;
 				}
-				return false;
+				return createRenderingSearchFilter(zoom, new RenderingRuleSearchRequest(renderingReq));
 			}
-
 		};
-		if (zoom > 16) {
-			searchFilter = null;
-		}
 		MapIndex mi = null;
-		searchRequest = BinaryMapIndexReader.buildSearchRequest(leftX, rightX, topY, bottomY, zoom, searchFilter);
-		for (BinaryMapIndexReader c : files.values()) {
+		searchRequest = BinaryMapIndexReader.buildSearchRequest(leftX, rightX, topY, bottomY, zoom, null);
+		searchRequest.setMapDataBlockCache(blockCache);
+		List<FileSearchResult> fileResults;
+		try {
+			fileResults = parallelSearch.search(files.values(), searchRequest, filterFactory);
+		} catch (IOException e) {
+			log.debug("Search failed", e); //$NON-NLS-1$
+			return null;
+		}
+		for (FileSearchResult fr : fileResults) {
+			BinaryMapIndexReader c = fr.getReader();
 			boolean basemap = c.isBasemap();
-			searchRequest.clearSearchResults();
-			List<BinaryMapDataObject> res;
-			try {
-				res = c.searchMapIndex(searchRequest);
-			} catch (IOException e) {
+			List<BinaryMapDataObject> res = fr.getObjects();
+			if (fr.getError() != null) {
 				res = new ArrayList<BinaryMapDataObject>();
-				log.debug("Search failed " + c.getRegionNames(), e); //$NON-NLS-1$
+				log.debug("Search failed " + c.getRegionNames(), fr.getError()); //$NON-NLS-1$
 			}
 			if(res.size() > 0) {
 				if(basemap) {
@@ -560,11 +559,11 @@ public class MapRenderRepositories {
 				}
 			}
 
-			if (searchRequest.isOcean()) {
+			if (fr.isOcean()) {
 				mi = c.getMapIndexes().get(0);
 				ocean[0] = true;
 			}
-			if (searchRequest.isLand()) {
+			if (fr.isLand()) {
 				mi = c.getMapIndexes().get(0);
 				land[0] = true;
 			}
@@ -572,6 +571,36 @@ public class MapRenderRepositories {
 		return mi;
 	}
 
+	private SearchFilter createRenderingSearchFilter(final int zoom, final RenderingRuleSearchRequest renderingReq) {
+		return new BinaryMapIndexReader.SearchFilter() {
+			@Override
+			public boolean accept(TIntArrayList types, BinaryMapIndexReader.MapIndex root) {
+				for (int j = 0; j < types.size(); j++) {
+					int type = types.get(j);
+					TagValuePair pair = root.decodeType(type);
+					if (pair != null) {
+						// TODO is it fast enough ?
+						for (int i = 1; i <= 3; i++) {
+							renderingReq.setIntFilter(renderingReq.ALL.R_MINZOOM, zoom);
+							renderingReq.setKnownStringFilter(renderingReq.ALL.R_TAG, pair.tag);
+							renderingReq.setKnownStringFilter(renderingReq.ALL.R_VALUE, pair.value);
+							if (renderingReq.search(i, false)) {
+								return true;
+							}
+						}
+						renderingReq.setKnownStringFilter(renderingReq.ALL.R_TAG, pair.tag);
+						renderingReq.setKnownStringFilter(renderingReq.ALL.R_VALUE, pair.value);
+						if (renderingReq.search(RenderingRulesStorage.TEXT_RULES, false)) {
+							return true;
+						}
+					}
+				}
+				return false;
+			}
+
+		};
+	}
+
 	private void validateLatLonBox(QuadRect box) {
 		if (box.top > 90) {
 			box.top = 85.5f;
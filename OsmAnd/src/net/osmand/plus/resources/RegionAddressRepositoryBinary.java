@@ -57,6 +57,13 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 	
 	@Override
 	public void close(){
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
 		this.file = null;
 	}
 
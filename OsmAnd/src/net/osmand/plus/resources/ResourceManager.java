@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -16,7 +15,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.osmand.AndroidUtils;
 import net.osmand.GeoidAltitudeCorrection;
@@ -25,8 +30,10 @@ import net.osmand.IndexConstants;
 import net.osmand.Location;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapFileHandle;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.CachedOsmandIndexes;
 import net.osmand.data.Amenity;
 import net.osmand.data.RotatedTileBox;
@@ -52,6 +59,7 @@ import net.osmand.plus.resources.AsyncLoadingThread.TileLoadDownloadRequest;
 import net.osmand.plus.resources.AsyncLoadingThread.TransportLoadRequest;
 import net.osmand.plus.srtmplugin.SRTMPlugin;
 import net.osmand.plus.views.OsmandMapLayer.DrawSettings;
+import net.osmand.router.RoutingTileCache;
 import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
 
@@ -81,6 +89,7 @@ public class ResourceManager {
 
 	public static final String VECTOR_MAP = "#vector_map"; //$NON-NLS-1$
 	private static final String INDEXES_CACHE = "ind.cache";
+	private static final int INDEXING_THREADS = 4;
 	
 	
 	private static final Log log = PlatformUtil.getLog(ResourceManager.class);
@@ -639,24 +648,30 @@ public class ResourceManager {
 			}
 		}
 		File liveDir = context.getAppPath(IndexConstants.LIVE_INDEX_DIR);
-		for (File f : files) {
+		// files are opened, indexed and their readers are created concurrently,
+		// they are registered one by one in version order
+		progress.startTask(context.getString(R.string.indexing_map), -1);
+		List<Future<OpenedMapFile>> openedFiles = openMapFiles(files, cachedOsmandIndexes);
+		for (int i = 0; i < files.size(); i++) {
+			File f = files.get(i);
 			progress.startTask(context.getString(R.string.indexing_map) + " " + f.getName(), -1); //$NON-NLS-1$
 			try {
-				BinaryMapIndexReader mapReader = null;
+				OpenedMapFile opened = null;
 				try {
-					mapReader = cachedOsmandIndexes.getReader(f);
-					if (mapReader.getVersion() != IndexConstants.BINARY_MAP_VERSION) {
-						mapReader = null;
-					}
-					if (mapReader != null) {
-						renderer.initializeNewResource(progress, f, mapReader);
-					}
+					opened = getOpenedMapFile(openedFiles.get(i));
 				} catch (IOException e) {
 					log.error(String.format("File %s could not be read", f.getName()), e);
 				}
+				BinaryMapIndexReader mapReader = opened == null ? null : opened.mapReader;
+				if (mapReader != null) {
+					renderer.initializeNewResource(progress, f, mapReader);
+				}
 				if (mapReader == null || (Version.isFreeVersion(context) && 
 						(f.getName().contains("_wiki") || f.getName().contains(".wiki"))
 						)) {
+					if (opened != null) {
+						opened.closeReaders();
+					}
 					warnings.add(MessageFormat.format(context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
 				} else {
 					if (mapReader.isBasemap()) {
@@ -669,6 +684,7 @@ public class ResourceManager {
 					if(f.getParentFile().getName().equals(liveDir.getName())) {
 						boolean toUse = changesManager.index(f, dateCreated, mapReader);
 						if(!toUse) {
+							opened.closeReaders();
 							try {
 								mapReader.close();
 							} catch (IOException e) {
@@ -680,44 +696,22 @@ public class ResourceManager {
 						changesManager.indexMainMap(f, dateCreated);
 						indexFileNames.put(f.getName(), dateFormat.format(dateCreated)); //$NON-NLS-1$
 					}
-					if (!mapReader.getRegionNames().isEmpty()) {
-						try {
-							RandomAccessFile raf = new RandomAccessFile(f, "r"); //$NON-NLS-1$
-							RegionAddressRepositoryBinary rarb = new RegionAddressRepositoryBinary(this,
-									new BinaryMapIndexReader(raf, mapReader), f.getName());
-							addressMap.put(f.getName(), rarb);
-						} catch (IOException e) {
-							log.error("Exception reading " + f.getAbsolutePath(), e); //$NON-NLS-1$
-							warnings.add(MessageFormat.format(
-									context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
-						}
+					if (opened.readersError != null) {
+						log.error("Exception reading " + f.getAbsolutePath(), opened.readersError); //$NON-NLS-1$
+						warnings.add(MessageFormat.format(
+								context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
 					}
-					if (mapReader.hasTransportData()) {
-						try {
-							RandomAccessFile raf = new RandomAccessFile(f, "r"); //$NON-NLS-1$
-							transportRepositories.put(f.getName(), new TransportIndexRepositoryBinary(new BinaryMapIndexReader(raf, mapReader)));
-						} catch (IOException e) {
-							log.error("Exception reading " + f.getAbsolutePath(), e); //$NON-NLS-1$
-							warnings.add(MessageFormat.format(context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
-						}
+					if (opened.addressReader != null) {
+						addressMap.put(f.getName(), new RegionAddressRepositoryBinary(this, opened.addressReader, f.getName()));
 					}
-					if (mapReader.containsRouteData()) {
-						try {
-							RandomAccessFile raf = new RandomAccessFile(f, "r"); //$NON-NLS-1$
-							routingMapFiles.put(f.getName(), new BinaryMapIndexReader(raf, mapReader));
-						} catch (IOException e) {
-							log.error("Exception reading " + f.getAbsolutePath(), e); //$NON-NLS-1$
-							warnings.add(MessageFormat.format(context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
-						}
+					if (opened.transportReader != null) {
+						transportRepositories.put(f.getName(), new TransportIndexRepositoryBinary(opened.transportReader));
 					}
-					if (mapReader.containsPoiData()) {
-						try {
-							RandomAccessFile raf = new RandomAccessFile(f, "r"); //$NON-NLS-1$
-							amenityRepositories.put(f.getName(), new AmenityIndexRepositoryBinary(new BinaryMapIndexReader(raf, mapReader)));
-						} catch (IOException e) {
-							log.error("Exception reading " + f.getAbsolutePath(), e); //$NON-NLS-1$
-							warnings.add(MessageFormat.format(context.getString(R.string.version_index_is_not_supported), f.getName())); //$NON-NLS-1$
-						}
+					if (opened.routingReader != null) {
+						routingMapFiles.put(f.getName(), opened.routingReader);
+					}
+					if (opened.poiReader != null) {
+						amenityRepositories.put(f.getName(), new AmenityIndexRepositoryBinary(opened.poiReader));
 					}
 				}
 			} catch (SQLiteException e) {
@@ -740,6 +734,109 @@ public class ResourceManager {
 	}
 
 	
+	/**
+	 * Map file opened by indexing thread with readers of all its sections
+	 * (one descriptor shared by address, transport, routing and poi readers)
+	 */
+	private static class OpenedMapFile {
+		private BinaryMapIndexReader mapReader;
+		private BinaryMapIndexReader addressReader;
+		private BinaryMapIndexReader transportReader;
+		private BinaryMapIndexReader routingReader;
+		private BinaryMapIndexReader poiReader;
+		private IOException readersError;
+
+		private void closeReaders() {
+			for (BinaryMapIndexReader r : new BinaryMapIndexReader[] { addressReader, transportReader, routingReader,
+					poiReader }) {
+				if (r != null) {
+					try {
+						r.close();
+					} catch (IOException e) {
+						log.error(e.getMessage(), e);
+					}
+				}
+			}
+		}
+	}
+
+	private List<Future<OpenedMapFile>> openMapFiles(List<File> files, final CachedOsmandIndexes cachedOsmandIndexes) {
+		int threads = Math.max(1, Math.min(files.size(), Math.min(Runtime.getRuntime().availableProcessors(), INDEXING_THREADS)));
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Indexing maps");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<Future<OpenedMapFile>> openedFiles = new ArrayList<Future<OpenedMapFile>>();
+		for (final File f : files) {
+			openedFiles.add(executor.submit(new Callable<OpenedMapFile>() {
+				@Override
+				public OpenedMapFile call() throws Exception {
+					long time = System.currentTimeMillis();
+					OpenedMapFile opened = new OpenedMapFile();
+					BinaryMapIndexReader mapReader = cachedOsmandIndexes.getReader(f);
+					if (mapReader == null || mapReader.getVersion() != IndexConstants.BINARY_MAP_VERSION) {
+						return opened;
+					}
+					opened.mapReader = mapReader;
+					try {
+						BinaryMapFileHandle fileHandle = null;
+						if (!mapReader.getRegionNames().isEmpty()) {
+							fileHandle = getFileHandle(fileHandle, f);
+							opened.addressReader = fileHandle.createReader(mapReader);
+						}
+						if (mapReader.hasTransportData()) {
+							fileHandle = getFileHandle(fileHandle, f);
+							opened.transportReader = fileHandle.createReader(mapReader);
+						}
+						if (mapReader.containsRouteData()) {
+							fileHandle = getFileHandle(fileHandle, f);
+							opened.routingReader = fileHandle.createReader(mapReader);
+						}
+						if (mapReader.containsPoiData()) {
+							fileHandle = getFileHandle(fileHandle, f);
+							opened.poiReader = fileHandle.createReader(mapReader);
+						}
+					} catch (IOException e) {
+						opened.readersError = e;
+					}
+					log.debug("Map file " + f.getName() + " indexed " + (System.currentTimeMillis() - time) + " ms");
+					return opened;
+				}
+			}));
+		}
+		// threads are finished when all files are opened
+		executor.shutdown();
+		return openedFiles;
+	}
+	
+	private OpenedMapFile getOpenedMapFile(Future<OpenedMapFile> opened) throws IOException {
+		try {
+			return opened.get();
+		} catch (InterruptedException e) {
+			throw new IOException("Indexing was interrupted");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof OutOfMemoryError) {
+				throw (OutOfMemoryError) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+	
+	private BinaryMapFileHandle getFileHandle(BinaryMapFileHandle fileHandle, File f) throws IOException {
+		if (fileHandle == null) {
+			return new BinaryMapFileHandle(f);
+		}
+		return fileHandle;
+	}
 
 	public void initMapBoundariesCacheNative() {
 		File indCache = context.getAppPath(INDEXES_CACHE);
@@ -957,6 +1054,9 @@ public class ResourceManager {
 		}
 		BinaryMapIndexReader rmp = routingMapFiles.remove(fileName);
 		if(rmp != null) {
+			for(RouteRegion r : rmp.getRoutingIndexes()) {
+				RoutingTileCache.getDefault().clear(r);
+			}
 			try {
 				rmp.close();
 			} catch (IOException e) {
@@ -1017,13 +1117,13 @@ public class ResourceManager {
 			try {
 				BinaryMapIndexReader ind = routingMapFiles.remove(m);
 				if(ind != null){
-					ind.getRaf().close();
+					ind.close();
 				}
 			} catch(IOException e){
 				log.error("Error closing resource " + m, e);
 			}
 		}
-		
+		RoutingTileCache.getDefault().clear();
 	}
 
 	public Map<String, String> getIndexFileNames() {
@@ -1062,6 +1162,7 @@ public class ResourceManager {
 			r.clearCache();
 		}
 		renderer.clearCache();
+		RoutingTileCache.getDefault().clear();
 		
 		System.gc();
 	}
@@ -25,5 +25,7 @@ public class RouteCalculationParams {
 	public boolean onlyStartPointChanged;
 	public boolean fast;
 	public boolean leftSide;
+	// departure time in milliseconds for time dependent speeds (0 - time of route calculation)
+	public long departureTime;
 	public RouteCalculationProgress calculationProgress;
 }
@@ -12,6 +12,7 @@ import net.osmand.data.LocationPoint;
 import net.osmand.plus.ApplicationMode;
 import net.osmand.plus.OsmandApplication;
 import net.osmand.plus.R;
+import net.osmand.router.ReverseSearchTree;
 import net.osmand.router.RouteSegmentResult;
 import net.osmand.router.TurnType;
 import net.osmand.util.Algorithms;
@@ -29,6 +30,8 @@ public class RouteCalculationResult {
 	private final int[] listDistance;
 	private final int[] intermediatePoints;
 	private final float routingTime;
+	// backward graph of calculation, reused by recalculation to the same end point
+	private ReverseSearchTree reverseSearchTree;
 	
 	protected int cacheCurrentTextDirectionInfo = -1;
 	protected List<RouteDirectionInfo> cacheAgreggatedDirections;
@@ -675,6 +678,14 @@ public class RouteCalculationResult {
 		return routingTime;
 	}
 	
+	public ReverseSearchTree getReverseSearchTree() {
+		return reverseSearchTree;
+	}
+	
+	public void setReverseSearchTree(ReverseSearchTree reverseSearchTree) {
+		this.reverseSearchTree = reverseSearchTree;
+	}
+	
 	
 	public int getWholeDistance() {
 		if(listDistance.length > 0) {
@@ -47,9 +47,11 @@ import net.osmand.router.GeneralRouter.GeneralRouterProfile;
 import net.osmand.router.GeneralRouter.RoutingParameter;
 import net.osmand.router.GeneralRouter.RoutingParameterType;
 import net.osmand.router.PrecalculatedRouteDirection;
+import net.osmand.router.PreprocessedRoutingData;
 import net.osmand.router.RoutePlannerFrontEnd;
 import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.router.RouteSegmentResult;
+import net.osmand.router.RouteTimeMatrix;
 import net.osmand.router.RoutingConfiguration;
 import net.osmand.router.RoutingConfiguration.Builder;
 import net.osmand.router.RoutingContext;
@@ -73,6 +75,8 @@ import btools.routingapp.IBRouterService;
 public class RouteProvider {
 	private static final org.apache.commons.logging.Log log = PlatformUtil.getLog(RouteProvider.class);
 	private static final String OSMAND_ROUTER = "OsmAndRouter";
+	// contraction hierarchies and speed profiles built next to obf files
+	private final PreprocessedRoutingData preprocessedData = new PreprocessedRoutingData();
 	
 	public enum RouteService {
 			OSMAND("OsmAnd (offline)"), YOURS("YOURS"), 
@@ -387,6 +391,7 @@ public class RouteProvider {
 		RouteCalculationParams rp = new RouteCalculationParams();
 		rp.calculationProgress = routeParams.calculationProgress;
 		rp.ctx = routeParams.ctx;
+		rp.departureTime = routeParams.departureTime;
 		rp.mode = routeParams.mode;
 		rp.start = routeParams.start;
 		rp.end = routeParams.end;
@@ -510,6 +515,7 @@ public class RouteProvider {
 		newParams.mode = rParams.mode;
 		newParams.type = RouteService.OSMAND;
 		newParams.leftSide = rParams.leftSide;
+		newParams.departureTime = rParams.departureTime;
 		RouteCalculationResult newRes = null;
 		try {
 			newRes = findVectorMapsRoute(newParams, false);
@@ -676,6 +682,11 @@ public class RouteProvider {
 		topY = Math.min(MapUtils.get31TileNumberY(l.getLatitude()), topY);
 		
 		params.ctx.getResourceManager().getRenderer().checkInitialized(15, lib, leftX, rightX, bottomY, topY);
+		if (lib == null) {
+			// speed profiles next to obf files are used only by java routing
+			cf.speedProfiles = preprocessedData.getSpeedProfiles(files);
+			cf.departureTime = params.departureTime;
+		}
 		
 		RoutingContext ctx = router.buildRoutingContext(cf,
 				lib, files, 
@@ -692,10 +703,14 @@ public class RouteProvider {
 			if(originalRoute != null && currentRoute < originalRoute.size()) {
 				ctx.previouslyCalculatedRoute = originalRoute.subList(currentRoute, originalRoute.size());
 			}
+			ctx.reverseSearchTree = params.previousToRecalculate.getReverseSearchTree();
 		}
 		if(complex && router.getRecalculationEnd(ctx) != null) {
 			complex = false;
 		}
+		if(complex && ctx.reverseSearchTree != null && ctx.reverseSearchTree.isApplicable(ctx)) {
+			complex = false;
+		}
 		if(complex) {
 			complexCtx = router.buildRoutingContext(cf, lib,files,
 				RouteCalculationMode.COMPLEX);
@@ -710,12 +725,56 @@ public class RouteProvider {
 		if (params.intermediates != null) {
 			inters  = new ArrayList<LatLon>(params.intermediates);
 		}
+		if (lib == null) {
+			preprocessedData.attach(ctx, files, st, en, inters);
+			if (complexCtx != null) {
+				complexCtx.contractionHierarchy = ctx.contractionHierarchy;
+			}
+		}
 		return calcOfflineRouteImpl(params, router, ctx, complexCtx, st, en, inters, precalculated);
 	}
 
 
 
 
+	/**
+	 * Route times (seconds) between all points with offline maps, -1 if there is no route between points.
+	 * Returns null if application mode is not supported by offline routing.
+	 */
+	public double[][] calculateRouteTimeMatrix(OsmandApplication app, ApplicationMode mode, List<LatLon> points)
+			throws IOException, InterruptedException {
+		RouteCalculationParams params = new RouteCalculationParams();
+		params.ctx = app;
+		params.mode = mode;
+		params.start = new Location("");
+		params.start.setLatitude(points.get(0).getLatitude());
+		params.start.setLongitude(points.get(0).getLongitude());
+		RoutingConfiguration.Builder config = app.getDefaultRoutingConfig();
+		GeneralRouter generalRouter = SettingsNavigationActivity.getRouter(config, mode);
+		if (generalRouter == null) {
+			return null;
+		}
+		RoutingConfiguration cf = initOsmAndRoutingConfig(config, params, app.getSettings(), generalRouter);
+		if (cf == null) {
+			return null;
+		}
+		BinaryMapIndexReader[] files = app.getResourceManager().getRoutingMapFiles();
+		// every thread has own routing context within memory limit
+		int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors()));
+		cf.memoryLimitation /= threads;
+		RouteTimeMatrix matrix = new RouteTimeMatrix(new RoutePlannerFrontEnd(false), cf, files);
+		matrix.setThreads(threads);
+		float[][] times = matrix.calculate(points, points);
+		double[][] res = new double[times.length][];
+		for (int i = 0; i < times.length; i++) {
+			res[i] = new double[times[i].length];
+			for (int j = 0; j < times[i].length; j++) {
+				res[i][j] = times[i][j];
+			}
+		}
+		return res;
+	}
+
 	private RoutingConfiguration initOsmAndRoutingConfig(Builder config, final RouteCalculationParams params, OsmandSettings settings,
 			GeneralRouter generalRouter) throws IOException, FileNotFoundException {
 		GeneralRouterProfile p ;
@@ -807,6 +866,7 @@ public class RouteProvider {
 			} else {
 				RouteCalculationResult res = new RouteCalculationResult(result, params.start, params.end,
 						params.intermediates, params.ctx, params.leftSide, ctx.routingTime, params.gpxRoute  == null? null: params.gpxRoute.wpt);
+				res.setReverseSearchTree(ctx.reverseSearchTree);
 				return res;
 			}
 		} catch (RuntimeException e) {
@@ -1,6 +1,7 @@
 package net.osmand.plus.routing;
 
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -203,6 +204,20 @@ public class RoutingHelper {
 		voiceRouter.updateAppMode();
 	}
 	
+	/**
+	 * Route times between points for current application mode (see {@link RouteProvider#calculateRouteTimeMatrix})
+	 */
+	public double[][] calculateRouteTimeMatrix(List<LatLon> points) throws IOException, InterruptedException {
+		return provider.calculateRouteTimeMatrix(app, mode, points);
+	}
+
+	/**
+	 * Releases backward graph kept by current route for recalculation (see {@link RouteCalculationResult#getReverseSearchTree})
+	 */
+	public synchronized void onLowMemory() {
+		route.setReverseSearchTree(null);
+	}
+
 	public ApplicationMode getAppMode() {
 		return mode;
 	}